@@ -0,0 +1,67 @@
+package com.gure.cinab.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configures the in-process caches of the product catalog.
+ * <p>
+ * Each cache is a bounded Caffeine cache (W-TinyLFU eviction) with a time-to-live and hit/miss
+ * statistics, which the actuator publishes as {@code cache.gets} metrics. Entries are evicted
+ * after the writing transaction commits, see {@code ProductCacheInvalidator}.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Product DTOs keyed by product ID.
+     */
+    public static final String PRODUCTS = "products";
+
+    /**
+     * Pages of the by-brand listing keyed by brand, cursor and limit.
+     */
+    public static final String PRODUCTS_BY_BRAND = "productsByBrand";
+
+    /**
+     * Pages of the by-category listing keyed by category, cursor and limit.
+     */
+    public static final String PRODUCTS_BY_CATEGORY = "productsByCategory";
+
+    /**
+     * The {@code CollectionVersion} of the whole product table, behind the ETag of the product listing.
+     */
+    public static final String PRODUCTS_VERSION = "productsVersion";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${cinab.cache.products.maximum-size}") long productsMaximumSize,
+                                     @Value("${cinab.cache.listings.maximum-size}") long listingsMaximumSize,
+                                     @Value("${cinab.cache.time-to-live}") Duration timeToLive) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTS, newCache(productsMaximumSize, timeToLive));
+        cacheManager.registerCustomCache(PRODUCTS_BY_BRAND, newCache(listingsMaximumSize, timeToLive));
+        cacheManager.registerCustomCache(PRODUCTS_BY_CATEGORY, newCache(listingsMaximumSize, timeToLive));
+        cacheManager.registerCustomCache(PRODUCTS_VERSION, newCache(1, timeToLive));
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> newCache(long maximumSize, Duration timeToLive) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.gure.cinab.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gure.cinab.response.ApiResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many API requests use the database at the same time, so that they never outnumber the
+ * database connections by much.
+ * <p>
+ * With virtual threads Tomcat no longer caps concurrency through its worker pool: every request
+ * gets its own thread and immediately asks Hikari for a connection. Without a limit, a burst
+ * turns into a long Hikari wait queue in which requests time out after the full connection
+ * timeout while still holding their sockets. This filter admits a fixed number of requests and
+ * lets the others wait in a fair queue for at most {@code maxWait}. A request that cannot be
+ * admitted in time is answered with {@code 503 Service Unavailable} and a {@code Retry-After}
+ * header instead.
+ * </p>
+ * <p>
+ * A permit only covers the handler, which is where requests check out connections. Streamed
+ * responses such as image downloads go on writing after the handler returns without a
+ * connection, because the {@code virtual-threads} profile switches off open-in-view, so they give
+ * their permit back before the client has read the body. The catalog export reads the database
+ * while it streams; its asynchronous work is bounded by the task executor instead.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ConnectionBulkheadFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final Duration maxWait;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Creates the filter.
+     *
+     * @param permits      the maximum number of requests processed at the same time
+     * @param maxWait      how long a request may wait to be admitted
+     * @param objectMapper the mapper used to write the rejection body
+     */
+    public ConnectionBulkheadFilter(int permits, Duration maxWait, ObjectMapper objectMapper) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("The bulkhead needs at least one permit");
+        }
+        this.permits = new Semaphore(permits, true);
+        this.maxWait = maxWait;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            reject(response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Tells how many requests could be admitted right now.
+     *
+     * @return the number of free permits
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse("Too many concurrent requests, please retry", null));
+    }
+}
@@ -0,0 +1,44 @@
+package com.gure.cinab.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Registers the binary response encodings clients can ask for with the {@code Accept} header.
+ * <p>
+ * Besides JSON, every endpoint can answer in CBOR ({@code application/cbor}) or Smile
+ * ({@code application/x-jackson-smile}). Both are binary forms of the same JSON data model: field
+ * names are written once per value instead of as quoted text, and numbers are written in binary,
+ * which makes large listings smaller and cheaper to produce. JSON stays the default for
+ * {@code Accept: *}{@code /*} and for clients that send no {@code Accept} header.
+ * </p>
+ * <p>
+ * The converters are built from Spring Boot's {@link Jackson2ObjectMapperBuilder}, so they share the
+ * Jackson settings of the JSON converter.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+public class EncodingConfig {
+
+    /**
+     * The media type of Smile responses.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,108 @@
+package com.gure.cinab.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Configures the regions of the Hibernate second-level and query cache.
+ * <p>
+ * Hibernate reaches the cache through JCache; the regions are Caffeine caches created here, each
+ * with its own maximum size, and Hibernate refuses to start if an entity or query names a region
+ * that does not exist ({@code hibernate.javax.cache.missing_cache_strategy=fail}). Hits, misses and
+ * puts of every region are part of the Hibernate statistics and published as
+ * {@code hibernate.second.level.cache.*} and {@code hibernate.cache.query.*} metrics.
+ * </p>
+ * <p>
+ * These caches sit below the service-level caches of {@link CacheConfig}: they serve entity loads
+ * such as the category of every product, which the service caches do not cover.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * Category entities by ID.
+     */
+    public static final String CATEGORY_REGION = "category";
+
+    /**
+     * Product entities by ID.
+     */
+    public static final String PRODUCT_REGION = "product";
+
+    /**
+     * Results of the cacheable {@code CategoryRepository} finders.
+     */
+    public static final String CATEGORY_QUERY_REGION = "category-queries";
+
+    /**
+     * Results of the cacheable {@code ProductRepository} finders.
+     */
+    public static final String PRODUCT_QUERY_REGION = "product-queries";
+
+    /**
+     * Hibernate's region for cacheable queries without a region of their own.
+     */
+    private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+
+    /**
+     * Hibernate's region holding the last update time of each table, which tells whether a cached
+     * query result is stale. It has one entry per table and must never evict.
+     */
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${cinab.hibernate-cache.category.maximum-size}") long categorySize,
+                                              @Value("${cinab.hibernate-cache.product.maximum-size}") long productSize,
+                                              @Value("${cinab.hibernate-cache.queries.maximum-size}") long querySize,
+                                              @Value("${cinab.hibernate-cache.time-to-live}") Duration timeToLive) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A manager of its own, as the default one is shared by every application context in the JVM
+        URI uri = URI.create(getClass().getName() + "/" + UUID.randomUUID());
+        CacheManager cacheManager = provider.getCacheManager(uri, getClass().getClassLoader());
+        cacheManager.createCache(CATEGORY_REGION, region(categorySize, timeToLive));
+        cacheManager.createCache(PRODUCT_REGION, region(productSize, timeToLive));
+        cacheManager.createCache(CATEGORY_QUERY_REGION, region(querySize, timeToLive));
+        cacheManager.createCache(PRODUCT_QUERY_REGION, region(querySize, timeToLive));
+        cacheManager.createCache(DEFAULT_QUERY_REGION, region(querySize, timeToLive));
+        cacheManager.createCache(TIMESTAMPS_REGION, region(-1, null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, Duration timeToLive) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate caches its own disassembled state, which needs no copying
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        if (maximumSize >= 0) {
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        }
+        if (timeToLive != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+        }
+        return configuration;
+    }
+}
@@ -0,0 +1,36 @@
+package com.gure.cinab.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.request.ProductFields;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Customizes the application's Jackson mappers, including the CBOR and Smile ones of {@link EncodingConfig}.
+ * <p>
+ * {@link ProductDTO} gets the {@link ProductFields#FILTER_ID} property filter through a mix-in, so a
+ * response can leave out the fields a client did not ask for. The filter serializes every property
+ * unless a request supplies its own, see {@code ProductFieldsAdvice}. Using a mix-in keeps the DTO
+ * itself serializable by plain mappers.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer productFieldsCustomizer() {
+        return builder -> builder
+                .mixIn(ProductDTO.class, ProductFieldsMixIn.class)
+                .filters(new SimpleFilterProvider().addFilter(ProductFields.FILTER_ID, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @JsonFilter(ProductFields.FILTER_ID)
+    private interface ProductFieldsMixIn {
+    }
+}
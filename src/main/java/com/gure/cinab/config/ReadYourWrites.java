@@ -0,0 +1,86 @@
+package com.gure.cinab.config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Holds the read-your-writes window of the current thread.
+ * <p>
+ * While the window is open, {@link ReplicaRoutingDataSource} hands out primary connections for
+ * read-only transactions as well, so a client reads its own writes even when the replicas lag
+ * behind. The window is opened by {@link ReadYourWritesListener} when a write commits and carried
+ * to the client's next requests by {@link ReadYourWritesFilter}.
+ * </p>
+ * <p>
+ * Read-only transactions whose results outlive them, in a cache or an in-memory index, are
+ * labelled {@link #PRIMARY} and always read from the primary: a result read from a lagging
+ * replica would otherwise be kept until the next change of the same data.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public final class ReadYourWrites {
+
+    /**
+     * Transaction label of read-only work that reads from the primary, used as
+     * {@code @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)}.
+     */
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Instant> DEADLINE = new ThreadLocal<>();
+
+    private static final ThreadLocal<Integer> PRIMARY_TRANSACTIONS = ThreadLocal.withInitial(() -> 0);
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Opens (or extends) the window for the given duration from now.
+     *
+     * @return the end of the window
+     */
+    public static Instant open(Duration window) {
+        Instant deadline = Instant.now().plus(window);
+        DEADLINE.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Opens the window until the given instant, e.g. the deadline sent back by the client.
+     */
+    public static void openUntil(Instant deadline) {
+        if (deadline.isAfter(Instant.now())) {
+            DEADLINE.set(deadline);
+        }
+    }
+
+    public static boolean isOpen() {
+        Instant deadline = DEADLINE.get();
+        return deadline != null && deadline.isAfter(Instant.now());
+    }
+
+    /**
+     * Whether read-only work of the current thread reads from the primary, because the window is
+     * open or a {@link #PRIMARY} transaction is active.
+     */
+    public static boolean readsPrimary() {
+        return PRIMARY_TRANSACTIONS.get() > 0 || isOpen();
+    }
+
+    static void beginPrimaryTransaction() {
+        PRIMARY_TRANSACTIONS.set(PRIMARY_TRANSACTIONS.get() + 1);
+    }
+
+    static void endPrimaryTransaction() {
+        int active = PRIMARY_TRANSACTIONS.get() - 1;
+        if (active > 0) {
+            PRIMARY_TRANSACTIONS.set(active);
+        } else {
+            PRIMARY_TRANSACTIONS.remove();
+        }
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+}
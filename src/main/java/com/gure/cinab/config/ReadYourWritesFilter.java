@@ -0,0 +1,52 @@
+package com.gure.cinab.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Restores the {@link ReadYourWrites} window of a client that wrote recently.
+ * <p>
+ * The deadline comes from the cookie set by {@link ReadYourWritesListener}. It is capped at one
+ * window from now, so a tampered cookie can at most send that client's reads to the primary.
+ * The window is cleared when the request completes, as request threads are reused.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Cookie cookie = WebUtils.getCookie(request, ReadYourWritesListener.COOKIE);
+        if (cookie != null) {
+            try {
+                Instant deadline = Instant.ofEpochMilli(Long.parseLong(cookie.getValue()));
+                Instant latest = Instant.now().plus(window);
+                ReadYourWrites.openUntil(deadline.isAfter(latest) ? latest : deadline);
+            } catch (NumberFormatException e) {
+                // A malformed cookie only means the reads go to the replicas
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+}
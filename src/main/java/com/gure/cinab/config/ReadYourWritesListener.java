@@ -0,0 +1,58 @@
+package com.gure.cinab.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Opens the {@link ReadYourWrites} window when a read-write transaction is about to commit.
+ * <p>
+ * The window is opened before the commit rather than after it: the {@code afterCommit} callbacks
+ * of the transaction, such as the {@code AFTER_COMMIT} event listeners refreshing the search
+ * index, run before {@link #afterCommit} and must read the committed write from the primary too.
+ * A commit that fails leaves the window open, which only sends a few reads to the primary.
+ * </p>
+ * <p>
+ * On a web request the end of the window is also sent to the client in a cookie, which
+ * {@link ReadYourWritesFilter} reads on the client's following requests.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ReadYourWritesListener implements TransactionExecutionListener {
+
+    /**
+     * Cookie carrying the end of the window in epoch milliseconds.
+     */
+    public static final String COOKIE = "cinab-ryw";
+
+    private final Duration window;
+
+    public ReadYourWritesListener(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        if (transaction.isReadOnly() || !transaction.isNewTransaction()) {
+            return;
+        }
+        Instant deadline = ReadYourWrites.open(window);
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(deadline.toEpochMilli()));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+                response.addCookie(cookie);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.gure.cinab.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to read replicas and everything else to the primary.
+ * <p>
+ * Only active when at least one replica is configured, see the {@code replicas} profile
+ * ({@code application-replicas.properties}). The application datasource then is a
+ * {@link LazyConnectionDataSourceProxy}: a transaction declared with
+ * {@code @Transactional(readOnly = true)} obtains its connection from the
+ * {@link ReplicaRoutingDataSource}, any other work from the primary pool. After a write commits,
+ * the same client reads from the primary for {@code cinab.datasource.read-your-writes-window}.
+ * The JPA transactions follow the same rules through {@link ReplicaJpaTransactionManager}.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+@ConditionalOnProperty("cinab.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaDataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = properties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = configured.get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + i);
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername());
+            pool.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            if (primaryDataSource.getMaximumPoolSize() > 0) {
+                pool.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            }
+            pool.setReadOnly(true);
+            // A replica that is down must not stop the application from starting
+            pool.setInitializationFailTimeout(-1);
+            replicas.put(pool.getPoolName(), pool);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.getHealthCheckInterval());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Takes the place of the transaction manager of Spring Boot, with the same customizations.
+     */
+    @Bean
+    public ReplicaJpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        ReplicaJpaTransactionManager transactionManager = new ReplicaJpaTransactionManager();
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * Registered with the transaction manager by Spring Boot.
+     */
+    @Bean
+    public ReadYourWritesListener readYourWritesListener(ReplicaDataSourceProperties properties) {
+        return new ReadYourWritesListener(properties.getReadYourWritesWindow());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaDataSourceProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.getReadYourWritesWindow()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return () -> {
+            Map<String, Boolean> health = replicaRoutingDataSource.replicaHealth();
+            // Reads still work from the primary, so a replica outage only degrades the service
+            Health.Builder builder = health.containsValue(true) ? Health.up() : Health.status("DEGRADED");
+            return builder.withDetails(health).build();
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.gure.cinab.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas of the primary datasource, bound from {@code cinab.datasource.*}.
+ *
+ * @since 1.1.0
+ */
+@Getter
+@Setter
+@ConfigurationProperties("cinab.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How long after a write the same client keeps reading from the primary.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * Delay between two health checks of the replicas.
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,78 @@
+package com.gure.cinab.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Applies the replica routing of {@link ReplicaDataSourceConfig} to JPA transactions.
+ * <p>
+ * Read-only transactions labelled {@link ReadYourWrites#PRIMARY} read from the primary. The other
+ * read-only transactions read from a replica unless the read-your-writes window is open; they
+ * still read the second-level and query caches, but do not put what they load into them. An
+ * entity evicted by a write is then only cached again when it is read from the primary, instead
+ * of being put back from a replica that has not caught up with the write.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ReplicaJpaTransactionManager extends JpaTransactionManager {
+
+    /**
+     * The transactions begun by the current thread, innermost first; suspended ones stay below.
+     */
+    private final ThreadLocal<Deque<Begun>> begun = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        boolean primary = definition instanceof TransactionAttribute attribute
+                && attribute.getLabels().contains(ReadYourWrites.PRIMARY);
+        if (primary) {
+            ReadYourWrites.beginPrimaryTransaction();
+        }
+        try {
+            super.doBegin(transaction, definition);
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+            Session session = holder.getEntityManager().unwrap(Session.class);
+            begun.get().push(new Begun(session, session.getCacheMode(), primary));
+            if (definition.isReadOnly() && !ReadYourWrites.readsPrimary()) {
+                session.setCacheMode(CacheMode.GET);
+            }
+        } catch (RuntimeException | Error e) {
+            if (primary) {
+                ReadYourWrites.endPrimaryTransaction();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        Deque<Begun> transactions = begun.get();
+        Begun ended = transactions.pop();
+        if (transactions.isEmpty()) {
+            begun.remove();
+        }
+        try {
+            // A session outliving the transaction, e.g. with open-in-view, keeps its own cache mode
+            if (ended.session().isOpen()) {
+                ended.session().setCacheMode(ended.cacheMode());
+            }
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            if (ended.primary()) {
+                ReadYourWrites.endPrimaryTransaction();
+            }
+        }
+    }
+
+    private record Begun(Session session, CacheMode cacheMode, boolean primary) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.gure.cinab.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Guards the connection pool when requests run on virtual threads.
+ * <p>
+ * Virtual threads are switched on by the {@code virtual-threads} profile
+ * ({@code spring.threads.virtual.enabled=true}) on a Java 21 runtime; Spring Boot then runs Tomcat
+ * requests, {@code @Async} work and asynchronous MVC requests on virtual threads. This configuration
+ * is only active in that mode. It places a {@link ConnectionBulkheadFilter} in front of the API
+ * whose permits default to the size of the Hikari pool.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    /**
+     * Hikari's pool size when {@code maximum-pool-size} is not set; the pool reports {@code -1}
+     * until it starts.
+     */
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public FilterRegistrationBean<ConnectionBulkheadFilter> connectionBulkheadFilter(
+            DataSource dataSource,
+            ObjectMapper objectMapper,
+            @Value("${api.prefix}") String apiPrefix,
+            @Value("${cinab.bulkhead.permits:0}") int permits,
+            @Value("${cinab.bulkhead.max-wait:2s}") Duration maxWait) {
+        ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(permits > 0 ? permits : poolSize(dataSource), maxWait, objectMapper);
+        FilterRegistrationBean<ConnectionBulkheadFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(apiPrefix + "/*");
+        return registration;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        // With read replicas the primary pool sits behind a LazyConnectionDataSourceProxy
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                return poolSize > 0 ? poolSize : HIKARI_DEFAULT_POOL_SIZE;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Set cinab.bulkhead.permits, the pool size could not be determined", e);
+        }
+        throw new IllegalStateException("Set cinab.bulkhead.permits, the pool size of " + dataSource.getClass().getName() + " is unknown");
+    }
+}
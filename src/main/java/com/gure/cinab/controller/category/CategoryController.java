@@ -5,8 +5,11 @@ import com.gure.cinab.model.Category;
 import com.gure.cinab.response.ApiResponse;
 import com.gure.cinab.service.category.ICategoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,12 +24,21 @@ public class CategoryController implements ICategoryController {
 
     @Override
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse> getAllCategories() {
+    public ResponseEntity<ApiResponse> getAllCategories(WebRequest webRequest) {
         try {
+            // Validate the client's copy against an aggregate query before loading the categories
+            String eTag = categoryService.getCategoriesVersion().eTag();
+            if (webRequest.checkNotModified(eTag)) {
+                return ResponseEntity.status(NOT_MODIFIED).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build();
+            }
             // Retrieve a list of all categories
             List<Category> categoryList = categoryService.getAllCategories();
             // Return the list with a success message
-            return ResponseEntity.ok(new ApiResponse("Found categories", categoryList));
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(new ApiResponse("Found categories", categoryList));
         } catch (Exception e) {
             // Handle any unexpected errors
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("Error:", INTERNAL_SERVER_ERROR));
@@ -4,6 +4,7 @@ import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.model.Category;
 import com.gure.cinab.response.ApiResponse;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * The ICategoryController interface defines the contract for handling
@@ -14,11 +15,17 @@ public interface ICategoryController {
 
     /**
      * Retrieves all available categories.
+     * <p>
+     * Responses carry a weak {@code ETag} that changes whenever a category is added, changed or
+     * deleted; a request with a matching {@code If-None-Match} gets {@code 304 Not Modified} without
+     * the categories being loaded.
+     * </p>
      *
+     * @param webRequest the current request, used to evaluate its conditional headers.
      * @return a {@link ResponseEntity} containing an {@link ApiResponse} with a list of categories.
      * @since 1.0.7
      */
-    ResponseEntity<ApiResponse> getAllCategories();
+    ResponseEntity<ApiResponse> getAllCategories(WebRequest webRequest);
 
     /**
      * Adds a new category to the system.
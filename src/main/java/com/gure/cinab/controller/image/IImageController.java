@@ -2,11 +2,13 @@ package com.gure.cinab.controller.image;
 
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.response.ApiResponse;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
-import java.sql.SQLException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 import java.util.List;
 
 /**
@@ -24,14 +26,32 @@ public interface IImageController {
      */
     ResponseEntity<ApiResponse> uploadImages( Long productId, List<MultipartFile> files);
 
+    /**
+     * Reports the storage taken by image content, and the bytes saved by storing identical
+     * uploads once.
+     *
+     * @return A response entity containing the storage report.
+     */
+    ResponseEntity<ApiResponse> getStorageReport();
+
     /**
      * Facilitates the download of an image by its ID.
+     * The image content is streamed to the client after the headers, including its length, are sent.
+     * A {@code Range} header selects one or more byte ranges (206 Partial Content); a malformed or
+     * overlapping range set is ignored, and only ranges that all start beyond the image get 416. A matching
+     * {@code If-None-Match} answers 304, and a {@code v} parameter naming the current content hash
+     * makes the response cacheable for good. A {@code variant} parameter ({@code thumb},
+     * {@code medium} or {@code large}) asks for a resized copy; the original is sent until it is generated.
      *
-     * @param imageId ID of the image to download.
-     * @return A resource containing the image data.
-     * @throws SQLException If there is an error accessing the image blob from the database.
+     * @param imageId    ID of the image to download.
+     * @param version    The content hash the download URL was issued for, if any.
+     * @param variant    The resized variant to download, if any.
+     * @param headers    The request headers, read for {@code Range} and {@code If-Range}.
+     * @param webRequest The request, used to evaluate conditional headers.
+     * @return A response whose body streams the image data or the requested ranges of it.
      */
-    ResponseEntity<Resource> downloadImage(Long imageId) throws SQLException;
+    ResponseEntity<StreamingResponseBody> downloadImage(Long imageId, String version, String variant,
+                                                        HttpHeaders headers, WebRequest webRequest);
 
     /**
      * Updates an existing image with new file data.
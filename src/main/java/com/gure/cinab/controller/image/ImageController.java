@@ -1,34 +1,51 @@
 package com.gure.cinab.controller.image;
 
 import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageDownload;
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.model.Image;
+import com.gure.cinab.model.ImageSize;
 import com.gure.cinab.response.ApiResponse;
 import com.gure.cinab.service.image.IImageService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.*;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.FileNotFoundException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.Blob;
-import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("${api.prefix}/images")
 public class ImageController implements IImageController {
 
+    /**
+     * How long a versioned download URL may be cached; its content never changes.
+     */
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    /**
+     * Request attributes of Tomcat's sendfile support; the end offset is exclusive.
+     */
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final IImageService imageService;
 
     @Override
@@ -50,30 +67,120 @@ public class ImageController implements IImageController {
 
 
     @Override
-    @Transactional
+    @GetMapping("/storage")
+    public ResponseEntity<ApiResponse> getStorageReport() {
+        // Identical content is stored once; the report shows what that saves
+        return ResponseEntity.ok(new ApiResponse("Success", imageService.getStorageReport()));
+    }
+
+    @Override
     @GetMapping("/image/download/{imageId}")
-    public ResponseEntity<Resource> downloadImage(@PathVariable Long imageId) throws SQLException {
-        // Retrieve the image from the service layer
-        Image image = imageService.getImageById(imageId);
-        Blob blob = image.getImage();
-        if (blob == null) {
-            throw new ResourceNotFoundException("Image blob is null for imageId: " + imageId);
+    public ResponseEntity<StreamingResponseBody> downloadImage(@PathVariable Long imageId,
+                                                               @RequestParam(name = "v", required = false) String version,
+                                                               @RequestParam(required = false) String variant,
+                                                               @RequestHeader HttpHeaders headers,
+                                                               WebRequest webRequest) {
+        ImageSize size;
+        try {
+            size = variant == null ? null : ImageSize.parse(variant);
+        } catch (IllegalArgumentException e) {
+            // Unknown variant name
+            return ResponseEntity.badRequest().build();
+        }
+        // Read the headers first; the content is copied from storage in chunks after this method returns
+        ImageDownload download = imageService.getImageDownload(imageId, size);
+        String eTag = download.eTag();
+        // A URL naming the current content hash always returns the same bytes, so it can be cached for good.
+        // The original sent in place of a variant that is not generated yet must not be cached as the variant
+        CacheControl cacheControl = version != null && version.equals(download.version()) && size == download.variant()
+                ? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable()
+                : CacheControl.noCache();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangeApplies(headers, eTag) ? headers.getRange() : List.of();
+        } catch (IllegalArgumentException e) {
+            // RFC 9110 has an invalid Range header ignored; this includes more ranges than Spring parses
+            ranges = List.of();
         }
-        long blobLength = ((java.sql.Blob) blob).length();
-        if (blobLength > Integer.MAX_VALUE) {
-            throw new IllegalArgumentException("Blob size exceeds maximum allowed size for imageId: " + imageId);
+        List<ImageRanges.Region> regions;
+        try {
+            regions = ImageRanges.resolve(ranges, download.length());
+        } catch (IllegalArgumentException e) {
+            // Every range starts beyond the content
+            return ResponseEntity.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + download.length())
+                    .build();
         }
-        ByteArrayResource resource = new ByteArrayResource(blob.getBytes(1, (int) blobLength));
 
+        MediaType type = MediaType.parseMediaType(download.fileType());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(regions.isEmpty() ? OK : PARTIAL_CONTENT)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.fileName() + "\"");
+        if (regions.isEmpty()) {
+            // Prepare and return the response entity with the whole image file
+            response.contentType(type).contentLength(download.length());
+            if (sendFile(webRequest, download.contentHash(), 0, download.length())) {
+                return response.build();
+            }
+            return response.body(out -> imageService.readImageContent(imageId, download.contentHash(),
+                    content -> content.copyTo(out, 0, content.length())));
+        }
+        if (regions.size() == 1) {
+            // Only the requested bytes are read from storage
+            ImageRanges.Region region = regions.get(0);
+            response.contentType(type)
+                    .contentLength(region.count())
+                    .header(HttpHeaders.CONTENT_RANGE, region.contentRange(download.length()));
+            if (sendFile(webRequest, download.contentHash(), region.start(), region.count())) {
+                return response.build();
+            }
+            return response.body(out -> imageService.readImageContent(imageId, download.contentHash(),
+                    content -> content.copyTo(out, region.start(), region.count())));
+        }
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        return response.contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .body(out -> imageService.readImageContent(imageId, download.contentHash(),
+                        content -> ImageRanges.writeMultipart(content, regions, type, boundary, out)));
+    }
 
-        // Convert the image blob into a ByteArrayResource for streaming
-//        ByteArrayResource resource = new ByteArrayResource(image.getImage().getBytes(1, (int) image.getImage().length()));
+    /**
+     * Hands a byte range of a stored image file to Tomcat, which sends it with sendfile once the
+     * headers are written, so the content is not copied through the JVM at all.
+     *
+     * @return whether the file will be sent by the server; the response then has no body
+     */
+    private boolean sendFile(WebRequest webRequest, String contentHash, long start, long count) {
+        if (count == 0 || !Boolean.TRUE.equals(webRequest.getAttribute(SENDFILE_SUPPORTED, RequestAttributes.SCOPE_REQUEST))) {
+            return false;
+        }
+        Optional<Path> file = imageService.findContentFile(contentHash);
+        if (file.isEmpty()) {
+            // Content that is still stored in the database
+            return false;
+        }
+        webRequest.setAttribute(SENDFILE_FILENAME, file.get().toString(), RequestAttributes.SCOPE_REQUEST);
+        webRequest.setAttribute(SENDFILE_START, start, RequestAttributes.SCOPE_REQUEST);
+        webRequest.setAttribute(SENDFILE_END, start + count, RequestAttributes.SCOPE_REQUEST);
+        return true;
+    }
 
-        // Prepare and return the response entity with the image file
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(image.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + image.getFileName() + "\"")
-                .body(resource);
+    /**
+     * A {@code Range} header is honoured unless an {@code If-Range} validator shows the client
+     * holds another version of the image.
+     */
+    private static boolean rangeApplies(HttpHeaders headers, String eTag) {
+        if (!headers.containsKey(HttpHeaders.RANGE)) {
+            return false;
+        }
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        // Only a strong entity tag can validate a range; no Last-Modified date is sent for images
+        return ifRange == null || (eTag != null && eTag.equals(ifRange.trim()));
     }
 
     @Override
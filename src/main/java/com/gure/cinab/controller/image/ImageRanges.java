@@ -0,0 +1,106 @@
+package com.gure.cinab.controller.image;
+
+import com.gure.cinab.service.image.ImageContent;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resolves the byte ranges of a {@code Range} request against an image and writes them, as a
+ * single part or as {@code multipart/byteranges}.
+ *
+ * @since 1.1.0
+ */
+final class ImageRanges {
+
+    private ImageRanges() {
+    }
+
+    /**
+     * One satisfiable byte range of an image.
+     */
+    record Region(long start, long count) {
+
+        long end() {
+            return start + count - 1;
+        }
+
+        String contentRange(long length) {
+            return "bytes " + start + "-" + end() + "/" + length;
+        }
+    }
+
+    /**
+     * Resolves requested ranges against the length of the content. Ranges starting beyond the
+     * content are left out, as RFC 9110 allows. A set of several ranges that overlap or together ask
+     * for at least the whole content is ignored: the whole content is cheaper to send.
+     *
+     * @return the regions to send, or an empty list to send the whole content
+     * @throws IllegalArgumentException if none of the ranges is satisfiable
+     */
+    static List<Region> resolve(List<HttpRange> ranges, long length) {
+        List<Region> regions = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            Region region = region(range, length);
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        if (regions.isEmpty() && !ranges.isEmpty()) {
+            throw new IllegalArgumentException("No satisfiable byte range in " + ranges);
+        }
+        if (regions.size() > 1 && (overlap(regions) || regions.stream().mapToLong(Region::count).sum() >= length)) {
+            return List.of();
+        }
+        return regions;
+    }
+
+    private static Region region(HttpRange range, long length) {
+        if (length == 0) {
+            return null;
+        }
+        long start;
+        try {
+            start = range.getRangeStart(length);
+        } catch (IllegalArgumentException e) {
+            // Starts at or beyond the end of the content
+            return null;
+        }
+        long count = range.getRangeEnd(length) - start + 1;
+        return count > 0 ? new Region(start, count) : null;
+    }
+
+    private static boolean overlap(List<Region> regions) {
+        List<Region> sorted = regions.stream().sorted(Comparator.comparingLong(Region::start)).toList();
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).start() <= sorted.get(i - 1).end()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the regions as the parts of a {@code multipart/byteranges} body.
+     */
+    static void writeMultipart(ImageContent content, List<Region> regions, MediaType type, String boundary,
+                               OutputStream out) throws IOException {
+        for (Region region : regions) {
+            write(out, "\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + type + "\r\n"
+                    + "Content-Range: " + region.contentRange(content.length()) + "\r\n\r\n");
+            content.copyTo(out, region.start(), region.count());
+        }
+        write(out, "\r\n--" + boundary + "--\r\n");
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
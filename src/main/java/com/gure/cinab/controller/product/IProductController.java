@@ -2,9 +2,17 @@ package com.gure.cinab.controller.product;
 
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFilter;
 import com.gure.cinab.request.ProductUpdateRequest;
 import com.gure.cinab.response.ApiResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
 
 /**
  * The interface defining the contract for handling product-related HTTP operations.
@@ -21,21 +29,85 @@ import org.springframework.http.ResponseEntity;
 public interface IProductController {
 
     /**
-     * Retrieve all products.
+     * Retrieve one page of all products, sorted by ID.
+     * <p>
+     * Uses keyset pagination: the response carries an opaque {@code nextCursor} that is passed back
+     * as {@code after} to get the next page, so deep pages cost the same as the first one.
+     * </p>
+     * <p>
+     * Responses carry a weak {@code ETag} that changes whenever any product is added, changed or
+     * deleted. A request with a matching {@code If-None-Match} gets {@code 304 Not Modified} without
+     * the page being loaded.
+     * </p>
+     * <p>
+     * A {@code fields} parameter such as {@code name,price,images} limits the returned fields, and
+     * only their columns are read; the image query is skipped unless {@code images} is requested.
+     * </p>
+     *
+     * @param after      the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit      the maximum number of products in the page.
+     * @param fields     the comma separated fields to return, or {@code null} for all of them.
+     * @param webRequest the current request, used to evaluate its conditional headers.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the page of products and the next cursor.
+     */
+    ResponseEntity<ApiResponse> getAllProducts(String after, int limit, String fields, WebRequest webRequest);
+
+    /**
+     * Search products by free text over their name, brand and description.
+     * <p>
+     * Matching is case-insensitive and token based; results are ranked by relevance and served
+     * from an in-memory index without querying the database.
+     * </p>
+     *
+     * @param q     the search query; must not be blank.
+     * @param limit the maximum number of results.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the ranked search hits.
+     */
+    ResponseEntity<ApiResponse> searchProducts(String q, int limit);
+
+    /**
+     * Browse products by any combination of brands and categories, with facet counts.
+     * <p>
+     * Several values of the same filter are OR-ed, different filters are AND-ed. Besides the page of
+     * matching products, the response holds the number of products per brand (ignoring the brand
+     * filter) and per category (ignoring the category filter).
+     * </p>
+     *
+     * @param brand    the brands to keep; may be null or empty for all brands.
+     * @param category the categories to keep; may be null or empty for all categories.
+     * @param after    the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit    the maximum number of products in the page.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the matching products and the facet counts.
+     */
+    ResponseEntity<ApiResponse> getProductFacets(List<String> brand, List<String> category, String after, int limit);
+
+    /**
+     * Export the whole catalog as newline-delimited JSON ({@code application/x-ndjson}).
+     * <p>
+     * The products are streamed to the client as they are read from the database, so memory use
+     * on the server does not grow with the size of the catalog.
+     * </p>
      *
-     * @return a {@link ResponseEntity<ApiResponse>} containing a list of all products.
+     * @return a {@link ResponseEntity<StreamingResponseBody>} writing one product per line.
      */
-    ResponseEntity<ApiResponse> getAllProducts();
+    ResponseEntity<StreamingResponseBody> exportProducts();
 
     /**
      * Retrieve a product by its unique ID.
+     * <p>
+     * Responses carry a weak {@code ETag} built from the product version and a {@code Last-Modified}
+     * header. A request with a matching {@code If-None-Match} or {@code If-Modified-Since} gets
+     * {@code 304 Not Modified} without a body.
+     * </p>
      *
-     * @param productId the unique ID of the product to retrieve; must not be null.
+     * @param productId  the unique ID of the product to retrieve; must not be null.
+     * @param fields     the comma separated fields to return, or {@code null} for all of them.
+     * @param webRequest the current request, used to evaluate its conditional headers.
      * @return a {@link ResponseEntity<ApiResponse>} containing the product details
      * or an error message if not found.
      * @throws ResourceNotFoundException if no product with the specified ID exists.
      */
-    ResponseEntity<ApiResponse> getProductById(Long productId);
+    ResponseEntity<ApiResponse> getProductById(Long productId, String fields, WebRequest webRequest);
 
     /**
      * Add a new product to the system.
@@ -45,6 +117,20 @@ public interface IProductController {
      */
     ResponseEntity<ApiResponse> addProduct(AddProductRequest newProduct);
 
+    /**
+     * Import products in bulk from a CSV ({@code text/csv}) or NDJSON ({@code application/x-ndjson}) upload.
+     * <p>
+     * Each row is a product with the fields {@code name}, {@code brand}, {@code price}, {@code inventory},
+     * {@code description} and {@code category}; CSV uploads start with a header row. Missing categories
+     * are created. Invalid rows are skipped and listed in the response, the other rows are imported.
+     * </p>
+     *
+     * @param contentType the content type of the upload, selecting the format.
+     * @param body        the uploaded file.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the number of imported products and the rejected rows.
+     */
+    ResponseEntity<ApiResponse> importProducts(MediaType contentType, InputStream body);
+
     /**
      * Update an existing product's information.
      *
@@ -64,52 +150,93 @@ public interface IProductController {
      */
     ResponseEntity<ApiResponse> deleteProduct(Long productId);
 
+    /**
+     * Apply the same changes to every product matching a filter, e.g. reprice a brand.
+     * <p>
+     * Prices and inventories can be set or changed relative to their current values. The products are
+     * updated with set-based SQL, in one transaction.
+     * </p>
+     *
+     * @param request the filter (IDs, brand and/or category) and the changes, provided in a {@link BulkProductUpdateRequest}.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the number of updated products.
+     */
+    ResponseEntity<ApiResponse> bulkUpdateProducts(BulkProductUpdateRequest request);
+
+    /**
+     * Delete every product matching a filter, along with their images, e.g. retire a category.
+     * <p>
+     * The filter is given as the query parameters {@code ids}, {@code brand} and {@code category};
+     * at least one is required.
+     * </p>
+     *
+     * @param filter the filter selecting the products to delete.
+     * @return a {@link ResponseEntity<ApiResponse>} containing the number of deleted products.
+     */
+    ResponseEntity<ApiResponse> bulkDeleteProducts(ProductFilter filter);
+
     /**
      * Retrieve a product by its brand name and category name.
      *
      * @param categoryName the category name; must not be null or empty.
      * @param brandName    the brand name of the product; must not be null or empty.
-     * @return a {@link ResponseEntity<ApiResponse>} containing the product details or error message if not found.
+     * @param after        the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit        the maximum number of products in the page.
+     * @param fields       the comma separated fields to return, or {@code null} for all of them.
+     * @return a {@link ResponseEntity<ApiResponse>} containing a page of product details or error message if not found.
      * @throws ResourceNotFoundException if no product matching the brand and category is found.
      */
-    ResponseEntity<ApiResponse> getProductByCategoryAndBrand(String categoryName, String brandName);
+    ResponseEntity<ApiResponse> getProductByCategoryAndBrand(String categoryName, String brandName, String after, int limit,
+                                                             String fields);
 
     /**
      * Retrieve a product by its brand name and product name.
      *
      * @param brandName   the brand name of the product; must not be null or empty.
      * @param productName the product name; must not be null or empty.
-     * @return a {@link ResponseEntity<ApiResponse>} containing the product details or error message if not found.
+     * @param after       the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit       the maximum number of products in the page.
+     * @param fields      the comma separated fields to return, or {@code null} for all of them.
+     * @return a {@link ResponseEntity<ApiResponse>} containing a page of product details or error message if not found.
      * @throws ResourceNotFoundException if no product matching the brand and name is found.
      */
-    ResponseEntity<ApiResponse> getProductByBrandAndName(String brandName, String productName);
+    ResponseEntity<ApiResponse> getProductByBrandAndName(String brandName, String productName, String after, int limit,
+                                                         String fields);
 
     /**
      * Retrieve products that belong to a specific category.
      *
      * @param category the category name; must not be null or empty.
-     * @return a {@link ResponseEntity<ApiResponse>} containing the products that belong to the specified category.
+     * @param after    the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit    the maximum number of products in the page.
+     * @param fields   the comma separated fields to return, or {@code null} for all of them.
+     * @return a {@link ResponseEntity<ApiResponse>} containing a page of the products that belong to the specified category.
      * @throws ResourceNotFoundException if no products are found in the specified category.
      */
-    ResponseEntity<ApiResponse> getProductsByCategory(String category);
+    ResponseEntity<ApiResponse> getProductsByCategory(String category, String after, int limit, String fields);
 
     /**
      * Retrieve a product by its name.
      *
-     * @param name the name of the product; must not be null or empty.
-     * @return a {@link ResponseEntity<ApiResponse>} containing the product details or error message if not found.
+     * @param name   the name of the product; must not be null or empty.
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit  the maximum number of products in the page.
+     * @param fields the comma separated fields to return, or {@code null} for all of them.
+     * @return a {@link ResponseEntity<ApiResponse>} containing a page of product details or error message if not found.
      * @throws ResourceNotFoundException if no product with the specified name exists.
      */
-    ResponseEntity<ApiResponse> getProductByName(String name);
+    ResponseEntity<ApiResponse> getProductByName(String name, String after, int limit, String fields);
 
     /**
      * Retrieve products by their brand name.
      *
-     * @param brand the brand name; must not be null or empty.
-     * @return a {@link ResponseEntity<ApiResponse>} containing a list of products from the specified brand.
+     * @param brand  the brand name; must not be null or empty.
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit  the maximum number of products in the page.
+     * @param fields the comma separated fields to return, or {@code null} for all of them.
+     * @return a {@link ResponseEntity<ApiResponse>} containing a page of products from the specified brand.
      * @throws ResourceNotFoundException if no products from the specified brand exist.
      */
-    ResponseEntity<ApiResponse> getProductByBrand(String brand);
+    ResponseEntity<ApiResponse> getProductByBrand(String brand, String after, int limit, String fields);
 
     /**
      * Count the number of products that match a specific brand and name.
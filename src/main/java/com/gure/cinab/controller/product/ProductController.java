@@ -1,24 +1,47 @@
 package com.gure.cinab.controller.product;
 
+import com.gure.cinab.dto.CursorPageDTO;
 import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.dto.ProductFacetsDTO;
+import com.gure.cinab.dto.ProductImportReportDTO;
+import com.gure.cinab.dto.ProductSearchHitDTO;
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.model.Product;
 import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFields;
+import com.gure.cinab.request.ProductFilter;
 import com.gure.cinab.request.ProductUpdateRequest;
 import com.gure.cinab.response.ApiResponse;
+import com.gure.cinab.service.facet.IProductFacetService;
+import com.gure.cinab.service.product.IProductImportService;
 import com.gure.cinab.service.product.IProductService;
+import com.gure.cinab.service.product.ProductCursor;
+import com.gure.cinab.service.product.ProductImportFormat;
+import com.gure.cinab.service.search.IProductSearchService;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @RestController
 @AllArgsConstructor
@@ -28,16 +51,31 @@ public class ProductController implements IProductController {
 
 
     private final IProductService productService;  // Injecting the product service
+    private final IProductSearchService productSearchService;  // Injecting the search service
+    private final IProductFacetService productFacetService;  // Injecting the facet service
+    private final IProductImportService productImportService;  // Injecting the import service
 
     @Override
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse> getAllProducts() {
+    public ResponseEntity<ApiResponse> getAllProducts(@RequestParam(required = false) String after,
+                                                      @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                      @RequestParam(name = ProductFields.PARAMETER, required = false) String fields,
+                                                      WebRequest webRequest) {
         try {
-            List<Product> productsList = productService.getAllProducts();  // Fetching all products
-            List<ProductDTO> convertedProducts = productService.getConvertedProducts(productsList);  // Fetching all products
+            // Validate the client's copy against the cached collection version before loading the page
+            String eTag = productService.getProductsVersion().eTag();
+            if (webRequest.checkNotModified(eTag)) {
+                return ResponseEntity.status(NOT_MODIFIED).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build();
+            }
+            CursorPageDTO<ProductDTO> convertedProducts = productService.getAllProducts(after, limit, ProductFields.parse(fields));  // Fetching one page of products
+            // The encoding (JSON, CBOR or Smile) is negotiated from the Accept header
             return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
                     .body(new ApiResponse("Found products!", convertedProducts));  // Successful response
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Malformed cursor, limit or fields
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));  // Handling error if products not found
         } catch (Exception e) {
@@ -46,13 +84,66 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse> searchProducts(@RequestParam String q,
+                                                     @RequestParam(defaultValue = IProductSearchService.DEFAULT_LIMIT) int limit) {
+        try {
+            // Answered from the in-memory index, no database access
+            List<ProductSearchHitDTO> hits = productSearchService.search(q, limit);
+            return ResponseEntity.ok(new ApiResponse("Found " + hits.size() + " products", hits));  // Successful response
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Blank query or bad limit
+        }
+    }
+
+    @Override
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse> getProductFacets(@RequestParam(required = false) List<String> brand,
+                                                        @RequestParam(required = false) List<String> category,
+                                                        @RequestParam(required = false) String after,
+                                                        @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit) {
+        try {
+            // Matching products plus per-brand and per-category counts, computed from bitmaps
+            ProductFacetsDTO facets = productFacetService.getFacets(brand, category, after, limit);
+            return ResponseEntity.ok(new ApiResponse("Success!", facets));  // Successful response
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Malformed cursor or limit
+        }
+    }
+
+    @Override
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        // The body is written after this method returns, one product per line, so the whole
+        // catalog never has to be held in memory
+        StreamingResponseBody body = productService::exportCatalog;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @Override
     @GetMapping("product/{productId}")
-    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId) {
+    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId,
+                                                      @RequestParam(name = ProductFields.PARAMETER, required = false) String fields,
+                                                      WebRequest webRequest) {
         try {
-            Product theProduct = productService.getProductById(productId);
-            ProductDTO convertedProduct = productService.convertToDTO(theProduct); // Fetching product by ID
-            return ResponseEntity.ok(new ApiResponse("Success! ", convertedProduct));  // Successful response
+            ProductFields.parse(fields);  // Rejecting unknown fields; the cached product is filtered on output
+            ProductDTO convertedProduct = productService.getProductDTOById(productId); // Fetching product by ID, usually from the cache
+            // Weak, because JSON, CBOR and Smile representations of one version share the tag
+            String eTag = "W/\"" + convertedProduct.getId() + "-" + convertedProduct.getVersion() + "\"";
+            long lastModified = convertedProduct.getUpdatedAt() == null ? -1 : convertedProduct.getUpdatedAt().toEpochMilli();
+            if (webRequest.checkNotModified(eTag, lastModified)) {
+                // Nothing is serialized for an unchanged product
+                return ResponseEntity.status(NOT_MODIFIED).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(new ApiResponse("Success! ", convertedProduct));  // Successful response
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Unknown field requested
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));  // Handling error if product not found
         } catch (Exception e) {
@@ -71,6 +162,20 @@ public class ProductController implements IProductController {
         }
     }
 
+    @Override
+    @PostMapping(value = "/import", consumes = {ProductImportFormat.TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ApiResponse> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                      InputStream body) {
+        try {
+            // The upload is read as a stream and inserted in batches
+            ProductImportReportDTO report = productImportService.importProducts(body, ProductImportFormat.of(contentType));
+            return ResponseEntity.ok(new ApiResponse("Imported " + report.getImported() + " products, "
+                    + report.getFailed() + " rows rejected", report));  // Rejected rows are listed in the report
+        } catch (IOException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse("Unreadable import: " + e.getMessage(), null));  // Broken upload
+        }
+    }
+
     @Override
     @PutMapping("/product/{productId}/update")
     public ResponseEntity<ApiResponse> updateProduct(@PathVariable Long productId, @RequestBody ProductUpdateRequest product) {
@@ -83,6 +188,9 @@ public class ProductController implements IProductController {
         } catch (ResourceNotFoundException e) {
             // Handling cases where the product is not found
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));  // Error response if product not found
+        } catch (OptimisticLockingFailureException e) {
+            // Another request changed the product at the same time
+            return ResponseEntity.status(CONFLICT).body(new ApiResponse("The product was changed concurrently, please retry", null));
         }
     }
 
@@ -101,19 +209,49 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
+    @PatchMapping("/bulk")
+    public ResponseEntity<ApiResponse> bulkUpdateProducts(@RequestBody BulkProductUpdateRequest request) {
+        try {
+            // One UPDATE per chunk of matching products instead of one request per product
+            int updated = productService.bulkUpdateProducts(request);
+            return ResponseEntity.ok(new ApiResponse("Updated " + updated + " products", updated));  // Successful update
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Missing filter or conflicting changes
+        }
+    }
+
+    @Override
+    @DeleteMapping("/bulk")
+    public ResponseEntity<ApiResponse> bulkDeleteProducts(ProductFilter filter) {
+        try {
+            int deleted = productService.bulkDeleteProducts(filter);
+            return ResponseEntity.ok(new ApiResponse("Deleted " + deleted + " products", deleted));  // Successful deletion
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Missing filter
+        } catch (DataIntegrityViolationException e) {
+            // Nothing was deleted, the transaction rolled back as a whole
+            return ResponseEntity.status(CONFLICT).body(new ApiResponse("Some of the products are still referenced, e.g. by carts", null));
+        }
+    }
+
+    @Override
     @GetMapping("/products/by/brand-and-name")
-    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName) {
+    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                                @RequestParam(name = ProductFields.PARAMETER, required = false) String fields) {
         try {
             // Fetch products based on both brand and name
-            List<Product> products = productService.getProductsByBrandAndName(brandName, productName);
-            if (products.isEmpty()) {
+            CursorPageDTO<ProductDTO> products = productService.getProductsByBrandAndName(brandName, productName, after, limit,
+                    ProductFields.parse(fields));
+            if (products.getItems().isEmpty()) {
                 // Handling cases where no products are found for the given brand and name
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));  // Error response
             }
-            List<ProductDTO> convertedProduct = productService.getConvertedProducts(products);
-
-            return ResponseEntity.ok(new ApiResponse("Success!", convertedProduct));  // Successful response
+            return ResponseEntity.ok(new ApiResponse("Success!", products));  // Successful response
+        } catch (IllegalArgumentException e) {
+            // Handling malformed cursors, page sizes or fields
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Error response
         } catch (Exception e) {
             // Handling other random error cases
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));  // Generic error handling
@@ -121,18 +259,23 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
     @GetMapping("/products/by/category-and-brand")
-    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand) {
+    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand,
+                                                                    @RequestParam(required = false) String after,
+                                                                    @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                                    @RequestParam(name = ProductFields.PARAMETER, required = false) String fields) {
         try {
             // Fetch products based on both brand and category
-            List<Product> products = productService.getProductsByCategoryAndBrand(category, brand);
-            if (products.isEmpty()) {
+            CursorPageDTO<ProductDTO> products = productService.getProductsByCategoryAndBrand(category, brand, after, limit,
+                    ProductFields.parse(fields));
+            if (products.getItems().isEmpty()) {
                 // Handling cases where no products are found for the given brand and name
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));  // Error response
             }
-            List<ProductDTO> convertedProduct = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("Success!", convertedProduct));  // Successful response
+            return ResponseEntity.ok(new ApiResponse("Success!", products));  // Successful response
+        } catch (IllegalArgumentException e) {
+            // Handling malformed cursors, page sizes or fields
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Error response
         } catch (Exception e) {
             // Handling other random error cases
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));  // Generic error handling
@@ -140,19 +283,22 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
     @GetMapping("/products/{name}/products")
-    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name) {
+    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name,
+                                                        @RequestParam(required = false) String after,
+                                                        @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                        @RequestParam(name = ProductFields.PARAMETER, required = false) String fields) {
         try {
             // Fetch products based on product name
-            List<Product> products = productService.getProductsByName(name);
-            if (products.isEmpty()) {
+            CursorPageDTO<ProductDTO> products = productService.getProductsByName(name, after, limit, ProductFields.parse(fields));
+            if (products.getItems().isEmpty()) {
                 // Handling cases where no products are found by name
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found!", null));  // Error response
             }
-            List<ProductDTO> convertedProduct = productService.getConvertedProducts(products);
-
-            return ResponseEntity.ok(new ApiResponse("Success!", convertedProduct));  // Successful response
+            return ResponseEntity.ok(new ApiResponse("Success!", products));  // Successful response
+        } catch (IllegalArgumentException e) {
+            // Handling malformed cursors, page sizes or fields
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Error response
         } catch (Exception e) {
             // Handling other random error cases
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));  // Generic error handling
@@ -160,19 +306,22 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
     @GetMapping("/by-brand")
-    public ResponseEntity<ApiResponse> getProductByBrand(@RequestParam String brand) {
+    public ResponseEntity<ApiResponse> getProductByBrand(@RequestParam String brand,
+                                                         @RequestParam(required = false) String after,
+                                                         @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                         @RequestParam(name = ProductFields.PARAMETER, required = false) String fields) {
         try {
             // Fetch products based on brand
-            List<Product> products = productService.getProductsByBrand(brand);
-            if (products.isEmpty()) {
+            CursorPageDTO<ProductDTO> products = productService.getProductsByBrand(brand, after, limit, ProductFields.parse(fields));
+            if (products.getItems().isEmpty()) {
                 // Handling cases where no products are found for the given brand
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));  // Error response
             }
-            List<ProductDTO> convertedProduct = productService.getConvertedProducts(products);
-
-            return ResponseEntity.ok(new ApiResponse("Success!", convertedProduct));  // Successful response
+            return ResponseEntity.ok(new ApiResponse("Success!", products));  // Successful response
+        } catch (IllegalArgumentException e) {
+            // Handling malformed cursors, page sizes or fields
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Error response
         } catch (Exception e) {
             // Handling other random error cases
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));  // Generic error handling
@@ -180,7 +329,7 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @GetMapping("/products/count/by-brand/and-name")
     public ResponseEntity<ApiResponse> countProductsByBrandAndName(@RequestParam String brand, @RequestParam String name) {
         try {
@@ -192,19 +341,22 @@ public class ProductController implements IProductController {
     }
 
     @Override
-    @Transactional
     @GetMapping("/products/{category}/all/products")
-    public ResponseEntity<ApiResponse> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<ApiResponse> getProductsByCategory(@PathVariable String category,
+                                                             @RequestParam(required = false) String after,
+                                                             @RequestParam(defaultValue = ProductCursor.DEFAULT_LIMIT) int limit,
+                                                             @RequestParam(name = ProductFields.PARAMETER, required = false) String fields) {
         try {
             // Fetch products based on category
-            List<Product> products = productService.getProductsByCategory(category);
-            if (products.isEmpty()) {
+            CursorPageDTO<ProductDTO> products = productService.getProductsByCategory(category, after, limit, ProductFields.parse(fields));
+            if (products.getItems().isEmpty()) {
                 // Handling cases where no products are found for the given category
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No product found!", null));  // Error response
             }
-            List<ProductDTO> convertedProduct = productService.getConvertedProducts(products);
-
-            return ResponseEntity.ok(new ApiResponse("Success!", convertedProduct));  // Successful response
+            return ResponseEntity.ok(new ApiResponse("Success!", products));  // Successful response
+        } catch (IllegalArgumentException e) {
+            // Handling malformed cursors, page sizes or fields
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));  // Error response
         } catch (Exception e) {
             // Handling error if products are not found for category
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));  // Error response
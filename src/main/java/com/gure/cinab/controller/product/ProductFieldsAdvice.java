@@ -0,0 +1,43 @@
+package com.gure.cinab.controller.product;
+
+import com.gure.cinab.request.ProductFields;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Applies the sparse fieldset of the {@code fields} query parameter to the serialized products.
+ * <p>
+ * The controller has already used the fieldset to narrow the query; this advice makes sure only the
+ * requested properties are written, whatever the negotiated Jackson encoding. Unknown fields were
+ * rejected by the controller, so such responses are written unfiltered.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@RestControllerAdvice(assignableTypes = ProductController.class)
+public class ProductFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        String fields = servletRequest.getServletRequest().getParameter(ProductFields.PARAMETER);
+        if (fields == null) {
+            return;
+        }
+        try {
+            bodyContainer.setFilters(ProductFields.parse(fields).filterProvider());
+        } catch (IllegalArgumentException e) {
+            // The error response carries no products
+        }
+    }
+}
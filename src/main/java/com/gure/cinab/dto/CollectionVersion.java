@@ -0,0 +1,34 @@
+package com.gure.cinab.dto;
+
+import java.time.Instant;
+
+/**
+ * Aggregate state of a collection of versioned entities, used to validate cached listings.
+ * <p>
+ * Adding an entity changes the count and the latest update time, changing one increments the
+ * version sum and removing one decrements the count, so any committed change to the collection
+ * yields a different entity tag. Reading it is a single aggregate query, much cheaper than loading
+ * and serializing the listing.
+ * </p>
+ *
+ * @param count        the number of entities
+ * @param versionSum   the sum of the entity versions
+ * @param lastModified when the most recently changed entity changed, or {@code null} if there are none
+ * @since 1.1.0
+ */
+public record CollectionVersion(long count, long versionSum, Instant lastModified) {
+
+    /**
+     * Builds the weak entity tag of the collection.
+     * <p>
+     * Weak, because equal tags only mean the underlying rows are unchanged, not that the responses
+     * are byte for byte identical.
+     * </p>
+     *
+     * @return the entity tag, e.g. {@code W/"42-97-1718000000000"}
+     */
+    public String eTag() {
+        long lastModifiedMillis = lastModified == null ? 0 : lastModified.toEpochMilli();
+        return "W/\"" + count + "-" + versionSum + "-" + lastModifiedMillis + "\"";
+    }
+}
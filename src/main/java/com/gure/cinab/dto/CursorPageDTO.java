@@ -0,0 +1,33 @@
+package com.gure.cinab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of a keyset (cursor) paginated listing.
+ * <p>
+ * The {@code nextCursor} is an opaque token that the client passes back as the {@code after}
+ * request parameter to fetch the following page. It is {@code null} on the last page.
+ * </p>
+ *
+ * @param <T> the type of the items in the page
+ * @since 1.1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    /**
+     * The items of the current page, in ascending key order.
+     */
+    private List<T> items;
+
+    /**
+     * The cursor pointing after the last item of this page, or {@code null} if there are no more items.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,26 @@
+package com.gure.cinab.dto;
+
+import com.gure.cinab.model.ImageSize;
+
+/**
+ * What a download of an image needs before its content is written: the headers of the response.
+ *
+ * @param id          the ID of the image
+ * @param fileName    the name of the image file
+ * @param fileType    the media type of the image
+ * @param length      the size of the image content in bytes
+ * @param contentHash the hex SHA-256 of the image content, or {@code null} if it was never computed
+ * @param version     the content hash of the original image, which versioned download URLs name
+ * @param variant     the variant whose content this is, or {@code null} for the original
+ * @since 1.1.0
+ */
+public record ImageDownload(Long id, String fileName, String fileType, long length, String contentHash,
+                            String version, ImageSize variant) {
+
+    /**
+     * @return the strong entity tag of the image content, or {@code null} if it has no content hash
+     */
+    public String eTag() {
+        return contentHash == null ? null : "\"" + contentHash + "\"";
+    }
+}
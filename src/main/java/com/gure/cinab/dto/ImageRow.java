@@ -0,0 +1,13 @@
+package com.gure.cinab.dto;
+
+/**
+ * Read-only projection of an image's metadata, without the binary content.
+ *
+ * @param id          the ID of the image
+ * @param fileName    the name of the image file
+ * @param downloadUrl the URL used to download the image
+ * @param productId   the ID of the product the image belongs to
+ * @since 1.1.0
+ */
+public record ImageRow(Long id, String fileName, String downloadUrl, Long productId) {
+}
@@ -0,0 +1,47 @@
+package com.gure.cinab.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) reporting how much storage the deduplication of image content saves.
+ *
+ * @since 1.1.0
+ */
+@Data
+@NoArgsConstructor
+public class ImageStorageReportDTO {
+
+    /**
+     * The number of distinct contents in the image storage.
+     */
+    private long files;
+
+    /**
+     * The number of images referencing them.
+     */
+    private long images;
+
+    /**
+     * The bytes actually stored, each content once.
+     */
+    private long storedBytes;
+
+    /**
+     * The bytes that storing every image's content separately would take.
+     */
+    private long referencedBytes;
+
+    /**
+     * The bytes saved by storing identical content once.
+     */
+    private long savedBytes;
+
+    public ImageStorageReportDTO(long files, long images, long storedBytes, long referencedBytes) {
+        this.files = files;
+        this.images = images;
+        this.storedBytes = storedBytes;
+        this.referencedBytes = referencedBytes;
+        this.savedBytes = referencedBytes - storedBytes;
+    }
+}
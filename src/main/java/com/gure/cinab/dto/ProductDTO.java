@@ -1,10 +1,12 @@
 package com.gure.cinab.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gure.cinab.model.Category;
 import lombok.Data;
 
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -18,4 +20,16 @@ public class ProductDTO {
     private String description;
     private Category category;
     private List<ImageDTO> images;
+
+    /**
+     * The version of the product, used to build its entity tag; not part of the JSON representation.
+     */
+    @JsonIgnore
+    private long version;
+
+    /**
+     * When the product last changed, sent as {@code Last-Modified}; not part of the JSON representation.
+     */
+    @JsonIgnore
+    private Instant updatedAt;
 }
@@ -0,0 +1,44 @@
+package com.gure.cinab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for a faceted browse result.
+ * <p>
+ * Holds one page of the matching products together with the number of matching products per
+ * brand and per category. The brand counts apply every filter except the brand filter, and the
+ * category counts every filter except the category filter, so a storefront sidebar can show how
+ * many products each option would give.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+
+    /**
+     * The page of matching products.
+     */
+    private CursorPageDTO<ProductDTO> products;
+
+    /**
+     * The total number of matching products.
+     */
+    private int total;
+
+    /**
+     * The number of products per brand, sorted by brand.
+     */
+    private Map<String, Integer> brands;
+
+    /**
+     * The number of products per category, sorted by category name.
+     */
+    private Map<String, Integer> categories;
+}
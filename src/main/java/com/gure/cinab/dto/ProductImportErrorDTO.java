@@ -0,0 +1,26 @@
+package com.gure.cinab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for a row that could not be imported by the bulk product import.
+ *
+ * @since 1.1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportErrorDTO {
+
+    /**
+     * The 1-based number of the row in the imported file, not counting the CSV header.
+     */
+    private long row;
+
+    /**
+     * Why the row was rejected.
+     */
+    private String message;
+}
@@ -0,0 +1,35 @@
+package com.gure.cinab.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) summarizing a bulk product import.
+ * <p>
+ * Rows are imported independently of each other: a rejected row is reported in {@code errors}
+ * and does not prevent the other rows from being imported.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Data
+public class ProductImportReportDTO {
+
+    /**
+     * The number of products that were imported.
+     */
+    private int imported;
+
+    /**
+     * The number of rows that were rejected.
+     */
+    private int failed;
+
+    /**
+     * The rejected rows, in file order. Only the first errors are listed for very large files;
+     * {@code failed} always holds the full count.
+     */
+    private List<ProductImportErrorDTO> errors = new ArrayList<>();
+}
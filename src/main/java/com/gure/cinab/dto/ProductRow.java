@@ -0,0 +1,48 @@
+package com.gure.cinab.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Read-only projection of a product row, selected directly by the catalog listing queries.
+ * <p>
+ * Carries exactly the columns needed to build a {@link ProductDTO}, including the category name,
+ * so listings never hydrate managed {@code Product} or {@code Category} entities. Rows read from
+ * the {@code product_view} read model also carry the images; rows read from the {@code product}
+ * table leave them {@code null}.
+ * </p>
+ *
+ * @param id           the ID of the product
+ * @param name         the name of the product
+ * @param brand        the brand of the product
+ * @param price        the price of the product
+ * @param inventory    the number of units in stock
+ * @param description  the description of the product
+ * @param categoryId   the ID of the product's category, or {@code null} if it has none
+ * @param categoryName the name of the product's category, or {@code null} if it has none
+ * @param version      the version of the product
+ * @param updatedAt    when the product last changed
+ * @param images       the images of the product, or {@code null} if they were not read
+ * @since 1.1.0
+ */
+public record ProductRow(Long id,
+                         String name,
+                         String brand,
+                         BigDecimal price,
+                         int inventory,
+                         String description,
+                         Long categoryId,
+                         String categoryName,
+                         long version,
+                         Instant updatedAt,
+                         List<ImageDTO> images) {
+
+    /**
+     * Creates a row without images.
+     */
+    public ProductRow(Long id, String name, String brand, BigDecimal price, int inventory, String description,
+                      Long categoryId, String categoryName, long version, Instant updatedAt) {
+        this(id, name, brand, price, inventory, description, categoryId, categoryName, version, updatedAt, null);
+    }
+}
@@ -0,0 +1,47 @@
+package com.gure.cinab.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) for one result of a product search.
+ * <p>
+ * Carries the fields kept in the in-memory search index, so search results can be returned
+ * without querying the database. The full product is available through its ID.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHitDTO {
+
+    /**
+     * The unique identifier of the product.
+     */
+    private long id;
+
+    /**
+     * The name of the product.
+     */
+    private String name;
+
+    /**
+     * The brand of the product.
+     */
+    private String brand;
+
+    /**
+     * The price of the product.
+     */
+    private BigDecimal price;
+
+    /**
+     * The relevance of the product for the query, higher is better.
+     */
+    private float score;
+}
@@ -0,0 +1,14 @@
+package com.gure.cinab.event;
+
+/**
+ * Published by the category service whenever a category is renamed or deleted.
+ * <p>
+ * Listeners that keep derived state keyed by category name react to it with
+ * {@code @TransactionalEventListener}, so they only see changes that were actually committed.
+ * </p>
+ *
+ * @param categoryId the ID of the category that changed
+ * @since 1.1.0
+ */
+public record CategoryChangedEvent(Long categoryId) {
+}
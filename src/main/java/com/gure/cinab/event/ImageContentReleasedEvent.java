@@ -0,0 +1,14 @@
+package com.gure.cinab.event;
+
+import java.util.Collection;
+
+/**
+ * Published when images stop referencing content in the image storage, because they were deleted
+ * or given new content. Content that is no longer referenced by any image is deleted once the
+ * transaction commits.
+ *
+ * @param hashes the hashes of the released content
+ * @since 1.1.0
+ */
+public record ImageContentReleasedEvent(Collection<String> hashes) {
+}
@@ -0,0 +1,12 @@
+package com.gure.cinab.event;
+
+/**
+ * Published when content is written to the image storage and referenced. If the transaction rolls
+ * back, the reference goes with it and the content is deleted unless another image references it.
+ *
+ * @param hash   the hash of the stored content
+ * @param length the size of the stored content
+ * @since 1.1.0
+ */
+public record ImageContentStoredEvent(String hash, long length) {
+}
@@ -0,0 +1,28 @@
+package com.gure.cinab.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by the write paths of the product and image services whenever products, or the
+ * images attached to them, are added, updated or deleted.
+ * <p>
+ * Listeners that keep derived state (such as caches) react to it with
+ * {@code @TransactionalEventListener}, so they only see changes that were actually committed.
+ * </p>
+ *
+ * @param productIds the IDs of the products that changed
+ * @since 1.1.0
+ */
+public record ProductChangedEvent(Collection<Long> productIds) {
+
+    /**
+     * Creates an event for a single product.
+     *
+     * @param productId the ID of the product that changed
+     * @return the event
+     */
+    public static ProductChangedEvent of(Long productId) {
+        return new ProductChangedEvent(List.of(productId));
+    }
+}
@@ -0,0 +1,121 @@
+package com.gure.cinab.mapper;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageRow;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Maps product and image entities to their DTOs.
+ * <p>
+ * Hand-written replacement for the reflective {@code ModelMapper} on the catalog read path: plain
+ * getter/setter calls with no type-map lookups or reflection per object. The output is the same
+ * as what the ModelMapper configuration produced, including a detached copy of the category.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Component
+public class ProductMapper {
+
+    /**
+     * Maps a product to its DTO and attaches the already converted images.
+     * <p>
+     * The lazy {@code Product.images} collection is never touched; images are loaded in batches by the caller.
+     * </p>
+     *
+     * @param product   the product to be converted
+     * @param imageDTOs the images of the product, already converted to DTOs
+     * @return the converted product as a DTO
+     */
+    public ProductDTO toDTO(Product product, List<ImageDTO> imageDTOs) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setId(product.getId());
+        productDTO.setName(product.getName());
+        productDTO.setBrand(product.getBrand());
+        productDTO.setPrice(product.getPrice());
+        productDTO.setInventory(product.getInventory());
+        productDTO.setDescription(product.getDescription());
+        productDTO.setCategory(copyOf(product.getCategory()));
+        productDTO.setImages(imageDTOs);
+        productDTO.setVersion(product.getVersion());
+        productDTO.setUpdatedAt(product.getUpdatedAt());
+        return productDTO;
+    }
+
+    /**
+     * Maps a product projection to its DTO and attaches the already converted images.
+     *
+     * @param row       the product row selected by a projection query
+     * @param imageDTOs the images of the product, already converted to DTOs
+     * @return the converted product as a DTO
+     */
+    public ProductDTO toDTO(ProductRow row, List<ImageDTO> imageDTOs) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setId(row.id());
+        productDTO.setName(row.name());
+        productDTO.setBrand(row.brand());
+        productDTO.setPrice(row.price());
+        productDTO.setInventory(row.inventory());
+        productDTO.setDescription(row.description());
+        productDTO.setCategory(category(row.categoryId(), row.categoryName()));
+        productDTO.setImages(imageDTOs);
+        productDTO.setVersion(row.version());
+        productDTO.setUpdatedAt(row.updatedAt());
+        return productDTO;
+    }
+
+    /**
+     * Maps an image to its DTO, leaving out the binary content.
+     *
+     * @param image the image to be converted
+     * @return the converted image as a DTO
+     */
+    public ImageDTO toDTO(Image image) {
+        ImageDTO imageDTO = new ImageDTO();
+        imageDTO.setId(image.getId());
+        imageDTO.setFileName(image.getFileName());
+        imageDTO.setDownloadUrl(image.getDownloadUrl());
+        return imageDTO;
+    }
+
+    /**
+     * Maps an image projection to its DTO.
+     *
+     * @param row the image row selected by a projection query
+     * @return the converted image as a DTO
+     */
+    public ImageDTO toDTO(ImageRow row) {
+        ImageDTO imageDTO = new ImageDTO();
+        imageDTO.setId(row.id());
+        imageDTO.setFileName(row.fileName());
+        imageDTO.setDownloadUrl(row.downloadUrl());
+        return imageDTO;
+    }
+
+    /**
+     * Copies the category so the DTO does not hold on to a managed entity.
+     * The lazy list of products is left out, it is never serialized.
+     */
+    private Category copyOf(Category category) {
+        if (category == null) {
+            return null;
+        }
+        return category(category.getId(), category.getName());
+    }
+
+    private Category category(Long id, String name) {
+        if (id == null) {
+            return null;
+        }
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+}
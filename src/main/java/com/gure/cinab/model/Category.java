@@ -1,12 +1,17 @@
 package com.gure.cinab.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gure.cinab.config.HibernateCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -15,6 +20,10 @@ import java.util.List;
  * This entity is used to categorize products. It contains the category's name
  * and the list of products associated with it.
  * </p>
+ * <p>
+ * Categories are loaded with every product and rarely change, so they are kept in the
+ * second-level cache ({@code category} region). Updates go through the cache under a soft lock.
+ * </p>
  *
  * @since 1.0
  */
@@ -23,24 +32,31 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.CATEGORY_REGION)
 public class Category {
 
     /**
      * The unique identifier for the category.
      * <p>
-     * This ID is automatically generated and managed by the database.
+     * This ID is automatically generated and managed by the database. IDs are taken one at a
+     * time, as {@link com.gure.cinab.repository.CategoryRepository#insertIfAbsent(String)} also
+     * draws them from the same sequence.
      * </p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "category_seq", allocationSize = 1)
     private long id;
 
     /**
      * The name of the category.
      * <p>
      * This represents the category's name, such as "Electronics", "Furniture", etc.
+     * Category names are unique.
      * </p>
      */
+    @Column(unique = true)
     private String name;
 
     /**
@@ -54,6 +70,21 @@ public class Category {
     @OneToMany(mappedBy = "category")
     private List<Product> products;
 
+    /**
+     * The version of the category, incremented on every change.
+     * Used for optimistic locking and to derive the entity tag of the category list.
+     */
+    @Version
+    @JsonIgnore
+    private long version;
+
+    /**
+     * When the category last changed.
+     */
+    @UpdateTimestamp
+    @JsonIgnore
+    private Instant updatedAt;
+
     /**
      * Constructor to create a category with a specific name.
      * <p>
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents an image associated with a product in the system.
@@ -51,9 +53,10 @@ public class Image {
     private String fileType;
 
     /**
-     * The actual image data.
+     * The image data of images uploaded before the content moved to the image storage.
      * <p>
-     * Stored as a large object (LOB) in the database, it contains the binary data of the image.
+     * Stored as a large object (LOB) in the database until {@code ImageBlobMigrator} moves it to the
+     * image storage; {@code null} for every image whose content is in the image storage.
      * </p>
      */
     @Lob
@@ -68,6 +71,40 @@ public class Image {
      */
     private String downloadUrl;
 
+    /**
+     * The hex SHA-256 hash of the image data.
+     * <p>
+     * It changes with every new content and serves as the strong entity tag of the image download.
+     * </p>
+     */
+    private String contentHash;
+
+    /**
+     * The size of the image data in bytes, or {@code null} while the data is still stored in the database.
+     */
+    private Long contentLength;
+
+    /**
+     * The width of the image in pixels, known once its variants are generated.
+     */
+    private Integer width;
+
+    /**
+     * The height of the image in pixels, known once its variants are generated.
+     */
+    private Integer height;
+
+    /**
+     * The resized variants generated so far.
+     * <p>
+     * They are generated in the background after an upload, and only for sizes smaller than the
+     * image itself; a download asking for a missing variant gets the original.
+     * </p>
+     */
+    @ElementCollection
+    @CollectionTable(name = "image_variant", joinColumns = @JoinColumn(name = "image_id"))
+    private List<ImageVariant> variants = new ArrayList<>();
+
     /**
      * The product that this image is associated with.
      * <p>
@@ -0,0 +1,40 @@
+package com.gure.cinab.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A file in the image storage, shared by every {@link Image} with the same content.
+ * <p>
+ * The reference count is the number of images whose content is this file. It is only changed with
+ * single {@code UPDATE} statements, so concurrent uploads and deletions of the same content never
+ * lose a reference; the file is deleted once the count drops to zero.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "image_file")
+public class ImageFile {
+
+    /**
+     * The hex SHA-256 of the content, which is also the name of the file.
+     */
+    @Id
+    private String hash;
+
+    /**
+     * The size of the content in bytes.
+     */
+    private long length;
+
+    /**
+     * The number of images referencing the content.
+     */
+    private int referenceCount;
+}
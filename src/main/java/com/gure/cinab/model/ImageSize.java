@@ -0,0 +1,50 @@
+package com.gure.cinab.model;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * The resized variants generated for every image, by the length of their longer side.
+ *
+ * @since 1.1.0
+ */
+@Getter
+public enum ImageSize {
+
+    THUMB(200),
+    MEDIUM(600),
+    LARGE(1200);
+
+    /**
+     * The length in pixels of the longer side of the variant.
+     */
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Parses the value of a {@code variant} request parameter, e.g. {@code thumb}.
+     *
+     * @param value the parameter value, in any case
+     * @return the variant
+     * @throws IllegalArgumentException if there is no such variant
+     */
+    public static ImageSize parse(String value) {
+        for (ImageSize size : values()) {
+            if (size.name().equalsIgnoreCase(value.trim())) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image variant: " + value);
+    }
+
+    /**
+     * @return the value of the variant in request parameters and file names
+     */
+    public String paramValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
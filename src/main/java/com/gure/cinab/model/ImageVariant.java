@@ -0,0 +1,53 @@
+package com.gure.cinab.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A resized copy of an {@link Image}, stored in the image storage like the original.
+ *
+ * @since 1.1.0
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Embeddable
+public class ImageVariant {
+
+    /**
+     * Which of the fixed variants this is.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variant", nullable = false)
+    private ImageSize size;
+
+    /**
+     * The media type of the variant, PNG or JPEG.
+     */
+    private String fileType;
+
+    /**
+     * The hex SHA-256 of the variant's content.
+     */
+    private String contentHash;
+
+    /**
+     * The size of the variant's content in bytes.
+     */
+    private long contentLength;
+
+    /**
+     * The width of the variant in pixels.
+     */
+    private int width;
+
+    /**
+     * The height of the variant in pixels.
+     */
+    private int height;
+}
@@ -1,13 +1,19 @@
 package com.gure.cinab.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gure.cinab.config.HibernateCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -20,6 +26,11 @@ import java.util.List;
  * The class is annotated with JPA annotations for persistence to a relational database, and Lombok annotations
  * are used to generate getter, setter, and constructors.
  * </p>
+ * <p>
+ * Product entities are kept in the second-level cache ({@code product} region). A write evicts
+ * the cached entry after commit without locking it, so a concurrent load may briefly see the old
+ * state; the {@code version} still guards writes.
+ * </p>
  *
  * @since 1.0
  */
@@ -28,14 +39,18 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCacheConfig.PRODUCT_REGION)
 public class Product {
 
     /**
      * The unique identifier of the product.
      * This field is automatically generated when a new product is persisted.
+     * IDs are reserved from the sequence in blocks of 50, so bulk inserts need one sequence call per 50 products.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -73,9 +88,10 @@ public class Product {
      * The category to which the product belongs.
      * This is a many-to-one relationship, where many products can belong to one category.
      * The product's category is defined by the category associated with it.
+     * Categories are managed on their own (see {@code CategoryResolver}), so no operation cascades to them.
      */
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JsonBackReference
     @JoinColumn(name = "category_id")
     private Category category;
@@ -89,6 +105,22 @@ public class Product {
 //    @JsonIgnore
     private List<Image> images;
 
+    /**
+     * The version of the product, incremented on every change to the product or its images.
+     * Used for optimistic locking and as the product's HTTP entity tag.
+     */
+    @Version
+    @JsonIgnore
+    private long version;
+
+    /**
+     * When the product or its images last changed.
+     * Sent as the {@code Last-Modified} header of the product.
+     */
+    @UpdateTimestamp
+    @JsonIgnore
+    private Instant updatedAt;
+
     /**
      * Constructs a new Product with the specified details.
      *
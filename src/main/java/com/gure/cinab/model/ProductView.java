@@ -0,0 +1,116 @@
+package com.gure.cinab.model;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductRow;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Denormalized read model of a product: one row per product holding everything its DTO shows.
+ * <p>
+ * The category name is copied in and the image metadata is kept as a JSON array, so every catalog
+ * read is a scan of this one table without joins. Rows are rewritten from the {@link Product},
+ * {@link Category} and {@link Image} tables in the transaction that changes them, see
+ * {@code ProductViewUpdater}; nothing else writes to it.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "product_view")
+public class ProductView implements Persistable<Long> {
+
+    /**
+     * The ID of the product.
+     */
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String brand;
+
+    private BigDecimal price;
+
+    private int inventory;
+
+    private String description;
+
+    private Long categoryId;
+
+    private String categoryName;
+
+    /**
+     * The number of images of the product.
+     */
+    private int imageCount;
+
+    /**
+     * The metadata of the product's images, in ID order.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<ImageDTO> images;
+
+    /**
+     * The version of the product, copied so the read model can serve entity tags.
+     */
+    private long version;
+
+    private Instant updatedAt;
+
+    /**
+     * Whether the row still has to be inserted; the ID is assigned, not generated.
+     */
+    @Transient
+    private boolean isNew = true;
+
+    public ProductView(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Copies the current state of the product and its images.
+     *
+     * @param row    the product row read from the product and category tables
+     * @param images the images of the product
+     */
+    public void update(ProductRow row, List<ImageDTO> images) {
+        this.name = row.name();
+        this.brand = row.brand();
+        this.price = row.price();
+        this.inventory = row.inventory();
+        this.description = row.description();
+        this.categoryId = row.categoryId();
+        this.categoryName = row.categoryName();
+        this.imageCount = images.size();
+        this.images = images;
+        this.version = row.version();
+        this.updatedAt = row.updatedAt();
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
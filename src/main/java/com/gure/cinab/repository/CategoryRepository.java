@@ -1,12 +1,26 @@
 package com.gure.cinab.repository;
 
+import com.gure.cinab.config.HibernateCacheConfig;
+import com.gure.cinab.dto.CollectionVersion;
 import com.gure.cinab.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 /**
  * Repository interface for managing {@link Category} entities.
  * Provides data access methods for performing CRUD operations on {@link Category} objects.
  * Extends {@link JpaRepository} to leverage built-in JPA operations.
+ * <p>
+ * The lookups by name are cached in the {@code category-queries} region; Hibernate drops their
+ * results whenever the {@code category} table is written.
+ * </p>
  *
  * @since 1.0.0
  */
@@ -18,7 +32,49 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      * @param name the name of the category to search for
      * @return the {@link Category} entity matching the given name, or {@code null} if no such category exists
      */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.CATEGORY_QUERY_REGION)})
     Category findByName(String name);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.CATEGORY_QUERY_REGION)})
     boolean existsByName(String name);
+
+    /**
+     * Retrieves the ID of the category with the given name.
+     *
+     * @param name the name of the category
+     * @return the ID of the category, or empty if no such category exists
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.CATEGORY_QUERY_REGION)})
+    @Query("select c.id from Category c where c.name = :name")
+    Optional<Long> findIdByName(@Param("name") String name);
+
+    /**
+     * Inserts a category with the given name unless one already exists.
+     * <p>
+     * Relies on the unique constraint on {@code category.name}: when another transaction inserts
+     * the same name concurrently, this statement waits for it and then does nothing. The statement
+     * declares the {@code category} table it writes, so only the category caches are invalidated.
+     * </p>
+     *
+     * @param name the name of the category
+     * @return 1 if the category was inserted, 0 if it already existed
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category"))
+    @Query(value = "insert into category (id, name, version, updated_at) " +
+            "values (nextval('category_seq'), :name, 0, current_timestamp) " +
+            "on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+
+    /**
+     * Reads the aggregate version of all categories, to validate cached category listings.
+     *
+     * @return the number of categories, the sum of their versions and the latest update time
+     */
+    @Query("select new com.gure.cinab.dto.CollectionVersion(count(c), coalesce(sum(c.version), 0), max(c.updatedAt)) " +
+            "from Category c")
+    CollectionVersion findCollectionVersion();
 }
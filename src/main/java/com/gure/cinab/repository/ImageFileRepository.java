@@ -0,0 +1,67 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.dto.ImageStorageReportDTO;
+import com.gure.cinab.model.ImageFile;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Repository for the reference-counted {@link ImageFile} rows of the image storage.
+ *
+ * @since 1.1.0
+ */
+public interface ImageFileRepository extends JpaRepository<ImageFile, String> {
+
+    /**
+     * Records stored content without any references, unless it is already recorded.
+     *
+     * @param hash   the hash of the content
+     * @param length the size of the content
+     * @return {@code 1} if the row was inserted, {@code 0} if it already existed
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_file"))
+    @Query(value = "insert into image_file (hash, length, reference_count) values (:hash, :length, 0) " +
+            "on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("length") long length);
+
+    /**
+     * Adds to, or with a negative delta removes from, the reference count of stored content.
+     *
+     * @param hash  the hash of the content
+     * @param delta the number of references to add
+     * @return {@code 1} if the content is recorded, {@code 0} otherwise
+     */
+    @Modifying
+    @Query("update ImageFile f set f.referenceCount = f.referenceCount + :delta where f.hash = :hash")
+    int addReferences(@Param("hash") String hash, @Param("delta") int delta);
+
+    /**
+     * Loads and locks the row of stored content, so no reference can be added while the file is deleted.
+     *
+     * @param hash the hash of the content
+     * @return the locked row, if the content is recorded
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select f from ImageFile f where f.hash = :hash")
+    Optional<ImageFile> findByHashForUpdate(@Param("hash") String hash);
+
+    /**
+     * Sums up the stored content against the content the images reference.
+     *
+     * @return the storage report
+     */
+    @Query("select new com.gure.cinab.dto.ImageStorageReportDTO(count(f), coalesce(sum(f.referenceCount), 0), " +
+            "coalesce(sum(f.length), 0), coalesce(sum(f.length * f.referenceCount), 0)) " +
+            "from ImageFile f where f.referenceCount > 0")
+    ImageStorageReportDTO getStorageReport();
+}
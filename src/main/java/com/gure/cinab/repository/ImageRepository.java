@@ -1,10 +1,21 @@
 package com.gure.cinab.repository;
 
-import com.gure.cinab.model.Category;
+import com.gure.cinab.dto.ImageRow;
 import com.gure.cinab.model.Image;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing {@link Image} entities.
@@ -16,4 +27,112 @@ import java.util.List;
 public interface ImageRepository extends JpaRepository<Image, Long> {
 
     List<Image> findByProductId(long id);
+
+    /**
+     * Retrieves the image metadata of several products with a single {@code IN (...)} query.
+     * <p>
+     * Used when converting a list of products so that the image lookup costs one statement
+     * for the whole list instead of one statement per product. Only the columns needed for an
+     * {@code ImageDTO} are selected; the image content and the owning product are not loaded.
+     * </p>
+     *
+     * @param productIds the IDs of the products whose images should be loaded
+     * @return the images belonging to any of the given products, sorted by ID
+     */
+    @Query("select new com.gure.cinab.dto.ImageRow(i.id, i.fileName, i.downloadUrl, i.product.id) " +
+            "from Image i where i.product.id in :productIds order by i.id")
+    List<ImageRow> findRowsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Deletes the images of the given products with a single {@code DELETE} statement,
+     * bypassing the persistence context.
+     *
+     * @param productIds the IDs of the products whose images should be deleted
+     * @return the number of deleted images
+     */
+    @Modifying
+    @Query("delete from Image i where i.product.id in :productIds")
+    int bulkDeleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Lists the content hashes referenced by the images of the given products, one entry per image.
+     * Images whose content is still stored in the database hold no reference and are left out.
+     *
+     * @param productIds the IDs of the products
+     * @return the content hashes, with duplicates
+     */
+    @Query("select i.contentHash from Image i where i.product.id in :productIds and i.contentLength is not null")
+    List<String> findStoredContentHashesByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Lists the content hashes of the variants of the images of the given products, one entry per variant.
+     *
+     * @param productIds the IDs of the products
+     * @return the content hashes, with duplicates
+     */
+    @Query("select v.contentHash from Image i join i.variants v where i.product.id in :productIds")
+    List<String> findVariantContentHashesByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Deletes the variant rows of the images of the given products; bulk deletes of the images
+     * themselves do not cascade to them.
+     *
+     * @param productIds the IDs of the products whose image variants should be deleted
+     * @return the number of deleted variants
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_variant"))
+    @Query(value = "delete from image_variant where image_id in (select id from image where product_id in (:productIds))",
+            nativeQuery = true)
+    int bulkDeleteVariantsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Pages through the images whose content is still stored in the database.
+     *
+     * @param afterId the last ID of the previous page, {@code 0} for the first page
+     * @param limit   the page size
+     * @return the IDs of the images, in ascending order
+     */
+    @Query("select i.id from Image i where i.image is not null and i.id > :afterId order by i.id")
+    List<Long> findIdsWithBlobAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Drops the database copy of an image's content once it is in the image storage. Nothing is
+     * changed if the image got other content in the meantime.
+     *
+     * @param id     the ID of the image
+     * @param hash   the hash of the content that was copied to the image storage
+     * @param length the size of that content
+     * @return {@code 1} if the image was updated, {@code 0} otherwise
+     */
+    @Modifying
+    @Query("update Image i set i.image = null, i.contentHash = :hash, i.contentLength = :length " +
+            "where i.id = :id and i.image is not null and (i.contentHash = :hash or i.contentHash is null)")
+    int detachBlob(@Param("id") long id, @Param("hash") String hash, @Param("length") long length);
+
+    /**
+     * Loads an image and locks its row until the transaction ends. Variants being recorded for its
+     * current content are committed first, so they are seen, and released, with the image.
+     *
+     * @param id the ID of the image
+     * @return the image, or an empty {@link Optional} if there is no such image
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Image i where i.id = :id")
+    Optional<Image> findForUpdateById(@Param("id") Long id);
+
+    /**
+     * Records the dimensions of an image whose variants were generated, and locks its row until the
+     * transaction ends. Nothing is changed if the image got other content in the meantime.
+     *
+     * @param id     the ID of the image
+     * @param hash   the hash of the content the variants were generated from
+     * @param width  the width of that content in pixels
+     * @param height the height of that content in pixels
+     * @return {@code 1} if the image was updated, {@code 0} otherwise
+     */
+    @Modifying
+    @Query("update Image i set i.width = :width, i.height = :height where i.id = :id and i.contentHash = :hash")
+    int updateDimensions(@Param("id") long id, @Param("hash") String hash, @Param("width") int width,
+                         @Param("height") int height);
 }
@@ -0,0 +1,28 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+
+import java.util.Collection;
+
+/**
+ * Set-based writes on many products at once, mixed into {@link ProductRepository}.
+ *
+ * @since 1.1.0
+ */
+public interface ProductBulkOperations {
+
+    /**
+     * Applies the changes of a bulk update to the given products with a single {@code UPDATE} statement.
+     * <p>
+     * The statement bypasses the persistence context: managed products are not updated and no
+     * entity listeners run.
+     * </p>
+     *
+     * @param ids      the IDs of the products to update
+     * @param changes  the changes to apply; its filter is ignored
+     * @param category the new category, or {@code null} to keep the current ones
+     * @return the number of updated products
+     */
+    int updateAll(Collection<Long> ids, BulkProductUpdateRequest changes, Category category);
+}
@@ -0,0 +1,60 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Product;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Criteria API implementation of {@link ProductBulkOperations}; only the columns that change
+ * appear in the generated {@code SET} clause.
+ *
+ * @since 1.1.0
+ */
+class ProductBulkOperationsImpl implements ProductBulkOperations {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int updateAll(Collection<Long> ids, BulkProductUpdateRequest changes, Category category) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = cb.createCriteriaUpdate(Product.class);
+        Root<Product> product = update.from(Product.class);
+
+        if (changes.getPrice() != null) {
+            update.set(product.<BigDecimal>get("price"), changes.getPrice());
+        } else if (changes.getPriceChangePercent() != null) {
+            BigDecimal factor = BigDecimal.ONE.add(changes.getPriceChangePercent().divide(HUNDRED));
+            update.set(product.<BigDecimal>get("price"), cb.prod(product.get("price"), factor));
+        }
+        if (changes.getInventory() != null) {
+            update.set(product.<Integer>get("inventory"), changes.getInventory());
+        } else if (changes.getInventoryChange() != null) {
+            update.set(product.<Integer>get("inventory"), cb.sum(product.get("inventory"), changes.getInventoryChange()));
+        }
+        if (changes.getBrand() != null) {
+            update.set(product.<String>get("brand"), changes.getBrand());
+        }
+        if (category != null) {
+            update.set(product.<Category>get("category"), category);
+        }
+
+        // Bulk statements bypass @Version and @UpdateTimestamp, so both are maintained here
+        update.set(product.<Long>get("version"), cb.sum(product.get("version"), 1L));
+        update.set(product.<Instant>get("updatedAt"), Instant.now());
+
+        update.where(product.get("id").in(ids));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -1,8 +1,19 @@
 package com.gure.cinab.repository;
 
+import com.gure.cinab.config.HibernateCacheConfig;
+import com.gure.cinab.dto.CollectionVersion;
+import com.gure.cinab.dto.ProductRow;
 import com.gure.cinab.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -11,60 +22,114 @@ import java.util.List;
  * This interface extends the {@link JpaRepository} interface, providing basic CRUD operations
  * and custom queries related to products.
  * </p>
+ * <p>
+ * Catalog reads are served by {@link ProductViewRepository} from the denormalized
+ * {@code product_view} table; this repository holds the write side and the queries that rebuild
+ * that read model.
+ * </p>
+ * <p>
+ * The duplicate check {@link #countByBrandAndName} is cached in the {@code product-queries} region.
+ * </p>
  *
  * @since 1.0
  */
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductBulkOperations {
+
+    /**
+     * The select and join reading a {@link ProductRow} from the normalized tables.
+     */
+    String ROW_SELECT = "select new com.gure.cinab.dto.ProductRow(p.id, p.name, p.brand, p.price, p.inventory, " +
+            "p.description, c.id, c.name, p.version, p.updatedAt) from Product p left join p.category c ";
 
     /**
-     * Finds all products by the specified category name.
+     * Largest number of IDs bound to one {@code IN (...)} list by the chunked lookups and bulk operations.
+     */
+    int ID_CHUNK_SIZE = 1000;
+
+    /**
+     * Reads the given products from the {@code product} and {@code category} tables, to rebuild
+     * their rows of the {@code product_view} read model.
      *
-     * @param category the category name to filter products by
-     * @return a list of products belonging to the specified category
+     * @param ids the IDs of the products to load
+     * @return the rows of the products that exist, sorted by ID
      */
-    List<Product> findByCategoryName(String category);
+    @Query(ROW_SELECT + "where p.id in :ids order by p.id")
+    List<ProductRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
-     * Finds all products by the specified brand name.
+     * Counts the number of products matching the specified brand and name.
      *
-     * @param brand the brand name to filter products by
-     * @return a list of products belonging to the specified brand
+     * @param brand the brand of the products
+     * @param name  the name of the products
+     * @return the number of products matching the specified brand and name
      */
-    List<Product> findByBrand(String brand);
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.PRODUCT_QUERY_REGION)})
+    Long countByBrandAndName(String brand, String name);
 
+    /**
+     * Reads the aggregate version of the whole catalog, to validate cached product listings.
+     *
+     * @return the number of products, the sum of their versions and the latest update time
+     */
+    @Query("select new com.gure.cinab.dto.CollectionVersion(count(p), coalesce(sum(p.version), 0), max(p.updatedAt)) " +
+            "from Product p")
+    CollectionVersion findCollectionVersion();
 
     /**
-     * Finds all products by the specified category and brand.
+     * Increments the version and update time of the given products, for changes made elsewhere
+     * that are part of their representation, such as their images.
      *
-     * @param category the category name to filter products by
-     * @param brand    the brand name to filter products by
-     * @return a list of products belonging to the specified category and brand
+     * @param ids the IDs of the products that changed
+     * @param now the update time to record
+     * @return the number of updated products
      */
-    List<Product> findByCategoryNameAndBrand(String category, String brand);
+    @Modifying
+    @Query("update Product p set p.version = p.version + 1, p.updatedAt = :now where p.id in :ids")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
 
     /**
-     * Finds all products by the specified product name.
+     * Finds the IDs of the products of a category.
      *
-     * @param name the name of the product to search for
-     * @return a list of products with the specified name
+     * @param categoryId the ID of the category
+     * @return the IDs of the products in the category, sorted
      */
-    List<Product> findByName(String name);
+    @Query("select p.id from Product p where p.category.id = :categoryId order by p.id")
+    List<Long> findIdsByCategoryId(@Param("categoryId") long categoryId);
 
     /**
-     * Finds all products by the specified brand and product name.
+     * Finds the IDs of the products matching a brand and a category.
      *
-     * @param brand the brand of the products to search for
-     * @param name  the name of the products to search for
-     * @return a list of products matching the specified brand and name
+     * @param brand    the brand to match, or {@code null} for any brand
+     * @param category the category name to match, or {@code null} for any category
+     * @return the IDs of the matching products, sorted
      */
-    List<Product> findByBrandAndName(String brand, String name);
+    @Query("select p.id from Product p left join p.category c " +
+            "where (:brand is null or p.brand = :brand) and (:category is null or c.name = :category) order by p.id")
+    List<Long> findIdsByBrandAndCategory(@Param("brand") String brand, @Param("category") String category);
 
     /**
-     * Counts the number of products matching the specified brand and name.
+     * Keeps those of the given IDs whose products exist and match a brand and a category.
      *
-     * @param brand the brand of the products
-     * @param name  the name of the products
-     * @return the number of products matching the specified brand and name
+     * @param ids      the candidate IDs
+     * @param brand    the brand to match, or {@code null} for any brand
+     * @param category the category name to match, or {@code null} for any category
+     * @return the IDs of the matching products, sorted
      */
-    Long countByBrandAndName(String brand, String name);
+    @Query("select p.id from Product p left join p.category c where p.id in :ids " +
+            "and (:brand is null or p.brand = :brand) and (:category is null or c.name = :category) order by p.id")
+    List<Long> findIdsByIdInAndBrandAndCategory(@Param("ids") Collection<Long> ids,
+                                                @Param("brand") String brand,
+                                                @Param("category") String category);
+
+    /**
+     * Deletes the given products with a single {@code DELETE} statement, bypassing the persistence context.
+     * Their images must have been deleted first.
+     *
+     * @param ids the IDs of the products to delete
+     * @return the number of deleted products
+     */
+    @Modifying
+    @Query("delete from Product p where p.id in :ids")
+    int bulkDeleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,31 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.request.ProductFields;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+/**
+ * Listing queries that select only the columns of a sparse fieldset, mixed into {@link ProductViewRepository}.
+ *
+ * @since 1.1.0
+ */
+public interface ProductRowQueries {
+
+    /**
+     * Finds the next page of products, reading only the columns of the requested fields.
+     * <p>
+     * The unselected components of the returned rows are {@code null} (or {@code 0}).
+     * </p>
+     *
+     * @param fields   the requested fields
+     * @param category the category name to filter on, or {@code null}
+     * @param brand    the brand to filter on, or {@code null}
+     * @param name     the product name to filter on, or {@code null}
+     * @param afterId  the ID after which the page starts
+     * @param limit    the maximum number of rows to return
+     * @return the matching rows, in ascending ID order
+     */
+    List<ProductRow> findRows(ProductFields fields, String category, String brand, String name, Long afterId, Limit limit);
+}
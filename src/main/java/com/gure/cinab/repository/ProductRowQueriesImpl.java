@@ -0,0 +1,104 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.model.ProductView;
+import com.gure.cinab.request.ProductFields;
+import com.gure.cinab.request.ProductFields.Field;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria API implementation of {@link ProductRowQueries}; the generated {@code SELECT} clause
+ * lists only the columns of the requested fields.
+ *
+ * @since 1.1.0
+ */
+class ProductRowQueriesImpl implements ProductRowQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductRow> findRows(ProductFields fields, String category, String brand, String name, Long afterId, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ProductView> product = query.from(ProductView.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(product.get("id").alias("id"));
+        select(selections, fields, Field.NAME, product.get("name"));
+        select(selections, fields, Field.BRAND, product.get("brand"));
+        select(selections, fields, Field.PRICE, product.get("price"));
+        select(selections, fields, Field.INVENTORY, product.get("inventory"));
+        select(selections, fields, Field.DESCRIPTION, product.get("description"));
+        if (fields.includes(Field.CATEGORY)) {
+            selections.add(product.get("categoryId").alias("categoryId"));
+            selections.add(product.get("categoryName").alias("categoryName"));
+        }
+        select(selections, fields, Field.IMAGES, product.get("images"));
+        query.multiselect(selections);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(product.get("id"), afterId));
+        if (category != null) {
+            predicates.add(cb.equal(product.get("categoryName"), category));
+        }
+        if (brand != null) {
+            predicates.add(cb.equal(product.get("brand"), brand));
+        }
+        if (name != null) {
+            predicates.add(cb.equal(product.get("name"), name));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(cb.asc(product.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultStream()
+                .map(tuple -> toRow(tuple, fields))
+                .toList();
+    }
+
+    private static void select(List<Selection<?>> selections, ProductFields fields, Field field, Selection<?> column) {
+        if (fields.includes(field)) {
+            selections.add(column.alias(field.propertyName()));
+        }
+    }
+
+    private static ProductRow toRow(Tuple tuple, ProductFields fields) {
+        Integer inventory = get(tuple, fields, Field.INVENTORY, "inventory", Integer.class);
+        return new ProductRow(
+                tuple.get("id", Long.class),
+                get(tuple, fields, Field.NAME, "name", String.class),
+                get(tuple, fields, Field.BRAND, "brand", String.class),
+                get(tuple, fields, Field.PRICE, "price", BigDecimal.class),
+                inventory == null ? 0 : inventory,
+                get(tuple, fields, Field.DESCRIPTION, "description", String.class),
+                get(tuple, fields, Field.CATEGORY, "categoryId", Long.class),
+                get(tuple, fields, Field.CATEGORY, "categoryName", String.class),
+                0,
+                null,
+                images(tuple, fields));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ImageDTO> images(Tuple tuple, ProductFields fields) {
+        return fields.includes(Field.IMAGES) ? (List<ImageDTO>) tuple.get("images") : null;
+    }
+
+    private static <T> T get(Tuple tuple, ProductFields fields, Field field, String alias, Class<T> type) {
+        return fields.includes(field) ? tuple.get(alias, type) : null;
+    }
+}
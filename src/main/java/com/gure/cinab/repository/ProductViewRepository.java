@@ -0,0 +1,156 @@
+package com.gure.cinab.repository;
+
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.model.ProductView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Catalog reads from the {@link ProductView} read model.
+ * <p>
+ * Every query scans the single {@code product_view} table, which already holds the category name
+ * and the images, and selects {@link ProductRow} projections, so nothing is added to the
+ * persistence context. Listing queries use keyset pagination: each one takes the ID of the last
+ * product already returned and a {@link Limit}, and returns the next products in ascending ID
+ * order through one of the {@code (filter, id)} indexes of the table. Listings with a sparse
+ * fieldset go through {@link ProductRowQueries} instead, which selects fewer columns.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public interface ProductViewRepository extends JpaRepository<ProductView, Long>, ProductRowQueries {
+
+    /**
+     * The select shared by every {@link ProductRow} query of the read model.
+     */
+    String ROW_SELECT = "select new com.gure.cinab.dto.ProductRow(v.id, v.name, v.brand, v.price, v.inventory, " +
+            "v.description, v.categoryId, v.categoryName, v.version, v.updatedAt, v.images) from ProductView v ";
+
+    /**
+     * Finds the row of one product.
+     *
+     * @param id the ID of the product
+     * @return the product's row, or empty if there is no such product
+     */
+    @Query(ROW_SELECT + "where v.id = :id")
+    Optional<ProductRow> findRowById(@Param("id") Long id);
+
+    /**
+     * Finds the next page of all products.
+     *
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of products to return
+     * @return the products with an ID greater than {@code afterId}, sorted by ID
+     */
+    @Query(ROW_SELECT + "where v.id > :afterId order by v.id")
+    List<ProductRow> findRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next page of products by the specified category name.
+     *
+     * @param category the category name to filter products by
+     * @param afterId  the ID after which the page starts
+     * @param limit    the maximum number of products to return
+     * @return a list of products belonging to the specified category
+     */
+    @Query(ROW_SELECT + "where v.categoryName = :category and v.id > :afterId order by v.id")
+    List<ProductRow> findRowsByCategoryName(@Param("category") String category, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next page of products by the specified brand name.
+     *
+     * @param brand   the brand name to filter products by
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of products to return
+     * @return a list of products belonging to the specified brand
+     */
+    @Query(ROW_SELECT + "where v.brand = :brand and v.id > :afterId order by v.id")
+    List<ProductRow> findRowsByBrand(@Param("brand") String brand, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next page of products by the specified category and brand.
+     *
+     * @param category the category name to filter products by
+     * @param brand    the brand name to filter products by
+     * @param afterId  the ID after which the page starts
+     * @param limit    the maximum number of products to return
+     * @return a list of products belonging to the specified category and brand
+     */
+    @Query(ROW_SELECT + "where v.categoryName = :category and v.brand = :brand and v.id > :afterId order by v.id")
+    List<ProductRow> findRowsByCategoryNameAndBrand(@Param("category") String category, @Param("brand") String brand,
+                                                    @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next page of products by the specified product name.
+     *
+     * @param name    the name of the product to search for
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of products to return
+     * @return a list of products with the specified name
+     */
+    @Query(ROW_SELECT + "where v.name = :name and v.id > :afterId order by v.id")
+    List<ProductRow> findRowsByName(@Param("name") String name, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the next page of products by the specified brand and product name.
+     *
+     * @param brand   the brand of the products to search for
+     * @param name    the name of the products to search for
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of products to return
+     * @return a list of products matching the specified brand and name
+     */
+    @Query(ROW_SELECT + "where v.brand = :brand and v.name = :name and v.id > :afterId order by v.id")
+    List<ProductRow> findRowsByBrandAndName(@Param("brand") String brand, @Param("name") String name,
+                                            @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Finds the product rows with the given IDs.
+     *
+     * @param ids the IDs of the products to load
+     * @return the rows of the products that exist, sorted by ID
+     */
+    @Query(ROW_SELECT + "where v.id in :ids order by v.id")
+    List<ProductRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams every product row, sorted by ID.
+     * <p>
+     * Backed by a scrollable result set, so rows are read from the database in chunks of the fetch
+     * size rather than materialised into one list. Must be consumed inside a transaction and closed
+     * once done.
+     * </p>
+     *
+     * @return a stream over the whole catalog
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(ROW_SELECT + "order by v.id")
+    Stream<ProductRow> streamRowsOrderById();
+
+    /**
+     * Retrieves the products with the given IDs, however many, binding at most
+     * {@link ProductRepository#ID_CHUNK_SIZE} IDs per query.
+     *
+     * @param ids the IDs of the products to retrieve
+     * @return the products that exist, sorted by ID within each chunk
+     */
+    default List<ProductRow> findRowsByIdInChunks(Collection<Long> ids) {
+        List<Long> idList = List.copyOf(ids);
+        List<ProductRow> rows = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += ProductRepository.ID_CHUNK_SIZE) {
+            rows.addAll(findRowsByIdIn(idList.subList(from, Math.min(from + ProductRepository.ID_CHUNK_SIZE, idList.size()))));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package com.gure.cinab.request;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Request DTO (Data Transfer Object) for changing many products at once.
+ * <p>
+ * The {@code filter} selects the products; every other field that is set is applied to all of
+ * them, fields left {@code null} are not changed. A price or an inventory can either be set to a
+ * value or changed relative to the current one, but not both.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Data
+public class BulkProductUpdateRequest {
+
+    /**
+     * Selects the products to update. Required.
+     */
+    private ProductFilter filter;
+
+    /**
+     * The new price of the products.
+     */
+    private BigDecimal price;
+
+    /**
+     * The percentage to change the current prices by, e.g. {@code -15} for a 15% reduction.
+     */
+    private BigDecimal priceChangePercent;
+
+    /**
+     * The new inventory of the products.
+     */
+    private Integer inventory;
+
+    /**
+     * The number of units to add to (or, when negative, remove from) the current inventories.
+     */
+    private Integer inventoryChange;
+
+    /**
+     * The new brand of the products.
+     */
+    private String brand;
+
+    /**
+     * The name of the new category of the products; created if it does not exist yet.
+     */
+    private String category;
+}
@@ -0,0 +1,112 @@
+package com.gure.cinab.request;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The sparse fieldset of a product request, parsed from the {@code fields} query parameter.
+ * <p>
+ * The fieldset is a comma separated list of {@code ProductDTO} properties, for example
+ * {@code fields=name,price,images}. It controls which properties are serialized, and the listing
+ * queries only select the columns of the requested properties. The image query is skipped entirely
+ * when {@code images} is not requested. The {@code id} is always included, the next page cursor is
+ * built from it.
+ * </p>
+ *
+ * @param fields the requested properties
+ * @since 1.1.0
+ */
+public record ProductFields(Set<Field> fields) {
+
+    /**
+     * The name of the query parameter holding the fieldset.
+     */
+    public static final String PARAMETER = "fields";
+
+    /**
+     * The ID of the Jackson filter applied to {@code ProductDTO}.
+     */
+    public static final String FILTER_ID = "productFields";
+
+    /**
+     * The full representation, used when no fieldset is given.
+     */
+    public static final ProductFields ALL = new ProductFields(EnumSet.allOf(Field.class));
+
+    /**
+     * The properties of a product that can be requested.
+     */
+    public enum Field {
+        ID, NAME, BRAND, PRICE, INVENTORY, DESCRIPTION, CATEGORY, IMAGES;
+
+        /**
+         * The name of the property in the JSON representation.
+         *
+         * @return the property name
+         */
+        public String propertyName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public ProductFields {
+        fields = Set.copyOf(fields);
+    }
+
+    /**
+     * Parses the value of the {@code fields} query parameter.
+     *
+     * @param fields the comma separated property names, or {@code null} for all properties
+     * @return the parsed fieldset
+     * @throws IllegalArgumentException if a property name is unknown
+     */
+    public static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<Field> parsed = EnumSet.of(Field.ID);
+        for (String name : fields.split(",")) {
+            parsed.add(Arrays.stream(Field.values())
+                    .filter(field -> field.propertyName().equals(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown product field: " + name.trim())));
+        }
+        return parsed.size() == Field.values().length ? ALL : new ProductFields(parsed);
+    }
+
+    /**
+     * Tells whether the fieldset holds every property.
+     *
+     * @return {@code true} for the full representation
+     */
+    public boolean isAll() {
+        return fields.size() == Field.values().length;
+    }
+
+    /**
+     * Tells whether a property is requested.
+     *
+     * @param field the property
+     * @return {@code true} if the property is part of the fieldset
+     */
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * Creates the Jackson filters that leave out the properties which were not requested.
+     *
+     * @return the filter provider to serialize the response with
+     */
+    public FilterProvider filterProvider() {
+        Set<String> propertyNames = fields.stream().map(Field::propertyName).collect(Collectors.toSet());
+        return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(propertyNames));
+    }
+}
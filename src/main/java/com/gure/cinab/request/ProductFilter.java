@@ -0,0 +1,42 @@
+package com.gure.cinab.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Selects the products affected by a bulk operation.
+ * <p>
+ * All given criteria must match. At least one criterion is required, so that a bulk operation
+ * never applies to the whole catalog by accident.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Data
+public class ProductFilter {
+
+    /**
+     * The IDs of the products to select; optional.
+     */
+    private List<Long> ids;
+
+    /**
+     * The brand of the products to select; optional.
+     */
+    private String brand;
+
+    /**
+     * The name of the category of the products to select; optional.
+     */
+    private String category;
+
+    /**
+     * Tells whether no criterion is set.
+     *
+     * @return {@code true} if the filter would select every product
+     */
+    public boolean isEmpty() {
+        return (ids == null || ids.isEmpty()) && brand == null && category == null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.gure.cinab.service.category;
+
+import com.gure.cinab.event.CategoryChangedEvent;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves category names to categories for the product write paths, creating missing ones.
+ * <p>
+ * Known names are served from an in-memory name to ID map, so resolving a category costs a hash
+ * lookup and no query. On a miss the category is created with an
+ * {@code insert ... on conflict do nothing} against the unique category name, which makes
+ * concurrent writers agree on a single category instead of inserting duplicates.
+ * </p>
+ * <p>
+ * IDs are only cached once the transaction that created or read them has committed, and are
+ * dropped again when a category is renamed or deleted.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryResolver {
+
+    private final CategoryRepository categoryRepository;
+
+    private final ConcurrentMap<String, Long> idsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the category with the given name, creating it if it does not exist yet.
+     * <p>
+     * The category is returned as an uninitialized reference, which is all that is needed to
+     * assign it to a product.
+     * </p>
+     *
+     * @param name the name of the category
+     * @return a reference to the category
+     */
+    @Transactional
+    public Category resolve(String name) {
+        Long id = idsByName.get(name);
+        if (id == null) {
+            id = insertIfAbsent(name);
+        }
+        return categoryRepository.getReferenceById(id);
+    }
+
+    private Long insertIfAbsent(String name) {
+        categoryRepository.insertIfAbsent(name);
+        // Either our insert or the concurrent one that won the conflict
+        Long id = categoryRepository.findIdByName(name)
+                .orElseThrow(() -> new IllegalStateException("Category " + name + " was not created"));
+        cacheAfterCommit(name, id);
+        return id;
+    }
+
+    private void cacheAfterCommit(String name, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            idsByName.putIfAbsent(name, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                idsByName.putIfAbsent(name, id);
+            }
+        });
+    }
+
+    /**
+     * Forgets a renamed or deleted category after its transaction commits.
+     *
+     * @param event the committed category change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        idsByName.values().removeIf(event.categoryId()::equals);
+    }
+}
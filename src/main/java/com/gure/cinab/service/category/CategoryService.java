@@ -1,12 +1,19 @@
 package com.gure.cinab.service.category;
 
+import com.gure.cinab.dto.CollectionVersion;
+import com.gure.cinab.event.CategoryChangedEvent;
+import com.gure.cinab.event.ProductChangedEvent;
 import com.gure.cinab.exceptions.AlreadyExistsException;
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.model.Category;
 import com.gure.cinab.repository.CategoryRepository;
+import com.gure.cinab.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,8 +29,11 @@ import java.util.Optional;
 public class CategoryService implements ICategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional(readOnly = true)
     public Category getCategoryById(Long id) {
         return categoryRepository.findById(id)
                 .orElseThrow(
@@ -31,6 +41,7 @@ public class CategoryService implements ICategoryService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Category getCategoryByName(String name) {
         return categoryRepository.findByName(name);
     }
@@ -44,11 +55,20 @@ public class CategoryService implements ICategoryService {
     }
 
     @Override
+    @Transactional
     public Category updateCategory(Category category, Long id) {
         return Optional.ofNullable(getCategoryById(id))
                 .map(oldCategory -> {
                     oldCategory.setName(category.getName());
-                    return categoryRepository.save(oldCategory);
+                    Category savedCategory = categoryRepository.save(oldCategory);
+                    eventPublisher.publishEvent(new CategoryChangedEvent(id));
+                    // The category name is part of every product of the category
+                    List<Long> productIds = productRepository.findIdsByCategoryId(id);
+                    if (!productIds.isEmpty()) {
+                        productRepository.touch(productIds, Instant.now());
+                        eventPublisher.publishEvent(new ProductChangedEvent(productIds));
+                    }
+                    return savedCategory;
                 }).orElseThrow((() -> new ResourceNotFoundException("Category not found!")));
     }
 
@@ -58,10 +78,18 @@ public class CategoryService implements ICategoryService {
                 .ifPresentOrElse(categoryRepository::delete, () -> {
                     throw new ResourceNotFoundException("Category not found!");
                 });
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CollectionVersion getCategoriesVersion() {
+        return categoryRepository.findCollectionVersion();
+    }
 }
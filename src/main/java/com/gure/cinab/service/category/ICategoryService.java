@@ -1,5 +1,6 @@
 package com.gure.cinab.service.category;
 
+import com.gure.cinab.dto.CollectionVersion;
 import com.gure.cinab.model.Category;
 import java.util.List;
 
@@ -57,4 +58,11 @@ public interface ICategoryService {
      * @return a list of all categories
      */
     List<Category> getAllCategories();
+
+    /**
+     * Reads the aggregate version of all categories, without loading them.
+     *
+     * @return the number of categories, the sum of their versions and the latest update time
+     */
+    CollectionVersion getCategoriesVersion();
 }
@@ -0,0 +1,30 @@
+package com.gure.cinab.service.facet;
+
+import com.gure.cinab.dto.ProductFacetsDTO;
+
+import java.util.List;
+
+/**
+ * Service interface for faceted browsing of the product catalog.
+ *
+ * @since 1.1.0
+ */
+public interface IProductFacetService {
+
+    /**
+     * Finds the products matching the given brand and category filters, along with per-brand and
+     * per-category counts.
+     * <p>
+     * Filtering and counting are bitmap operations in memory; only the returned page of products
+     * is read from the database.
+     * </p>
+     *
+     * @param brands     the brands to keep, empty or {@code null} for all brands
+     * @param categories the categories to keep, empty or {@code null} for all categories
+     * @param after      the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit      the maximum number of products in the page
+     * @return the page of matching products and the facet counts
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of range
+     */
+    ProductFacetsDTO getFacets(List<String> brands, List<String> categories, String after, int limit);
+}
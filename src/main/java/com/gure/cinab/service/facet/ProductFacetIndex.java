@@ -0,0 +1,183 @@
+package com.gure.cinab.service.facet;
+
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.service.product.ProductIndex;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index of product IDs per brand and per category.
+ * <p>
+ * Each brand and each category owns a compressed {@link Roaring64Bitmap} of the IDs of its products;
+ * IDs are {@code long}s, so the 64-bit bitmaps are used rather than the 32-bit ones.
+ * Filtering is a bitwise OR within a dimension and an AND across dimensions, and a facet count is
+ * the cardinality of an AND, so counts never need a {@code GROUP BY} query.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ProductFacetIndex implements ProductIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Roaring64Bitmap allProducts = new Roaring64Bitmap();
+    private final Map<String, Roaring64Bitmap> byBrand = new HashMap<>();
+    private final Map<String, Roaring64Bitmap> byCategory = new HashMap<>();
+    private final Map<Long, FacetValues> valuesByProductId = new HashMap<>();
+
+    /**
+     * The result of a facet query.
+     *
+     * @param productIds     the IDs of the matching products in the requested page, in ascending order
+     * @param hasMore        whether more matching products follow the page
+     * @param total          the number of matching products
+     * @param brandCounts    the number of products per brand, with every filter applied except the brand filter
+     * @param categoryCounts the number of products per category, with every filter applied except the category filter
+     */
+    public record FacetResult(List<Long> productIds,
+                              boolean hasMore,
+                              int total,
+                              Map<String, Integer> brandCounts,
+                              Map<String, Integer> categoryCounts) {
+    }
+
+    /**
+     * Adds a product to the index, replacing the previous version of it if there is one.
+     *
+     * @param row the product to index
+     */
+    @Override
+    public void index(ProductRow row) {
+        long productId = row.id();
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+            FacetValues values = new FacetValues(row.brand(), row.categoryName());
+            valuesByProductId.put(productId, values);
+            allProducts.addLong(productId);
+            if (values.brand() != null) {
+                byBrand.computeIfAbsent(values.brand(), brand -> new Roaring64Bitmap()).addLong(productId);
+            }
+            if (values.category() != null) {
+                byCategory.computeIfAbsent(values.category(), category -> new Roaring64Bitmap()).addLong(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index; does nothing if it is not indexed.
+     *
+     * @param productId the ID of the product to remove
+     */
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching the given filters and counts them per brand and per category.
+     *
+     * @param brands     the brands to keep, any of them may match; empty for no brand filter
+     * @param categories the categories to keep, any of them may match; empty for no category filter
+     * @param afterId    the product ID after which the page of matching products starts
+     * @param limit      the maximum number of product IDs to return
+     * @return the page of matching product IDs and the facet counts
+     */
+    public FacetResult query(Collection<String> brands, Collection<String> categories, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap brandFilter = union(byBrand, brands);
+            Roaring64Bitmap categoryFilter = union(byCategory, categories);
+            Roaring64Bitmap matching = Roaring64Bitmap.and(brandFilter, categoryFilter);
+
+            List<Long> page = new ArrayList<>(limit);
+            PeekableLongIterator iterator = matching.getLongIterator();
+            if (afterId == Long.MAX_VALUE) {
+                iterator = new Roaring64Bitmap().getLongIterator();
+            } else if (afterId >= 0) {
+                iterator.advanceIfNeeded(afterId + 1);
+            }
+            while (iterator.hasNext() && page.size() < limit) {
+                page.add(iterator.next());
+            }
+
+            return new FacetResult(page, iterator.hasNext(), Math.toIntExact(matching.getLongCardinality()),
+                    counts(byBrand, categoryFilter), counts(byCategory, brandFilter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeProduct(long productId) {
+        FacetValues values = valuesByProductId.remove(productId);
+        if (values == null) {
+            return;
+        }
+        allProducts.removeLong(productId);
+        removeFrom(byBrand, values.brand(), productId);
+        removeFrom(byCategory, values.category(), productId);
+    }
+
+    private static void removeFrom(Map<String, Roaring64Bitmap> bitmaps, String key, long productId) {
+        if (key == null) {
+            return;
+        }
+        Roaring64Bitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.removeLong(productId);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * ORs the bitmaps of the selected values together; no selection means every product.
+     */
+    private Roaring64Bitmap union(Map<String, Roaring64Bitmap> bitmaps, Collection<String> selected) {
+        if (selected == null || selected.isEmpty()) {
+            return allProducts;
+        }
+        Roaring64Bitmap union = new Roaring64Bitmap();
+        for (String value : selected) {
+            Roaring64Bitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static Map<String, Integer> counts(Map<String, Roaring64Bitmap> bitmaps, Roaring64Bitmap filter) {
+        Map<String, Integer> counts = new TreeMap<>();
+        bitmaps.forEach((value, bitmap) -> {
+            long count = Roaring64Bitmap.andCardinality(bitmap, filter);
+            if (count > 0) {
+                counts.put(value, Math.toIntExact(count));
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * The facet values a product is currently indexed under, needed to remove it again.
+     */
+    private record FacetValues(String brand, String category) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.gure.cinab.service.facet;
+
+import com.gure.cinab.config.ReadYourWrites;
+import com.gure.cinab.dto.CursorPageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.dto.ProductFacetsDTO;
+import com.gure.cinab.event.ProductChangedEvent;
+import com.gure.cinab.repository.ProductViewRepository;
+import com.gure.cinab.service.product.IProductService;
+import com.gure.cinab.service.product.LiveProductIndex;
+import com.gure.cinab.service.product.ProductCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Service class answering facet queries from a {@link ProductFacetIndex}.
+ * <p>
+ * The bitmaps are built from the whole catalog once the application is ready and are then
+ * maintained from the committed product writes announced by {@link ProductChangedEvent}, including
+ * the writes committing during a rebuild (see {@link LiveProductIndex}).
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductFacetService implements IProductFacetService {
+
+    private final ProductViewRepository productViewRepository;
+    private final IProductService productService;
+
+    private final LiveProductIndex<ProductFacetIndex> index = new LiveProductIndex<>(ProductFacetIndex::new);
+
+    @Override
+    public ProductFacetsDTO getFacets(List<String> brands, List<String> categories, String after, int limit) {
+        long afterId = ProductCursor.decode(after);
+        int pageSize = ProductCursor.checkLimit(limit);
+
+        ProductFacetIndex.FacetResult result = index.current().query(brands, categories, afterId, pageSize);
+        List<Long> ids = result.productIds();
+        String nextCursor = result.hasMore() ? ProductCursor.encode(ids.get(ids.size() - 1)) : null;
+        List<ProductDTO> products = productService.getProductsByIds(ids);
+
+        return new ProductFacetsDTO(new CursorPageDTO<>(products, nextCursor), result.total(),
+                result.brandCounts(), result.categoryCounts());
+    }
+
+    /**
+     * Builds fresh bitmaps from the whole catalog and swaps them in once complete.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    public void rebuildIndex() {
+        index.rebuild(productViewRepository::streamRowsOrderById, productViewRepository::findRowsByIdInChunks);
+        log.info("Product facet index built");
+    }
+
+    /**
+     * Moves the changed products to their current brand and category bitmaps after their
+     * transaction commits; products that no longer exist are removed.
+     *
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true, label = ReadYourWrites.PRIMARY)
+    public void onProductChanged(ProductChangedEvent event) {
+        index.update(event.productIds(), productViewRepository::findRowsByIdInChunks);
+    }
+}
@@ -0,0 +1,156 @@
+package com.gure.cinab.service.image;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * {@link IImageStorage} on the local filesystem. Content is stored in {@code <root>/ab/cd/abcd…},
+ * named by its hash and sharded by the first two bytes of it, so no directory grows past 65536
+ * entries. Uploads are written to {@code <root>/tmp}, flushed to disk and then renamed into place,
+ * so a file under a hash name is always complete; the directories are flushed after the rename, so
+ * the file is also found again after a crash once {@link #store} returns.
+ * <p>
+ * The root must be an absolute path on storage that outlives the application instance, such as a
+ * mounted volume; a relative path would silently resolve against the working directory.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Component
+public class FileSystemImageStorage implements IImageStorage {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path uploads;
+
+    public FileSystemImageStorage(@Value("${cinab.image-storage.root}") Path root) throws IOException {
+        if (!root.isAbsolute()) {
+            throw new IllegalStateException("cinab.image-storage.root must be an absolute path, not " + root);
+        }
+        this.root = root.normalize();
+        // Uploads are renamed into place, which is only atomic within one filesystem
+        this.uploads = Files.createDirectories(this.root.resolve("tmp"));
+    }
+
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        Path upload = Files.createTempFile(uploads, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long length;
+            try (FileChannel channel = FileChannel.open(upload, StandardOpenOption.WRITE)) {
+                length = new DigestInputStream(content, digest).transferTo(Channels.newOutputStream(channel));
+                channel.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path file = file(hash);
+            if (!Files.exists(file)) {
+                Files.createDirectories(file.getParent());
+                // Replacing a file stored concurrently is harmless, it has the same content
+                Files.move(upload, file, StandardCopyOption.ATOMIC_MOVE);
+                // The rename and any new shard directories are only durable once their directories are
+                forceDirectory(file.getParent());
+                forceDirectory(file.getParent().getParent());
+                forceDirectory(root);
+            }
+            return new StoredContent(hash, length);
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @Override
+    public boolean contains(String hash) {
+        return Files.isRegularFile(file(hash));
+    }
+
+    @Override
+    public ImageContent open(String hash) throws IOException {
+        Path file = file(hash);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+        return new FileContent(file, Files.size(file));
+    }
+
+    @Override
+    public Optional<Path> localFile(String hash) {
+        Path file = file(hash);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(file(hash));
+    }
+
+    private Path file(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a content hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows cannot open directories; NTFS journals the rename itself
+            if (File.separatorChar != '\\') {
+                throw e;
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies byte ranges of a stored file with {@link FileChannel#transferTo}, which hands the copy
+     * to the kernel when the target is a socket or file and otherwise copies through a small buffer.
+     */
+    private record FileContent(Path file, long length) implements ImageContent {
+
+        @Override
+        public void copyTo(OutputStream out, long position, long count) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long sent = 0;
+                while (sent < count) {
+                    long transferred = channel.transferTo(position + sent, count - sent, target);
+                    if (transferred <= 0) {
+                        throw new EOFException("Stored image " + file.getFileName() + " is shorter than " + (position + count) + " bytes");
+                    }
+                    sent += transferred;
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.gure.cinab.service.image;
 
 import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageDownload;
+import com.gure.cinab.dto.ImageStorageReportDTO;
 import com.gure.cinab.model.Image;
+import com.gure.cinab.model.ImageSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service interface for managing images.
@@ -22,6 +28,59 @@ public interface IImageService {
      */
     Image getImageById(Long id);
 
+    /**
+     * Reads the file name, type, size and content hash of an image, without reading its content.
+     *
+     * @param id the unique identifier of the image
+     * @return the download headers of the image
+     * @throws com.gure.cinab.exceptions.ResourceNotFoundException if there is no such image or it has no content
+     */
+    ImageDownload getImageDownload(Long id);
+
+    /**
+     * Reads the download headers of a resized variant of an image, or of the original while the
+     * variant is not generated, without reading its content.
+     *
+     * @param id      the unique identifier of the image
+     * @param variant the requested variant, or {@code null} for the original
+     * @return the download headers of the variant or of the original
+     * @throws com.gure.cinab.exceptions.ResourceNotFoundException if there is no such image or it has no content
+     */
+    ImageDownload getImageDownload(Long id, ImageSize variant);
+
+    /**
+     * Hands the content of an image to the given reader, which can copy any byte ranges of it
+     * straight from the image storage, or from the database large object for content that was not
+     * moved yet, so memory use does not depend on the size of the image or of the ranges.
+     * <p>
+     * Stored content is looked up by the announced hash, so a download never mixes the content of
+     * two versions of an image; once replaced content is deleted, the download fails instead.
+     * </p>
+     *
+     * @param id                  the unique identifier of the image
+     * @param expectedContentHash the content hash announced by {@link #getImageDownload(Long)}
+     * @param reader              the callback reading the content
+     * @throws IOException if the content cannot be read or written, or is no longer the announced one
+     */
+    void readImageContent(Long id, String expectedContentHash, ImageContent.Reader reader) throws IOException;
+
+    /**
+     * Finds the local file holding the content with the given hash, so the web server can send it
+     * without copying it through the JVM.
+     *
+     * @param contentHash the content hash announced by {@link #getImageDownload(Long)}
+     * @return the file, or empty if the content is not in a local file
+     */
+    Optional<Path> findContentFile(String contentHash);
+
+    /**
+     * Reports the storage taken by image content, and how much of it storing identical content
+     * once saves.
+     *
+     * @return the storage report
+     */
+    ImageStorageReportDTO getStorageReport();
+
     /**
      * Deletes an image by its unique identifier.
      *
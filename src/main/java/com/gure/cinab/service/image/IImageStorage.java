@@ -0,0 +1,67 @@
+package com.gure.cinab.service.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage for image content outside the database. Content is addressed by the hex SHA-256 of its
+ * bytes, so stored content never changes and identical uploads are stored once.
+ *
+ * @since 1.1.0
+ */
+public interface IImageStorage {
+
+    /**
+     * Stores the given content, hashing it while it is written. The content only becomes visible
+     * under its hash once it is completely written, and is durable once this method returns.
+     *
+     * @param content the content to store; it is read to the end but not closed
+     * @return the hash and size of the stored content
+     * @throws IOException if the content cannot be read or written
+     */
+    StoredContent store(InputStream content) throws IOException;
+
+    /**
+     * @param hash the hex SHA-256 of the content
+     * @return whether content with the given hash is stored
+     */
+    boolean contains(String hash);
+
+    /**
+     * Opens stored content for reading by byte range.
+     *
+     * @param hash the hex SHA-256 of the content
+     * @return the stored content
+     * @throws java.nio.file.NoSuchFileException if no content with the given hash is stored
+     * @throws IOException                       if the content cannot be opened
+     */
+    ImageContent open(String hash) throws IOException;
+
+    /**
+     * Returns the local file holding the content, for servers that can send a file without
+     * copying it through the JVM.
+     *
+     * @param hash the hex SHA-256 of the content
+     * @return the file, or empty if the content is not stored in a local file
+     */
+    Optional<Path> localFile(String hash);
+
+    /**
+     * Deletes stored content; content that is not stored is ignored.
+     *
+     * @param hash the hex SHA-256 of the content
+     * @throws IOException if the content cannot be deleted
+     */
+    void delete(String hash) throws IOException;
+
+    /**
+     * Hash and size of stored content.
+     *
+     * @param hash   the hex SHA-256 of the content
+     * @param length the size of the content in bytes
+     */
+    record StoredContent(String hash, long length) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.model.Image;
+import com.gure.cinab.repository.ImageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves image content that is still stored as database large objects to the {@link IImageStorage}
+ * in the background, one image per transaction, taking a reference to it and queueing its variants
+ * like an upload does. Images are only changed if they still hold the
+ * copied content, so uploads running at the same time are never overwritten. The database removes
+ * the large object once the image no longer references it (see the V7 migration), so an image only
+ * lets go of it after the storage has confirmed a durable copy of the full content.
+ * <p>
+ * Off by default: the storage root must be on a volume that outlives the application instance
+ * before the database copies are given up.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ImageBlobMigrator implements DisposableBean {
+
+    private final ImageRepository imageRepository;
+    private final IImageStorage imageStorage;
+    private final ImageContentReferences imageContentReferences;
+    private final ImageVariantPipeline imageVariantPipeline;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final boolean enabled;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public ImageBlobMigrator(ImageRepository imageRepository,
+                             IImageStorage imageStorage,
+                             ImageContentReferences imageContentReferences,
+                             ImageVariantPipeline imageVariantPipeline,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${cinab.image-storage.migration.batch-size:100}") int batchSize,
+                             @Value("${cinab.image-storage.migration.enabled:false}") boolean enabled,
+                             @Value("${cinab.image-storage.migration.interval:1m}") Duration interval) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.imageContentReferences = imageContentReferences;
+        this.imageVariantPipeline = imageVariantPipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.enabled = enabled;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts migrating once the application serves requests, and then again after every interval
+     * to pick up content written by application instances that still store it in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-blob-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::migrateAll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves the content of every image still stored in the database. An image that fails is
+     * logged and skipped until the next run.
+     *
+     * @return the number of images moved
+     */
+    public int migrateAll() {
+        int migrated = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            long from = afterId;
+            ids = transactionTemplate.execute(status -> imageRepository.findIdsWithBlobAfter(from, Limit.of(batchSize)));
+            for (Long id : ids) {
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> migrate(id)))) {
+                        migrated++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not move the content of image {} to the image storage", id, e);
+                }
+                afterId = id;
+            }
+        } while (ids.size() == batchSize && !Thread.currentThread().isInterrupted());
+        if (migrated > 0) {
+            log.info("Moved the content of {} images to the image storage", migrated);
+        }
+        return migrated;
+    }
+
+    private boolean migrate(Long id) {
+        Image image = imageRepository.findById(id).orElse(null);
+        if (image == null || image.getImage() == null) {
+            return false;
+        }
+        Blob blob = image.getImage();
+        IImageStorage.StoredContent stored;
+        try {
+            stored = imageContentReferences.store(() -> binaryStream(blob));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (image.getContentHash() != null && !image.getContentHash().equals(stored.hash())) {
+            throw new IllegalStateException("Content of image " + id + " does not match its hash " + image.getContentHash());
+        }
+        // Clearing the blob unlinks the large object, so the stored copy has to be complete first
+        if (stored.length() != length(blob) || !imageStorage.contains(stored.hash())) {
+            imageContentReferences.release(List.of(stored.hash()));
+            throw new IllegalStateException("Content of image " + id + " was not stored completely");
+        }
+        if (imageRepository.detachBlob(id, stored.hash(), stored.length()) == 1) {
+            imageVariantPipeline.schedule(id, stored.hash());
+            return true;
+        }
+        // The image got other content in the meantime
+        imageContentReferences.release(List.of(stored.hash()));
+        return false;
+    }
+
+    private static long length(Blob blob) {
+        try {
+            return blob.length();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read the size of an image", e);
+        }
+    }
+
+    private static InputStream binaryStream(Blob blob) throws IOException {
+        try {
+            return blob.getBinaryStream();
+        } catch (SQLException e) {
+            throw new IOException("Cannot read the content of an image", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.gure.cinab.service.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The stored content of one image, readable by byte range while
+ * {@link IImageService#readImageContent(Long, String, Reader)} runs.
+ *
+ * @since 1.1.0
+ */
+public interface ImageContent {
+
+    /**
+     * @return the size of the content in bytes
+     */
+    long length();
+
+    /**
+     * Copies a byte range of the content to the given stream in fixed-size chunks. Only the
+     * requested range is read from storage.
+     *
+     * @param out      the stream to write to; it is not closed
+     * @param position the zero-based offset of the first byte to copy
+     * @param count    the number of bytes to copy
+     * @throws IOException if the content cannot be read or written
+     */
+    void copyTo(OutputStream out, long position, long count) throws IOException;
+
+    /**
+     * Callback that reads the content of an image.
+     */
+    @FunctionalInterface
+    interface Reader {
+
+        void read(ImageContent content) throws IOException;
+    }
+}
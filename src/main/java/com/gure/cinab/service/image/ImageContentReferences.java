@@ -0,0 +1,148 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.event.ImageContentReleasedEvent;
+import com.gure.cinab.event.ImageContentStoredEvent;
+import com.gure.cinab.repository.ImageFileRepository;
+import com.gure.cinab.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reference counting of the content in the {@link IImageStorage}: identical content uploaded for
+ * any number of images is stored once, and deleted when the last image referencing it goes.
+ * <p>
+ * References are taken and released in the transaction that writes the images. Released content
+ * is deleted after that transaction commits, in a transaction of its own that locks the
+ * {@code image_file} row first: an upload taking a reference to the same content waits for the
+ * lock and then stores the file again if it was deleted. Content stored by a transaction that
+ * rolls back is deleted the same way.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageContentReferences {
+
+    private final IImageStorage imageStorage;
+    private final ImageFileRepository imageFileRepository;
+    private final ImageRepository imageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Stores content, hashing it while it streams to the storage, and takes a reference to it.
+     *
+     * @param source the content; it is read a second time if a concurrent release deleted the file
+     * @return the hash and size of the content
+     * @throws IOException if the content cannot be read or stored
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public IImageStorage.StoredContent store(InputStreamSource source) throws IOException {
+        IImageStorage.StoredContent stored;
+        try (InputStream in = source.getInputStream()) {
+            stored = imageStorage.store(in);
+        }
+        acquire(stored);
+        // The reference now keeps the file, but the last release may have deleted it just before
+        if (!imageStorage.contains(stored.hash())) {
+            try (InputStream in = source.getInputStream()) {
+                imageStorage.store(in);
+            }
+        }
+        eventPublisher.publishEvent(new ImageContentStoredEvent(stored.hash(), stored.length()));
+        return stored;
+    }
+
+    private void acquire(IImageStorage.StoredContent stored) {
+        // The row may be deleted between the insert and the update, so retry until the update counts
+        while (imageFileRepository.addReferences(stored.hash(), 1) == 0) {
+            imageFileRepository.insertIfAbsent(stored.hash(), stored.length());
+        }
+    }
+
+    /**
+     * Releases one reference per given hash; a hash may be given several times.
+     *
+     * @param hashes the hashes of the content the images no longer reference
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        // Rows are updated in hash order, so concurrent releases cannot deadlock
+        Map<String, Integer> counts = new TreeMap<>();
+        hashes.forEach(hash -> counts.merge(hash, 1, Integer::sum));
+        counts.forEach((hash, count) -> imageFileRepository.addReferences(hash, -count));
+        eventPublisher.publishEvent(new ImageContentReleasedEvent(counts.keySet()));
+    }
+
+    /**
+     * Releases the references of the images of the given products and of their variants, before
+     * they are deleted.
+     *
+     * @param productIds the IDs of the products
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseProducts(Collection<Long> productIds) {
+        List<String> hashes = new ArrayList<>(imageRepository.findStoredContentHashesByProductIdIn(productIds));
+        hashes.addAll(imageRepository.findVariantContentHashesByProductIdIn(productIds));
+        release(hashes);
+    }
+
+    /**
+     * Deletes released content that no image references anymore. A file that cannot be deleted
+     * keeps its row, and is deleted the next time the same content is released.
+     *
+     * @param event the committed release
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onImageContentReleased(ImageContentReleasedEvent event) {
+        new TreeSet<>(event.hashes()).forEach(this::deleteIfUnreferenced);
+    }
+
+    /**
+     * Deletes content whose reference was rolled back, unless other images reference it.
+     *
+     * @param event the rolled back store
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onImageContentStoreRolledBack(ImageContentStoredEvent event) {
+        // The row may be gone with the rollback; recording it again waits for a concurrent upload
+        // of the same content to commit, so its reference is seen under the lock
+        imageFileRepository.insertIfAbsent(event.hash(), event.length());
+        deleteIfUnreferenced(event.hash());
+    }
+
+    private void deleteIfUnreferenced(String hash) {
+        imageFileRepository.findByHashForUpdate(hash)
+                .filter(file -> file.getReferenceCount() <= 0)
+                .ifPresent(file -> {
+                    try {
+                        imageStorage.delete(hash);
+                        imageFileRepository.delete(file);
+                    } catch (IOException e) {
+                        log.warn("Could not delete unreferenced image content {}", hash, e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,106 @@
+package com.gure.cinab.service.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Decodes, scales down and encodes images with {@code javax.imageio}; JPEG sources stay JPEG and
+ * every other readable format is encoded as PNG.
+ *
+ * @since 1.1.0
+ */
+final class ImageResizer {
+
+    /**
+     * Images with more pixels are not decoded, so a small compressed upload cannot claim gigabytes
+     * of heap.
+     */
+    static final long MAX_PIXELS = 50_000_000L;
+
+    private ImageResizer() {
+    }
+
+    /**
+     * A decoded image and the format it is encoded in again.
+     */
+    record Decoded(BufferedImage image, boolean jpeg) {
+    }
+
+    /**
+     * An encoded variant.
+     */
+    record Encoded(byte[] content, String fileType, int width, int height) {
+    }
+
+    /**
+     * @param content the encoded image
+     * @return the decoded image, or empty if the format is not supported or the content is broken
+     */
+    static Optional<Decoded> decode(byte[] content) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return Optional.empty();
+                }
+                boolean jpeg = reader.getFormatName().equalsIgnoreCase("jpeg");
+                return Optional.of(new Decoded(reader.read(0), jpeg));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Retrying cannot fix content the decoder rejects
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Scales an image down so that its longer side is {@code maxDimension} pixels, halving it
+     * first while it is more than twice as large, as a single bilinear step would skip pixels.
+     */
+    static Encoded resize(Decoded source, int maxDimension) throws IOException {
+        BufferedImage image = source.image();
+        double scale = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        int type = source.jpeg() ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            current = scale(current, stepWidth, stepHeight, type);
+        } while (current.getWidth() > width || current.getHeight() > height);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String format = source.jpeg() ? "jpeg" : "png";
+        ImageIO.write(current, format, out);
+        return new Encoded(out.toByteArray(), "image/" + format, width, height);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
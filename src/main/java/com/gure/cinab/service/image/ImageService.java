@@ -1,27 +1,78 @@
 package com.gure.cinab.service.image;
 
 import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageDownload;
+import com.gure.cinab.dto.ImageStorageReportDTO;
+import com.gure.cinab.event.ProductChangedEvent;
 import com.gure.cinab.exceptions.ResourceNotFoundException;
 import com.gure.cinab.model.Image;
+import com.gure.cinab.model.ImageSize;
+import com.gure.cinab.model.ImageVariant;
 import com.gure.cinab.model.Product;
+import com.gure.cinab.repository.ImageFileRepository;
 import com.gure.cinab.repository.ImageRepository;
+import com.gure.cinab.repository.ProductRepository;
 import com.gure.cinab.service.product.IProductService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.sql.rowset.serial.SerialBlob;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Blob;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 public class ImageService implements IImageService {
 
+    /**
+     * Size of the buffer the image content is copied through on download.
+     */
+    static final int DOWNLOAD_CHUNK_SIZE = 8 * 1024;
+
+    private static final String DOWNLOAD_PATH = "/api/v1/images/image/download/";
+
     private final ImageRepository imageRepository;
+    private final ProductRepository productRepository;
     private final IProductService productService;
+    private final IImageStorage imageStorage;
+    private final ImageContentReferences imageContentReferences;
+    private final ImageFileRepository imageFileRepository;
+    private final ImageVariantPipeline imageVariantPipeline;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ImageService(ImageRepository imageRepository,
+                        ProductRepository productRepository,
+                        IProductService productService,
+                        IImageStorage imageStorage,
+                        ImageContentReferences imageContentReferences,
+                        ImageFileRepository imageFileRepository,
+                        ImageVariantPipeline imageVariantPipeline,
+                        ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager) {
+        this.imageRepository = imageRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.imageStorage = imageStorage;
+        this.imageContentReferences = imageContentReferences;
+        this.imageFileRepository = imageFileRepository;
+        this.imageVariantPipeline = imageVariantPipeline;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     @Override
     public Image getImageById(Long id) {
@@ -30,13 +81,135 @@ public class ImageService implements IImageService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public ImageDownload getImageDownload(Long id) {
+        return getImageDownload(id, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImageDownload getImageDownload(Long id, ImageSize variant) {
+        Image image = getImageById(id);
+        if (variant != null) {
+            for (ImageVariant generated : image.getVariants()) {
+                if (generated.getSize() == variant) {
+                    return new ImageDownload(image.getId(), variantFileName(image.getFileName(), variant, generated.getFileType()),
+                            generated.getFileType(), generated.getContentLength(), generated.getContentHash(),
+                            image.getContentHash(), variant);
+                }
+            }
+            // Not generated (yet), the original is sent instead
+        }
+        if (image.getContentLength() != null) {
+            return new ImageDownload(image.getId(), image.getFileName(), image.getFileType(),
+                    image.getContentLength(), image.getContentHash(), image.getContentHash(), null);
+        }
+        // Content that was not moved out of the database yet
+        try {
+            return new ImageDownload(image.getId(), image.getFileName(), image.getFileType(),
+                    blob(image).length(), image.getContentHash(), image.getContentHash(), null);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read the size of image " + id, e);
+        }
+    }
+
+    /**
+     * Names a variant after its original, e.g. {@code lamp-thumb.png}.
+     */
+    private static String variantFileName(String fileName, ImageSize variant, String fileType) {
+        String baseName = fileName == null ? "image" : fileName.replaceFirst("\\.[^.]*$", "");
+        String extension = fileType.equals("image/jpeg") ? ".jpg" : ".png";
+        return baseName + "-" + variant.paramValue() + extension;
+    }
+
+    @Override
+    public void readImageContent(Long id, String expectedContentHash, ImageContent.Reader reader) throws IOException {
+        if (expectedContentHash != null && imageStorage.contains(expectedContentHash)) {
+            // Stored content is named by its hash and never changes, so no transaction is needed to read it
+            reader.read(imageStorage.open(expectedContentHash));
+            return;
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    readBlob(id, expectedContentHash, reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImageStorageReportDTO getStorageReport() {
+        return imageFileRepository.getStorageReport();
+    }
+
+    @Override
+    public Optional<Path> findContentFile(String contentHash) {
+        return contentHash == null ? Optional.empty() : imageStorage.localFile(contentHash);
+    }
+
+    private void readBlob(Long id, String expectedContentHash, ImageContent.Reader reader) throws IOException {
+        Image image = getImageById(id);
+        if (!Objects.equals(image.getContentHash(), expectedContentHash)) {
+            throw new IOException("Image " + id + " changed during the download");
+        }
+        Blob blob = blob(image);
+        // Large objects can only be read inside the transaction that opened them
+        try {
+            reader.read(new BlobContent(id, blob, blob.length()));
+        } catch (SQLException e) {
+            throw new IOException("Cannot read image " + id, e);
+        }
+    }
+
+    private static Blob blob(Image image) {
+        if (image.getImage() == null) {
+            throw new ResourceNotFoundException("Image blob is null for imageId: " + image.getId());
+        }
+        return image.getImage();
+    }
+    /**
+     * Reads byte ranges of a large object through a buffer of {@link #DOWNLOAD_CHUNK_SIZE} bytes.
+     */
+    private record BlobContent(Long id, Blob blob, long length) implements ImageContent {
+
+        @Override
+        public void copyTo(OutputStream out, long position, long count) throws IOException {
+            if (count == 0) {
+                return;
+            }
+            // Blob positions are one-based
+            try (InputStream in = blob.getBinaryStream(position + 1, count)) {
+                byte[] buffer = new byte[DOWNLOAD_CHUNK_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (SQLException e) {
+                throw new IOException("Cannot read image " + id, e);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
     public void deleteImageById(Long id) {
-        imageRepository.findById(id).ifPresentOrElse(imageRepository::delete, () -> {
+        imageRepository.findForUpdateById(id).ifPresentOrElse(image -> {
+            release(image);
+            imageRepository.delete(image);
+            productChanged(image.getProduct().getId());
+        }, () -> {
             throw new ResourceNotFoundException("No image found with id: " + id);
         });
     }
 
     @Override
+    @Transactional
     public List<ImageDTO> saveImages( Long productId,List<MultipartFile> files) {
         Product product = productService.getProductById(productId);
         List<ImageDTO> savedImageDTOS = new ArrayList<>();
@@ -46,15 +219,13 @@ public class ImageService implements IImageService {
                 Image image = new Image();
                 image.setFileName(file.getOriginalFilename());
                 image.setFileType(file.getContentType());
-                image.setImage(new SerialBlob(file.getBytes()));
+                store(image, file);
                 image.setProduct(product);
 
-                String buildDownloadUrl = "/api/v1/images/image/download/";
-                String downloadUrl = buildDownloadUrl  + image.getId();
-                image.setDownloadUrl(downloadUrl);
                 Image savedImage = imageRepository.save(image);
-                savedImage.setDownloadUrl(buildDownloadUrl + savedImage.getId());
+                savedImage.setDownloadUrl(downloadUrl(savedImage));
                 imageRepository.save(savedImage);
+                imageVariantPipeline.schedule(savedImage.getId(), savedImage.getContentHash());
 
                 ImageDTO imageDTO = new ImageDTO();
                 imageDTO.setId(savedImage.getId());
@@ -63,26 +234,76 @@ public class ImageService implements IImageService {
 
                 savedImageDTOS.add(imageDTO);
 
-            } catch (IOException | SQLException e) {
+            } catch (IOException e) {
                 throw new RuntimeException(e.getMessage());
             }
         }
 
-
+        productChanged(productId);
         return savedImageDTOS;
     }
 
     @Override
+    @Transactional
     public void updateImage(MultipartFile file, Long imageId) {
-        Image image = getImageById(imageId);
+        // Locked, so variants being recorded for the old content are committed before they are released
+        Image image = imageRepository.findForUpdateById(imageId)
+                .orElseThrow(() -> new ResourceNotFoundException("No image found with id: " + imageId));
         try {
+            release(image);
             image.setFileName(file.getOriginalFilename());
-            image.setFileName(file.getOriginalFilename());
-            image.setImage(new SerialBlob(file.getBytes()));
+            image.setFileType(file.getContentType());
+            store(image, file);
+            // New content gets a new URL, so cached copies of the old one are never served for it
+            image.setDownloadUrl(downloadUrl(image));
             imageRepository.save(image);
-        } catch (IOException | SQLException e) {
+            imageVariantPipeline.schedule(image.getId(), image.getContentHash());
+        } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
+        productChanged(image.getProduct().getId());
+    }
+
+    /**
+     * Drops the references of an image to its stored content and variants; content still in the
+     * database has none.
+     */
+    private void release(Image image) {
+        List<String> hashes = new ArrayList<>();
+        if (image.getContentLength() != null) {
+            hashes.add(image.getContentHash());
+        }
+        image.getVariants().forEach(variant -> hashes.add(variant.getContentHash()));
+        imageContentReferences.release(hashes);
+        image.setWidth(null);
+        image.setHeight(null);
+        image.getVariants().clear();
+    }
+
+    /**
+     * The download URL names the content version, so responses for it never change.
+     */
+    private static String downloadUrl(Image image) {
+        return DOWNLOAD_PATH + image.getId() + "?v=" + image.getContentHash();
+    }
+
+    /**
+     * Streams the upload into the image storage; the database only records where it went. Content
+     * that is already stored is shared instead of stored again.
+     */
+    private void store(Image image, MultipartFile file) throws IOException {
+        IImageStorage.StoredContent stored = imageContentReferences.store(file);
+        image.setImage(null);
+        image.setContentHash(stored.hash());
+        image.setContentLength(stored.length());
+    }
 
+    /**
+     * Images are part of the product representation, so a new product version is recorded
+     * for every image change.
+     */
+    private void productChanged(Long productId) {
+        productRepository.touch(List.of(productId), Instant.now());
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId));
     }
 }
@@ -0,0 +1,256 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.ImageSize;
+import com.gure.cinab.model.ImageVariant;
+import com.gure.cinab.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the {@link ImageSize} variants of uploaded images in the background.
+ * <p>
+ * Jobs run on a fixed number of workers behind a bounded queue. A job the queue has no room for
+ * is deferred and submitted again after the retry delay, so uploads never wait for the workers.
+ * A failed job is retried with a growing delay; content that cannot be decoded is not.
+ * Published metrics: {@code cinab.image.variants.queue} (queued jobs),
+ * {@code cinab.image.variants.processing} (time to generate the variants of one image),
+ * {@code cinab.image.variants.latency} (time from the upload to its variants being ready) and
+ * {@code cinab.image.variants.jobs} (jobs by {@code outcome}).
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ImageVariantPipeline implements DisposableBean {
+
+    /**
+     * How a job ended.
+     */
+    enum Outcome {
+        COMPLETED, UNSUPPORTED, SKIPPED, DEFERRED, RETRIED, FAILED
+    }
+
+    private record Job(Long imageId, String contentHash, int attempt, long submittedNanos) {
+
+        Job retry() {
+            return new Job(imageId, contentHash, attempt + 1, submittedNanos);
+        }
+    }
+
+    private final IImageStorage imageStorage;
+    private final ImageContentReferences imageContentReferences;
+    private final ImageRepository imageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retries;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Timer processing;
+    private final Timer latency;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public ImageVariantPipeline(IImageStorage imageStorage,
+                                ImageContentReferences imageContentReferences,
+                                ImageRepository imageRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${cinab.image-variants.workers:2}") int workerCount,
+                                @Value("${cinab.image-variants.queue-capacity:500}") int queueCapacity,
+                                @Value("${cinab.image-variants.max-attempts:3}") int maxAttempts,
+                                @Value("${cinab.image-variants.retry-delay:30s}") Duration retryDelay) {
+        this.imageStorage = imageStorage;
+        this.imageContentReferences = imageContentReferences;
+        this.imageRepository = imageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                runnable -> daemon(runnable, "image-variants-" + threads.incrementAndGet()));
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "image-variants-retry"));
+
+        Gauge.builder("cinab.image.variants.queue", workers, executor -> executor.getQueue().size())
+                .description("Image variant jobs waiting for a worker")
+                .register(meterRegistry);
+        this.processing = Timer.builder("cinab.image.variants.processing")
+                .description("Time to generate the variants of one image")
+                .register(meterRegistry);
+        this.latency = Timer.builder("cinab.image.variants.latency")
+                .description("Time from an upload to its variants being ready, retries included")
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("cinab.image.variants.jobs")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Queues the generation of the variants of an image once the current transaction commits, so
+     * the job never reads content that was rolled back.
+     *
+     * @param imageId     the ID of the image
+     * @param contentHash the hash of the image's new content
+     */
+    public void schedule(Long imageId, String contentHash) {
+        Job job = new Job(imageId, contentHash, 1, System.nanoTime());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(job);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(job);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        retries.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void submit(Job job) {
+        try {
+            workers.execute(() -> run(job));
+        } catch (RejectedExecutionException queueFull) {
+            defer(job);
+        }
+    }
+
+    /**
+     * Submits a job the queue had no room for again after the retry delay. This does not count as
+     * an attempt, the job has not run.
+     */
+    private void defer(Job job) {
+        if (workers.isShutdown()) {
+            return;
+        }
+        try {
+            retries.schedule(() -> submit(job), retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            outcomes.get(Outcome.DEFERRED).increment();
+        } catch (RejectedExecutionException shutDown) {
+            outcomes.get(Outcome.FAILED).increment();
+        }
+    }
+
+    private void run(Job job) {
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = generate(job.imageId(), job.contentHash());
+        } catch (RuntimeException | IOException e) {
+            if (job.attempt() < maxAttempts && !retries.isShutdown()) {
+                log.warn("Generating the variants of image {} failed, attempt {} of {}", job.imageId(), job.attempt(), maxAttempts, e);
+                try {
+                    retries.schedule(() -> submit(job.retry()), retryDelay.toMillis() * job.attempt(), TimeUnit.MILLISECONDS);
+                    outcome = Outcome.RETRIED;
+                } catch (RejectedExecutionException shutDown) {
+                    outcome = Outcome.FAILED;
+                }
+            } else {
+                log.error("Giving up on the variants of image {}; downloads get the original", job.imageId(), e);
+                outcome = Outcome.FAILED;
+            }
+        }
+        long end = System.nanoTime();
+        processing.record(end - start, TimeUnit.NANOSECONDS);
+        if (outcome != Outcome.RETRIED) {
+            latency.record(end - job.submittedNanos(), TimeUnit.NANOSECONDS);
+        }
+        outcomes.get(outcome).increment();
+    }
+
+    /**
+     * Generates and records the variants of one image content, in a transaction of its own.
+     */
+    Outcome generate(Long imageId, String contentHash) throws IOException {
+        if (!imageStorage.contains(contentHash)) {
+            // Released, so the image was deleted or got other content since the job was queued
+            return Outcome.SKIPPED;
+        }
+        ImageContent content = imageStorage.open(contentHash);
+        ByteArrayOutputStream original = new ByteArrayOutputStream((int) Math.min(content.length(), Integer.MAX_VALUE));
+        content.copyTo(original, 0, content.length());
+        ImageResizer.Decoded decoded = ImageResizer.decode(original.toByteArray()).orElse(null);
+        if (decoded == null) {
+            return Outcome.UNSUPPORTED;
+        }
+
+        int width = decoded.image().getWidth();
+        int height = decoded.image().getHeight();
+        Map<ImageSize, ImageResizer.Encoded> encoded = new EnumMap<>(ImageSize.class);
+        for (ImageSize size : ImageSize.values()) {
+            // Never scaled up, the original is the better download then
+            if (Math.max(width, height) > size.getMaxDimension()) {
+                encoded.put(size, ImageResizer.resize(decoded, size.getMaxDimension()));
+            }
+        }
+        Boolean recorded = transactionTemplate.execute(status -> record(imageId, contentHash, width, height, encoded));
+        return Boolean.TRUE.equals(recorded) ? Outcome.COMPLETED : Outcome.SKIPPED;
+    }
+
+    private boolean record(Long imageId, String contentHash, int width, int height, Map<ImageSize, ImageResizer.Encoded> encoded) {
+        // Compare-and-set on the content hash, which also locks the row: a concurrent updateImage
+        // either committed first and the variants are dropped, or waits and releases them
+        if (imageRepository.updateDimensions(imageId, contentHash, width, height) == 0) {
+            return false;
+        }
+        Image image = imageRepository.findById(imageId).orElseThrow();
+        List<ImageVariant> variants = new ArrayList<>();
+        try {
+            for (Map.Entry<ImageSize, ImageResizer.Encoded> entry : encoded.entrySet()) {
+                ImageResizer.Encoded variant = entry.getValue();
+                IImageStorage.StoredContent stored = imageContentReferences.store(() -> new ByteArrayInputStream(variant.content()));
+                variants.add(new ImageVariant(entry.getKey(), variant.fileType(), stored.hash(), stored.length(),
+                        variant.width(), variant.height()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        imageContentReferences.release(image.getVariants().stream().map(ImageVariant::getContentHash).toList());
+        image.getVariants().clear();
+        image.getVariants().addAll(variants);
+        return true;
+    }
+}
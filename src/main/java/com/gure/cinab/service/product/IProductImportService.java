@@ -0,0 +1,29 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductImportReportDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Service interface for importing products in bulk.
+ *
+ * @since 1.1.0
+ */
+public interface IProductImportService {
+
+    /**
+     * Imports every product in the given file.
+     * <p>
+     * The file is read as a stream and inserted in batches, each batch in its own transaction.
+     * Rows that are malformed or rejected by the database are reported and skipped; the other
+     * rows of their batch are still imported.
+     * </p>
+     *
+     * @param input  the contents of the file
+     * @param format the format of the file
+     * @return how many products were imported and which rows were rejected
+     * @throws IOException if the file cannot be read
+     */
+    ProductImportReportDTO importProducts(InputStream input, ProductImportFormat format) throws IOException;
+}
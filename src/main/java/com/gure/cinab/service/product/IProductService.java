@@ -1,10 +1,18 @@
 package com.gure.cinab.service.product;
 
+import com.gure.cinab.dto.CollectionVersion;
+import com.gure.cinab.dto.CursorPageDTO;
 import com.gure.cinab.dto.ProductDTO;
 import com.gure.cinab.model.Product;
 import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFields;
+import com.gure.cinab.request.ProductFilter;
 import com.gure.cinab.request.ProductUpdateRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -30,6 +38,27 @@ public interface IProductService {
      */
     Product getProductById(Long id);
 
+    /**
+     * Retrieves a product by its ID, already converted to a DTO with its images.
+     * <p>
+     * Served from the product cache when possible; the entry is evicted once a write to the
+     * product or its images commits.
+     * </p>
+     *
+     * @param id the ID of the product to retrieve
+     * @return the product with the specified ID as a DTO
+     * @throws com.gure.cinab.exceptions.ResourceNotFoundException if no product with the ID exists
+     */
+    ProductDTO getProductDTOById(Long id);
+
+    /**
+     * Reads the aggregate version of the whole catalog, without loading any product. The version is
+     * cached until the next product change commits.
+     *
+     * @return the number of products, the sum of their versions and the latest update time
+     */
+    CollectionVersion getProductsVersion();
+
     /**
      * Deletes a product by its ID.
      *
@@ -48,53 +77,110 @@ public interface IProductService {
     Product updateProduct(ProductUpdateRequest product, Long id);
 
     /**
-     * Retrieves all products.
+     * Applies the same changes to every product matching a filter, with set-based {@code UPDATE} statements.
+     *
+     * @param request the filter selecting the products and the changes to apply
+     * @return the number of updated products
+     * @throws IllegalArgumentException if the filter is empty, no change is given or changes conflict
+     */
+    int bulkUpdateProducts(BulkProductUpdateRequest request);
+
+    /**
+     * Deletes every product matching a filter, along with their images, with set-based {@code DELETE} statements.
+     *
+     * @param filter the filter selecting the products
+     * @return the number of deleted products
+     * @throws IllegalArgumentException if the filter is empty
+     */
+    int bulkDeleteProducts(ProductFilter filter);
+
+    /**
+     * Retrieves a page of all products, sorted by ID.
      *
-     * @return a list of all products
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of products in the page
+     * @param fields the requested fields, see {@link ProductFields}
+     * @return the page of converted products and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of range
      */
-    List<Product> getAllProducts();
+    CursorPageDTO<ProductDTO> getAllProducts(String after, int limit, ProductFields fields);
 
     /**
-     * Retrieves products by their category.
+     * Retrieves a page of products by their category.
      *
      * @param category the category name (or identifier) for filtering the products
-     * @return a list of products that belong to the specified category
+     * @param after    the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of products in the page
+     * @param fields   the requested fields, see {@link ProductFields}
+     * @return a page of products that belong to the specified category
      */
-    List<Product> getProductsByCategory(String category);
+    CursorPageDTO<ProductDTO> getProductsByCategory(String category, String after, int limit, ProductFields fields);
 
     /**
-     * Retrieves products by their brand.
+     * Retrieves a page of products by their brand.
      *
-     * @param brand the brand of the products
-     * @return a list of products of the specified brand
+     * @param brand  the brand of the products
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of products in the page
+     * @param fields the requested fields, see {@link ProductFields}
+     * @return a page of products of the specified brand
      */
-    List<Product> getProductsByBrand(String brand);
+    CursorPageDTO<ProductDTO> getProductsByBrand(String brand, String after, int limit, ProductFields fields);
 
     /**
-     * Retrieves products by their category and brand.
+     * Retrieves a page of products by their category and brand.
      *
      * @param category the category of the products
      * @param brand    the brand of the products
-     * @return a list of products matching the specified category and brand
+     * @param after    the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of products in the page
+     * @param fields   the requested fields, see {@link ProductFields}
+     * @return a page of products matching the specified category and brand
      */
-    List<Product> getProductsByCategoryAndBrand(String category, String brand);
+    CursorPageDTO<ProductDTO> getProductsByCategoryAndBrand(String category, String brand, String after, int limit, ProductFields fields);
 
     /**
-     * Retrieves products by their name.
+     * Retrieves a page of products by their name.
      *
-     * @param name the name of the products
-     * @return a list of products matching the specified name
+     * @param name   the name of the products
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of products in the page
+     * @param fields the requested fields, see {@link ProductFields}
+     * @return a page of products matching the specified name
      */
-    List<Product> getProductsByName(String name);
+    CursorPageDTO<ProductDTO> getProductsByName(String name, String after, int limit, ProductFields fields);
 
     /**
-     * Retrieves products by their brand and name.
+     * Retrieves a page of products by their brand and name.
      *
-     * @param brand the brand of the products
-     * @param name  the name of the products
-     * @return a list of products matching the specified brand and name
+     * @param brand  the brand of the products
+     * @param name   the name of the products
+     * @param after  the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of products in the page
+     * @param fields the requested fields, see {@link ProductFields}
+     * @return a page of products matching the specified brand and name
+     */
+    CursorPageDTO<ProductDTO> getProductsByBrandAndName(String brand, String name, String after, int limit, ProductFields fields);
+
+    /**
+     * Retrieves the products with the given IDs, converted to DTOs with their images.
+     *
+     * @param ids the IDs of the products to retrieve
+     * @return the products that exist, sorted by ID
+     */
+    List<ProductDTO> getProductsByIds(Collection<Long> ids);
+
+    /**
+     * Writes the whole catalog to the given stream as newline-delimited JSON, one product per line.
+     * <p>
+     * Products are read with a scrolling query and converted in fixed-size batches, so memory use
+     * stays constant regardless of the catalog size.
+     * </p>
+     *
+     * @param out the stream to write the products to; it is flushed after every batch but not closed
+     * @throws IOException if writing to the stream fails
      */
-    List<Product> getProductsByBrandAndName(String brand, String name);
+    void exportCatalog(OutputStream out) throws IOException;
 
     /**
      * Counts the number of products by their brand and name.
@@ -116,6 +202,8 @@ public interface IProductService {
 
     /**
      * retrieves a list of converted products to DTO .
+     * The images of all products are fetched with a single query, so the number of
+     * statements does not grow with the size of the list.
      *
      * @param products the products as a list to be converted
      * @return streams a list of converted products
@@ -0,0 +1,175 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductRow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Holds the current version of a {@link ProductIndex} and keeps it in step with product changes,
+ * including the changes that commit while the index is being rebuilt.
+ * <p>
+ * A rebuild reads the catalog as of the moment its query starts. A change committing after that
+ * would be applied to the index being replaced and lost with it, so the IDs of every change seen
+ * during a rebuild are recorded and their rows are read again and applied once the new index is
+ * swapped in.
+ * </p>
+ * <p>
+ * Rows are read without holding any lock; only applying them is serialized. Every update takes a
+ * ticket before it reads, and a product is never set back to the rows of an update holding an
+ * older ticket than the last one applied to it: the newer update started reading after the older
+ * one's change had committed, so its rows are at least as recent.
+ * </p>
+ *
+ * @param <I> the type of the index
+ * @since 1.1.0
+ */
+public class LiveProductIndex<I extends ProductIndex> {
+
+    private final Supplier<I> emptyIndex;
+    private final Object rebuildLock = new Object();
+
+    private volatile I index;
+
+    // The fields below are guarded by this
+    private long lastTicket;
+    // The product IDs of the updates that have not finished yet, by ticket
+    private final NavigableMap<Long, Collection<Long>> inFlight = new TreeMap<>();
+    // The ticket of the last update applied to a product, kept while older updates are in flight
+    private final Map<Long, Long> appliedTickets = new HashMap<>();
+    // Null unless a rebuild is running
+    private Set<Long> changedDuringRebuild;
+
+    /**
+     * Creates a holder starting with an empty index.
+     *
+     * @param emptyIndex creates the empty indexes to start from and to rebuild into
+     */
+    public LiveProductIndex(Supplier<I> emptyIndex) {
+        this.emptyIndex = emptyIndex;
+        this.index = emptyIndex.get();
+    }
+
+    /**
+     * Returns the index currently answering queries.
+     *
+     * @return the current index
+     */
+    public I current() {
+        return index;
+    }
+
+    /**
+     * Builds a fresh index from the whole catalog, swaps it in once complete and then applies the
+     * products that changed in the meantime. Queries keep being answered from the previous index
+     * until the swap.
+     *
+     * @param catalog opens a stream over the rows of every product
+     * @param rows    reads the current rows of the given products; missing products have no row
+     * @return the new index
+     */
+    public I rebuild(Supplier<Stream<ProductRow>> catalog, Function<Collection<Long>, List<ProductRow>> rows) {
+        synchronized (rebuildLock) {
+            Set<Long> changed;
+            synchronized (this) {
+                // Recording starts before the catalog is read, so no change can fall in between.
+                // Updates already reading may apply rows older than the catalog after the swap
+                changedDuringRebuild = new HashSet<>();
+                inFlight.values().forEach(changedDuringRebuild::addAll);
+            }
+            I newIndex;
+            try {
+                newIndex = emptyIndex.get();
+                try (Stream<ProductRow> all = catalog.get()) {
+                    all.forEach(newIndex::index);
+                }
+            } finally {
+                synchronized (this) {
+                    changed = changedDuringRebuild;
+                    changedDuringRebuild = null;
+                }
+            }
+            synchronized (this) {
+                index = newIndex;
+            }
+            update(changed, rows);
+            return newIndex;
+        }
+    }
+
+    /**
+     * Applies the current rows of the changed products to the index; products that no longer
+     * exist are removed from it.
+     *
+     * @param productIds the IDs of the changed products
+     * @param rows       reads the current rows of the given products; missing products have no row
+     */
+    public void update(Collection<Long> productIds, Function<Collection<Long>, List<ProductRow>> rows) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        long ticket = begin(productIds);
+        try {
+            List<ProductRow> current = rows.apply(productIds);
+            synchronized (this) {
+                apply(ticket, productIds, current);
+            }
+        } finally {
+            end(ticket);
+        }
+    }
+
+    private synchronized long begin(Collection<Long> productIds) {
+        long ticket = ++lastTicket;
+        inFlight.put(ticket, productIds);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.addAll(productIds);
+        }
+        return ticket;
+    }
+
+    private void apply(long ticket, Collection<Long> productIds, List<ProductRow> current) {
+        I target = index;
+        Set<Long> removed = new HashSet<>(productIds);
+        for (ProductRow row : current) {
+            removed.remove(row.id());
+            if (isNewest(row.id(), ticket)) {
+                target.index(row);
+            }
+        }
+        for (Long productId : removed) {
+            if (isNewest(productId, ticket)) {
+                target.remove(productId);
+            }
+        }
+    }
+
+    private boolean isNewest(Long productId, long ticket) {
+        Long applied = appliedTickets.get(productId);
+        if (applied != null && applied > ticket) {
+            return false;
+        }
+        appliedTickets.put(productId, ticket);
+        return true;
+    }
+
+    private synchronized void end(long ticket) {
+        inFlight.remove(ticket);
+        if (inFlight.isEmpty()) {
+            appliedTickets.clear();
+        } else {
+            // Only updates older than a ticket can be turned away by it
+            long oldest = inFlight.firstKey();
+            appliedTickets.values().removeIf(applied -> applied <= oldest);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.config.CacheConfig;
+import com.gure.cinab.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+
+/**
+ * Evicts cached catalog entries when products change.
+ * <p>
+ * Runs only after the writing transaction has committed, so a rolled-back write never removes
+ * (or repopulates) cache entries. When a write happens outside of a transaction the eviction
+ * runs immediately.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheInvalidator {
+
+    /**
+     * Above this many changed products (bulk operations, imports) the product cache is cleared
+     * instead of evicting the products one by one.
+     */
+    static final int CLEAR_THRESHOLD = 1000;
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache products = cache(CacheConfig.PRODUCTS);
+        if (event.productIds().size() > CLEAR_THRESHOLD) {
+            products.clear();
+        } else {
+            event.productIds().forEach(products::evict);
+        }
+        // A product can move in or out of any brand or category page, so listings are cleared as a whole
+        cache(CacheConfig.PRODUCTS_BY_BRAND).clear();
+        cache(CacheConfig.PRODUCTS_BY_CATEGORY).clear();
+        cache(CacheConfig.PRODUCTS_VERSION).clear();
+    }
+
+    private Cache cache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), "Missing cache: " + name);
+    }
+}
@@ -0,0 +1,78 @@
+package com.gure.cinab.service.product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors used by the keyset paginated product listings.
+ * <p>
+ * A cursor wraps the ID of the last product of a page. Listings are sorted by ID, so the next
+ * page is a range scan starting after that ID and costs the same no matter how deep it is.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public final class ProductCursor {
+
+    /**
+     * The page size used when the client does not ask for one.
+     */
+    public static final String DEFAULT_LIMIT = "50";
+
+    /**
+     * The largest page size a client may ask for.
+     */
+    public static final int MAX_LIMIT = 500;
+
+    private static final String PREFIX = "p:";
+
+    private ProductCursor() {
+    }
+
+    /**
+     * Creates the cursor pointing after the given product ID.
+     *
+     * @param lastId the ID of the last product of the page
+     * @return the opaque cursor
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the product ID out of a cursor.
+     *
+     * @param cursor the cursor received from the client, may be {@code null} or blank for the first page
+     * @return the ID after which the page starts, {@code 0} for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Validates a requested page size.
+     *
+     * @param limit the page size requested by the client
+     * @return the page size
+     * @throws IllegalArgumentException if the limit is not between 1 and {@link #MAX_LIMIT}
+     */
+    public static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+}
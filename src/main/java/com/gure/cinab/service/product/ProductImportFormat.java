@@ -0,0 +1,41 @@
+package com.gure.cinab.service.product;
+
+import org.springframework.http.MediaType;
+
+/**
+ * File formats accepted by the bulk product import.
+ * <p>
+ * Both formats carry the fields {@code name}, {@code brand}, {@code price}, {@code inventory},
+ * {@code description} and {@code category}. CSV files start with a header row naming the columns;
+ * in NDJSON the category may be given as a name or as an object with a {@code name} field.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public enum ProductImportFormat {
+
+    CSV,
+    NDJSON;
+
+    /**
+     * The media type of CSV imports.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * Picks the format matching the content type of an upload.
+     *
+     * @param contentType the content type of the upload
+     * @return the matching format
+     * @throws IllegalArgumentException if the content type is not supported
+     */
+    public static ProductImportFormat of(MediaType contentType) {
+        if (MediaType.valueOf(TEXT_CSV_VALUE).isCompatibleWith(contentType)) {
+            return CSV;
+        }
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+}
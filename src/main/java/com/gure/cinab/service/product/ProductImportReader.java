@@ -0,0 +1,173 @@
+package com.gure.cinab.service.product;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads the rows of a bulk product import one at a time, so files of any size are processed in
+ * constant memory.
+ * <p>
+ * A row that cannot be parsed or misses a required field is returned with an error instead of a
+ * request, and reading carries on with the next row.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+final class ProductImportReader implements Closeable {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    /**
+     * One row of the import.
+     *
+     * @param number  the 1-based number of the row, not counting the CSV header
+     * @param request the product described by the row, or {@code null} if the row was rejected
+     * @param error   why the row was rejected, or {@code null}
+     */
+    record Row(long number, AddProductRequest request, String error) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final BufferedReader lines;
+    private final MappingIterator<Map<String, String>> csvRecords;
+    private long rowNumber;
+
+    private ProductImportReader(ObjectMapper objectMapper, BufferedReader lines,
+                                MappingIterator<Map<String, String>> csvRecords) {
+        this.objectMapper = objectMapper;
+        this.lines = lines;
+        this.csvRecords = csvRecords;
+    }
+
+    static ProductImportReader open(InputStream input, ProductImportFormat format, ObjectMapper objectMapper)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (format == ProductImportFormat.NDJSON) {
+            return new ProductImportReader(objectMapper, reader, null);
+        }
+        MappingIterator<Map<String, String>> records = CSV_MAPPER.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader);
+        return new ProductImportReader(objectMapper, reader, records);
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return the next row, or {@code null} at the end of the input
+     * @throws IOException if the input cannot be read any further
+     */
+    Row next() throws IOException {
+        return csvRecords != null ? nextCsvRow() : nextNdjsonRow();
+    }
+
+    private Row nextCsvRow() throws IOException {
+        if (!csvRecords.hasNextValue()) {
+            return null;
+        }
+        rowNumber++;
+        Map<String, String> fields;
+        try {
+            fields = csvRecords.nextValue();
+        } catch (JacksonException e) {
+            // The iterator skips the rest of the broken record before reading the next one
+            return rejected("Malformed CSV: " + e.getOriginalMessage());
+        }
+        return toRow(fields.get("name"), fields.get("brand"), fields.get("price"), fields.get("inventory"),
+                fields.get("description"), fields.get("category"));
+    }
+
+    private Row nextNdjsonRow() throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        rowNumber++;
+
+        JsonNode fields;
+        try {
+            fields = objectMapper.readTree(line);
+        } catch (JacksonException e) {
+            return rejected("Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (!fields.isObject()) {
+            return rejected("Expected a JSON object");
+        }
+        JsonNode category = fields.path("category");
+        return toRow(text(fields.get("name")), text(fields.get("brand")), text(fields.get("price")),
+                text(fields.get("inventory")), text(fields.get("description")),
+                text(category.isObject() ? category.get("name") : category));
+    }
+
+    private Row toRow(String name, String brand, String price, String inventory, String description, String category) {
+        if (isBlank(name)) {
+            return rejected("Missing name");
+        }
+        if (isBlank(category)) {
+            return rejected("Missing category");
+        }
+        if (isBlank(price)) {
+            return rejected("Missing price");
+        }
+        AddProductRequest request = new AddProductRequest();
+        request.setName(name.trim());
+        request.setBrand(isBlank(brand) ? null : brand.trim());
+        request.setDescription(description);
+        request.setCategory(new Category(category.trim()));
+        try {
+            request.setPrice(new BigDecimal(price.trim()));
+        } catch (NumberFormatException e) {
+            return rejected("Invalid price: " + price);
+        }
+        if (request.getPrice().signum() < 0) {
+            return rejected("Negative price: " + price);
+        }
+        try {
+            request.setInventory(isBlank(inventory) ? 0 : Integer.parseInt(inventory.trim()));
+        } catch (NumberFormatException e) {
+            return rejected("Invalid inventory: " + inventory);
+        }
+        if (request.getInventory() < 0) {
+            return rejected("Negative inventory: " + inventory);
+        }
+        return new Row(rowNumber, request, null);
+    }
+
+    private Row rejected(String error) {
+        return new Row(rowNumber, null, error);
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csvRecords != null) {
+            csvRecords.close();
+        }
+        lines.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.gure.cinab.service.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gure.cinab.dto.ProductImportErrorDTO;
+import com.gure.cinab.dto.ProductImportReportDTO;
+import com.gure.cinab.event.ProductChangedEvent;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Product;
+import com.gure.cinab.repository.ProductRepository;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.category.CategoryResolver;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class importing products in bulk from CSV or NDJSON files.
+ * <p>
+ * Rows are inserted in batches of {@code cinab.import.batch-size}, one transaction per batch.
+ * Within a batch each category is resolved once, product IDs come from the pooled
+ * {@code product_seq} allocation and the inserts are sent as JDBC batches. If a batch fails,
+ * its rows are retried one by one so that only the offending rows are rejected.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Service
+public class ProductImportService implements IProductImportService {
+
+    /**
+     * Upper bound on the errors listed in a report, to keep the response small for a badly broken file.
+     */
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductRepository productRepository;
+    private final CategoryResolver categoryResolver;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryResolver categoryResolver,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${cinab.import.batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.categoryResolver = categoryResolver;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public ProductImportReportDTO importProducts(InputStream input, ProductImportFormat format) throws IOException {
+        ProductImportReportDTO report = new ProductImportReportDTO();
+        List<ProductImportReader.Row> batch = new ArrayList<>(batchSize);
+        try (ProductImportReader reader = ProductImportReader.open(input, format, objectMapper)) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                if (row.error() != null) {
+                    reject(report, row.number(), row.error());
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    importBatch(batch, report);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, report);
+        }
+        return report;
+    }
+
+    private void importBatch(List<ProductImportReader.Row> batch, ProductImportReportDTO report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            report.setImported(report.getImported() + batch.size());
+        } catch (RuntimeException batchFailure) {
+            // Some row broke the batch, retry them one by one to find out which
+            for (ProductImportReader.Row row : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row)));
+                    report.setImported(report.getImported() + 1);
+                } catch (RuntimeException rowFailure) {
+                    reject(report, row.number(), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the products of the given rows in the current transaction.
+     */
+    private void insert(List<ProductImportReader.Row> rows) {
+        Map<String, Category> categories = new HashMap<>();
+        List<Product> products = new ArrayList<>(rows.size());
+        for (ProductImportReader.Row row : rows) {
+            AddProductRequest request = row.request();
+            Category category = categories.computeIfAbsent(request.getCategory().getName(), categoryResolver::resolve);
+            products.add(new Product(request.getName(), request.getBrand(), request.getPrice(),
+                    request.getInventory(), request.getDescription(), category));
+        }
+        productRepository.saveAll(products);
+        // Surface constraint violations here rather than from the commit
+        entityManager.flush();
+        eventPublisher.publishEvent(new ProductChangedEvent(products.stream().map(Product::getId).toList()));
+    }
+
+    private static void reject(ProductImportReportDTO report, long rowNumber, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ProductImportErrorDTO(rowNumber, message));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductRow;
+
+/**
+ * An in-memory index over product rows, kept current by a {@link LiveProductIndex}.
+ *
+ * @since 1.1.0
+ */
+public interface ProductIndex {
+
+    /**
+     * Adds a product to the index, replacing the previous version of it if there is one.
+     *
+     * @param row the product to index
+     */
+    void index(ProductRow row);
+
+    /**
+     * Removes a product from the index; does nothing if it is not indexed.
+     *
+     * @param productId the ID of the product to remove
+     */
+    void remove(Long productId);
+}
@@ -1,31 +1,62 @@
 package com.gure.cinab.service.product;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gure.cinab.config.CacheConfig;
+import com.gure.cinab.config.ReadYourWrites;
+import com.gure.cinab.dto.CollectionVersion;
+import com.gure.cinab.dto.CursorPageDTO;
 import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageRow;
 import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.event.ProductChangedEvent;
 import com.gure.cinab.exceptions.ResourceNotFoundException;
+import com.gure.cinab.mapper.ProductMapper;
 import com.gure.cinab.model.Category;
-import com.gure.cinab.model.Image;
 import com.gure.cinab.model.Product;
 
-import com.gure.cinab.repository.CategoryRepository;
 import com.gure.cinab.repository.ImageRepository;
 import com.gure.cinab.repository.ProductRepository;
+import com.gure.cinab.repository.ProductViewRepository;
 import com.gure.cinab.request.AddProductRequest;
 
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFields;
+import com.gure.cinab.request.ProductFilter;
 import com.gure.cinab.request.ProductUpdateRequest;
+import com.gure.cinab.service.category.CategoryResolver;
+import com.gure.cinab.service.image.ImageContentReferences;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class responsible for managing products in the system.
  * This class contains business logic for adding, updating, deleting, and retrieving products.
- * It interacts with the {@link ProductRepository} for data persistence and the {@link CategoryRepository}
- * for managing product categories.
+ * It interacts with the {@link ProductRepository} for data persistence and the {@link CategoryResolver}
+ * for resolving product categories.
+ * <p>
+ * Catalog reads are served from the {@code product_view} read model through the
+ * {@link ProductViewRepository}: one indexed scan of one table per page, images included. The
+ * read model is rebuilt by {@link ProductViewUpdater} in every writing transaction.
+ * </p>
  *
  * @since 1.0
  */
@@ -33,23 +64,29 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ProductService implements IProductService {
 
+    /**
+     * Number of products converted and written per batch by {@link #exportCatalog(OutputStream)}.
+     */
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final ProductViewRepository productViewRepository;
     private final ImageRepository imageRepository;
-    private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final ImageContentReferences imageContentReferences;
+    private final CategoryResolver categoryResolver;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public Product addProduct(AddProductRequest request) {
-        //Check to see if category is found in db
-        Category category = Optional.ofNullable(categoryRepository.findByName(request.getCategory().getName()))
-                .orElseGet(() -> {
-                    Category newCategory = new Category(request.getCategory().getName());
-                    return categoryRepository.save(newCategory);
-                });
-        //if yes, set it as the new product category
+        //Look the category up by name, creating it if it does not exist yet
+        Category category = categoryResolver.resolve(request.getCategory().getName());
         request.setCategory(category);
-        //if no then save it as a new category then set it as new product category
-        return productRepository.save(createProduct(request, category));
+        Product savedProduct = productRepository.save(createProduct(request, category));
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
+        return savedProduct;
     }
 
     /**
@@ -78,20 +115,120 @@ public class ProductService implements IProductService {
     }
 
     @Override
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    public ProductDTO getProductDTOById(Long id) {
+        return productViewRepository.findRowById(id)
+                .map(row -> productMapper.toDTO(row, row.images()))
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found!"));
+    }
+
+    @Override
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_VERSION, key = "'all'")
+    public CollectionVersion getProductsVersion() {
+        return productRepository.findCollectionVersion();
+    }
+
+    @Override
+    @Transactional
     public void deleteProduct(Long id) {
         productRepository.findById(id)
-                .ifPresentOrElse(productRepository::delete,
+                .ifPresentOrElse(product -> {
+                            // The images go with the product
+                            imageContentReferences.releaseProducts(List.of(id));
+                            productRepository.delete(product);
+                        },
                         () -> {
                             throw new ResourceNotFoundException("Product not found!");
                         });
+        eventPublisher.publishEvent(ProductChangedEvent.of(id));
     }
 
     @Override
+    @Transactional
     public Product updateProduct(ProductUpdateRequest request, Long productId) {
-        return productRepository.findById(productId)
+        Product updatedProduct = productRepository.findById(productId)
                 .map(existingProduct -> updateExistingProduct(existingProduct, request))
                 .map(productRepository::save)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found!"));
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId));
+        return updatedProduct;
+    }
+
+    @Override
+    @Transactional
+    public int bulkUpdateProducts(BulkProductUpdateRequest request) {
+        checkChanges(request);
+        List<Long> ids = findIds(request.getFilter());
+        Category category = request.getCategory() == null ? null : categoryResolver.resolve(request.getCategory());
+        int updated = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            updated += productRepository.updateAll(chunk, request, category);
+        }
+        publishChanged(ids);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int bulkDeleteProducts(ProductFilter filter) {
+        List<Long> ids = findIds(filter);
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            imageContentReferences.releaseProducts(chunk);
+            imageRepository.bulkDeleteVariantsByProductIdIn(chunk);
+            imageRepository.bulkDeleteByProductIdIn(chunk);
+            deleted += productRepository.bulkDeleteByIdIn(chunk);
+        }
+        publishChanged(ids);
+        return deleted;
+    }
+
+    private static void checkChanges(BulkProductUpdateRequest request) {
+        if (request.getPrice() != null && request.getPriceChangePercent() != null) {
+            throw new IllegalArgumentException("Set either price or priceChangePercent, not both");
+        }
+        if (request.getInventory() != null && request.getInventoryChange() != null) {
+            throw new IllegalArgumentException("Set either inventory or inventoryChange, not both");
+        }
+        if (request.getPrice() == null && request.getPriceChangePercent() == null
+                && request.getInventory() == null && request.getInventoryChange() == null
+                && request.getBrand() == null && request.getCategory() == null) {
+            throw new IllegalArgumentException("No change given");
+        }
+    }
+
+    /**
+     * Resolves a bulk operation filter to the IDs of the matching products.
+     */
+    private List<Long> findIds(ProductFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("A bulk operation needs an ids, brand or category filter");
+        }
+        if (filter.getIds() == null || filter.getIds().isEmpty()) {
+            return productRepository.findIdsByBrandAndCategory(filter.getBrand(), filter.getCategory());
+        }
+        List<Long> ids = new ArrayList<>();
+        for (List<Long> chunk : chunks(filter.getIds())) {
+            ids.addAll(productRepository.findIdsByIdInAndBrandAndCategory(chunk, filter.getBrand(), filter.getCategory()));
+        }
+        return ids;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ProductRepository.ID_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + ProductRepository.ID_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private void publishChanged(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            // One event for the whole operation, so caches are invalidated in one go
+            eventPublisher.publishEvent(new ProductChangedEvent(ids));
+        }
     }
 
     /**
@@ -108,7 +245,7 @@ public class ProductService implements IProductService {
         existingProduct.setInventory(request.getInventory());
         existingProduct.setDescription(request.getDescription());
 
-        Category category = categoryRepository.findByName(request.getCategory().getName());
+        Category category = categoryResolver.resolve(request.getCategory().getName());
         existingProduct.setCategory(category);
 
         return existingProduct;
@@ -116,56 +253,174 @@ public class ProductService implements IProductService {
 
 
     @Override
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getAllProducts(String after, int limit, ProductFields fields) {
+        return getPage(after, limit, rows(fields, null, null, null, (afterId, pageLimit) ->
+                productViewRepository.findRowsAfter(afterId, pageLimit)));
     }
 
     @Override
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategoryName(category);
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_BY_CATEGORY, key = "{#category, #after, #limit, #fields}")
+    public CursorPageDTO<ProductDTO> getProductsByCategory(String category, String after, int limit, ProductFields fields) {
+        return getPage(after, limit, rows(fields, category, null, null, (afterId, pageLimit) ->
+                productViewRepository.findRowsByCategoryName(category, afterId, pageLimit)));
     }
 
     @Override
-    public List<Product> getProductsByBrand(String brand) {
-        return productRepository.findByBrand(brand);
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_BY_BRAND, key = "{#brand, #after, #limit, #fields}")
+    public CursorPageDTO<ProductDTO> getProductsByBrand(String brand, String after, int limit, ProductFields fields) {
+        return getPage(after, limit, rows(fields, null, brand, null, (afterId, pageLimit) ->
+                productViewRepository.findRowsByBrand(brand, afterId, pageLimit)));
     }
 
     @Override
-    public List<Product> getProductsByCategoryAndBrand(String category, String brand) {
-        return productRepository.findByCategoryNameAndBrand(category, brand);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsByCategoryAndBrand(String category, String brand, String after, int limit,
+                                                                   ProductFields fields) {
+        return getPage(after, limit, rows(fields, category, brand, null, (afterId, pageLimit) ->
+                productViewRepository.findRowsByCategoryNameAndBrand(category, brand, afterId, pageLimit)));
     }
 
     @Override
-    public List<Product> getProductsByName(String name) {
-        return productRepository.findByName(name);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsByName(String name, String after, int limit, ProductFields fields) {
+        return getPage(after, limit, rows(fields, null, null, name, (afterId, pageLimit) ->
+                productViewRepository.findRowsByName(name, afterId, pageLimit)));
     }
 
     @Override
-    public List<Product> getProductsByBrandAndName(String brand, String name) {
-        return productRepository.findByBrandAndName(brand, name);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsByBrandAndName(String brand, String name, String after, int limit,
+                                                               ProductFields fields) {
+        return getPage(after, limit, rows(fields, null, brand, name, (afterId, pageLimit) ->
+                productViewRepository.findRowsByBrandAndName(brand, name, afterId, pageLimit)));
     }
 
     @Override
-    public Long countProductsByBrandAndName(String brand, String name) {
-        return productRepository.countByBrandAndName(brand, name);
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getProductsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return convertRows(productViewRepository.findRowsByIdIn(ids));
+    }
+
+    /**
+     * Picks the listing query for a fieldset: the full row query for the full representation,
+     * otherwise the query that selects only the requested columns with the same filters.
+     */
+    private BiFunction<Long, Limit, List<ProductRow>> rows(ProductFields fields, String category, String brand, String name,
+                                                           BiFunction<Long, Limit, List<ProductRow>> fullQuery) {
+        if (fields.isAll()) {
+            return fullQuery;
+        }
+        return (afterId, pageLimit) -> productViewRepository.findRows(fields, category, brand, name, afterId, pageLimit);
     }
+
+    /**
+     * Runs a keyset paginated query and converts the result into a page of DTOs.
+     * <p>
+     * One extra row is requested so that the next cursor is only handed out when another page exists.
+     * </p>
+     *
+     * @param after  the cursor of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of products in the page
+     * @param query  the repository query, called with the ID to start after and the row limit
+     * @return the page of converted products
+     */
+    private CursorPageDTO<ProductDTO> getPage(String after, int limit, BiFunction<Long, Limit, List<ProductRow>> query) {
+        long afterId = ProductCursor.decode(after);
+        int pageSize = ProductCursor.checkLimit(limit);
+
+        List<ProductRow> rows = query.apply(afterId, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = hasMore ? ProductCursor.encode(page.get(page.size() - 1).id()) : null;
+        return new CursorPageDTO<>(convertRows(page), nextCursor);
+    }
+
+    /**
+     * Converts read model rows into DTOs. The images come with the rows, unless a sparse fieldset
+     * left them out.
+     */
+    private List<ProductDTO> convertRows(List<ProductRow> rows) {
+        return rows.stream().map(row -> productMapper.toDTO(row, row.images())).toList();
+    }
+
+    /**
+     * Loads the image metadata of several products in one query and groups it by product ID.
+     */
+    private Map<Long, List<ImageDTO>> getImagesByProductId(List<Long> productIds) {
+        return imageRepository.findRowsByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(ImageRow::productId,
+                        Collectors.mapping(productMapper::toDTO, Collectors.toList())));
+    }
+
     @Override
-    public List<ProductDTO> getConvertedProducts(List<Product> products){
-        return products.stream().map(this::convertToDTO).toList();
+    @Transactional(readOnly = true)
+    public void exportCatalog(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ProductDTO.class);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        try (Stream<ProductRow> rows = productViewRepository.streamRowsOrderById()) {
+            List<ProductRow> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+            Iterator<ProductRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == EXPORT_BATCH_SIZE) {
+                    writeBatch(batch, writer, generator);
+                }
+            }
+            writeBatch(batch, writer, generator);
+        }
+        generator.close();
+    }
+
+    /**
+     * Converts one export batch, writes it out and releases it, so that memory does not grow with
+     * the number of rows read. Rows are projections, so nothing piles up in the persistence context
+     * either.
+     */
+    private void writeBatch(List<ProductRow> batch, ObjectWriter writer, JsonGenerator generator) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (ProductDTO productDTO : convertRows(batch)) {
+            writer.writeValue(generator, productDTO);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        batch.clear();
     }
 
     @Override
-    public ProductDTO convertToDTO(Product product) {
+    public Long countProductsByBrandAndName(String brand, String name) {
+        return productRepository.countByBrandAndName(brand, name);
+    }
+    @Override
+    public List<ProductDTO> getConvertedProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        // Load the images of every product in one query and group them by product id,
+        // instead of running one image query per product
+        Map<Long, List<ImageDTO>> imagesByProductId = getImagesByProductId(products.stream().map(Product::getId).toList());
 
-        ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
-        List<Image> images = imageRepository.findByProductId(product.getId());
-        List<ImageDTO> imageDTOs = images
-                .stream()
-                .map(image -> modelMapper.map(image, ImageDTO.class))
+        return products.stream()
+                .map(product -> productMapper.toDTO(product, imagesByProductId.getOrDefault(product.getId(), List.of())))
                 .toList();
+    }
 
-        productDTO.setImages(imageDTOs);
-        return productDTO;
+    @Override
+    public ProductDTO convertToDTO(Product product) {
+        List<ImageDTO> imageDTOs = getImagesByProductId(List.of(product.getId()))
+                .getOrDefault(product.getId(), List.of());
+        return productMapper.toDTO(product, imageDTOs);
     }
 
 }
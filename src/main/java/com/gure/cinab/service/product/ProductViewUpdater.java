@@ -0,0 +1,94 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageRow;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.event.ProductChangedEvent;
+import com.gure.cinab.mapper.ProductMapper;
+import com.gure.cinab.model.ProductView;
+import com.gure.cinab.repository.ImageRepository;
+import com.gure.cinab.repository.ProductRepository;
+import com.gure.cinab.repository.ProductViewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link ProductView} read model in step with the product, category and image tables.
+ * <p>
+ * Every write path publishes a {@link ProductChangedEvent}; the rows of those products are rebuilt
+ * just before the writing transaction commits, so the read model commits (or rolls back) together
+ * with the change. A chunk of products costs three reads (the products, their images and their
+ * current rows) plus the row writes; products that no longer exist lose their row. An event
+ * published outside a transaction is not dropped: its rows are rebuilt in a transaction of their own.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductViewUpdater {
+
+    private final ProductRepository productRepository;
+    private final ImageRepository imageRepository;
+    private final ProductViewRepository productViewRepository;
+    private final ProductMapper productMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            refresh(event.productIds());
+        } else {
+            // The change has already been committed, so the rows can only follow it
+            transactionTemplate.executeWithoutResult(status -> refresh(event.productIds()));
+        }
+    }
+
+    /**
+     * Rebuilds the rows of the given products. Must run inside the transaction that changed them.
+     *
+     * @param productIds the IDs of the products to rebuild
+     */
+    public void refresh(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().distinct().toList();
+        for (int from = 0; from < ids.size(); from += ProductRepository.ID_CHUNK_SIZE) {
+            refreshChunk(ids.subList(from, Math.min(from + ProductRepository.ID_CHUNK_SIZE, ids.size())));
+        }
+    }
+
+    private void refreshChunk(List<Long> ids) {
+        // The queries flush the pending changes of the transaction first, so they read its final state
+        List<ProductRow> rows = productRepository.findRowsByIdIn(ids);
+        Map<Long, List<ImageDTO>> imagesByProductId = imageRepository.findRowsByProductIdIn(ids)
+                .stream()
+                .collect(Collectors.groupingBy(ImageRow::productId,
+                        Collectors.mapping(productMapper::toDTO, Collectors.toList())));
+        Map<Long, ProductView> views = productViewRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(ProductView::getId, Function.identity()));
+
+        List<ProductView> changed = new ArrayList<>(rows.size());
+        for (ProductRow row : rows) {
+            ProductView view = views.remove(row.id());
+            if (view == null) {
+                view = new ProductView(row.id());
+            }
+            view.update(row, imagesByProductId.getOrDefault(row.id(), List.of()));
+            changed.add(view);
+        }
+        productViewRepository.saveAll(changed);
+        // Whatever is left belongs to deleted products
+        productViewRepository.deleteAllInBatch(views.values());
+    }
+}
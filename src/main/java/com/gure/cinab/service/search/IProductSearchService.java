@@ -0,0 +1,36 @@
+package com.gure.cinab.service.search;
+
+import com.gure.cinab.dto.ProductSearchHitDTO;
+
+import java.util.List;
+
+/**
+ * Service interface for free-text product search.
+ *
+ * @since 1.1.0
+ */
+public interface IProductSearchService {
+
+    /**
+     * The number of hits returned when the client does not ask for a limit.
+     */
+    String DEFAULT_LIMIT = "20";
+
+    /**
+     * The largest number of hits a client may ask for.
+     */
+    int MAX_LIMIT = 100;
+
+    /**
+     * Searches product names, brands and descriptions.
+     * <p>
+     * Served entirely from an in-memory index; no SQL runs on the query path.
+     * </p>
+     *
+     * @param query the free-text query; must not be blank
+     * @param limit the maximum number of hits, between 1 and {@link #MAX_LIMIT}
+     * @return the matching products, best match first
+     * @throws IllegalArgumentException if the query is blank or the limit is out of range
+     */
+    List<ProductSearchHitDTO> search(String query, int limit);
+}
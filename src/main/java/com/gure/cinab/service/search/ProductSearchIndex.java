@@ -0,0 +1,319 @@
+package com.gure.cinab.service.search;
+
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.service.product.ProductIndex;
+import com.gure.cinab.dto.ProductSearchHitDTO;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the name, brand and description of products.
+ * <p>
+ * Text is split on anything that is not a letter or digit, case-folded and stripped of accents.
+ * Every indexed product gets an internal document number; each term maps to a posting list of
+ * document numbers and field-weighted term frequencies, kept in primitive {@code int} arrays.
+ * Queries score matching documents with TF-IDF and favour documents matching more query terms.
+ * </p>
+ * <p>
+ * Updating a product appends a new document and marks the old one as deleted. Once deleted
+ * documents outnumber live ones, the index compacts itself. Reads and writes are guarded by a
+ * read/write lock, so searches run concurrently with each other.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ProductSearchIndex implements ProductIndex {
+
+    static final int NAME_WEIGHT = 3;
+    static final int BRAND_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> documentByProductId = new HashMap<>();
+    private final List<IndexedProduct> documents = new ArrayList<>();
+    private final BitSet live = new BitSet();
+
+    /**
+     * Adds a product to the index, replacing the previous version of it if there is one.
+     *
+     * @param row the product to index
+     */
+    @Override
+    public void index(ProductRow row) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(row.id());
+            addDocument(new IndexedProduct(row.id(), row.name(), row.brand(), row.price(), row.description()));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index; does nothing if it is not indexed.
+     *
+     * @param productId the ID of the product to remove
+     */
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of products currently in the index.
+     *
+     * @return the number of indexed products
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the index.
+     *
+     * @param query the free-text query
+     * @param limit the maximum number of hits to return
+     * @return the matching products, best match first
+     */
+    public List<ProductSearchHitDTO> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> postingLists = new ArrayList<>(terms.size());
+            long postingCount = 0;
+            for (String term : terms) {
+                PostingList postingList = postings.get(term);
+                if (postingList != null) {
+                    postingLists.add(postingList);
+                    postingCount += postingList.size;
+                }
+            }
+            // Sized by the postings visited, not by the catalog
+            ScoreAccumulator accumulator = new ScoreAccumulator((int) Math.min(postingCount, documents.size()));
+
+            int liveCount = documentByProductId.size();
+            for (PostingList postingList : postingLists) {
+                float idf = (float) Math.log(1.0 + (double) liveCount / postingList.size);
+                for (int i = 0; i < postingList.size; i++) {
+                    int document = postingList.documents[i];
+                    if (live.get(document)) {
+                        accumulator.add(document, postingList.frequencies[i] * idf);
+                    }
+                }
+            }
+
+            // Documents matching more of the query terms rank higher
+            accumulator.scaleByMatchedTerms(terms.size());
+
+            return topHits(accumulator, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into case-folded, accent-free terms.
+     *
+     * @param text the text to tokenize, may be {@code null}
+     * @return the terms in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(TOKEN_SEPARATOR.split(folded))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private List<ProductSearchHitDTO> topHits(ScoreAccumulator accumulator, int limit) {
+        int candidateCount = accumulator.size();
+        Integer[] ranked = new Integer[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> {
+            int byScore = Float.compare(accumulator.score(b), accumulator.score(a));
+            return byScore != 0 ? byScore
+                    : Long.compare(documents.get(accumulator.document(a)).productId(), documents.get(accumulator.document(b)).productId());
+        });
+
+        List<ProductSearchHitDTO> hits = new ArrayList<>(Math.min(limit, candidateCount));
+        for (int i = 0; i < candidateCount && hits.size() < limit; i++) {
+            IndexedProduct product = documents.get(accumulator.document(ranked[i]));
+            hits.add(new ProductSearchHitDTO(product.productId(), product.name(), product.brand(), product.price(), accumulator.score(ranked[i])));
+        }
+        return hits;
+    }
+
+    private void addDocument(IndexedProduct product) {
+        int document = documents.size();
+        documents.add(product);
+        live.set(document);
+        documentByProductId.put(product.productId(), document);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, product.name(), NAME_WEIGHT);
+        addTerms(frequencies, product.brand(), BRAND_WEIGHT);
+        addTerms(frequencies, product.description(), DESCRIPTION_WEIGHT);
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new PostingList()).add(document, frequency));
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        Integer document = documentByProductId.remove(productId);
+        if (document != null) {
+            live.clear(document);
+        }
+    }
+
+    /**
+     * Rebuilds the posting lists from the live documents once deleted documents dominate the index.
+     */
+    private void compactIfNeeded() {
+        int deleted = documents.size() - documentByProductId.size();
+        if (deleted < MIN_DELETED_FOR_COMPACTION || deleted < documentByProductId.size()) {
+            return;
+        }
+        List<IndexedProduct> liveProducts = new ArrayList<>(documentByProductId.size());
+        for (int document = live.nextSetBit(0); document >= 0; document = live.nextSetBit(document + 1)) {
+            liveProducts.add(documents.get(document));
+        }
+        postings.clear();
+        documentByProductId.clear();
+        documents.clear();
+        live.clear();
+        liveProducts.forEach(this::addDocument);
+    }
+
+    /**
+     * The stored fields of an indexed product.
+     */
+    private record IndexedProduct(long productId, String name, String brand, BigDecimal price, String description) {
+    }
+
+    /**
+     * Growable posting list of document numbers and their weighted term frequencies.
+     */
+    private static final class PostingList {
+
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    /**
+     * Scores of the documents matching a query, in an open-addressing hash table of primitive
+     * arrays sized by the number of postings visited. Candidates are numbered in the order they were
+     * first matched.
+     */
+    private static final class ScoreAccumulator {
+
+        // Document number plus one per slot, 0 for a free slot
+        private final int[] slots;
+        private final float[] scores;
+        private final int[] matchedTerms;
+        // The slot of every candidate, in the order they were first matched
+        private final int[] candidates;
+        private final int mask;
+        private int size;
+
+        ScoreAccumulator(int maxCandidates) {
+            // At most half full, so probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(2, maxCandidates * 2 - 1)) << 1;
+            slots = new int[capacity];
+            scores = new float[capacity];
+            matchedTerms = new int[capacity];
+            candidates = new int[maxCandidates];
+            mask = capacity - 1;
+        }
+
+        void add(int document, float score) {
+            int key = document + 1;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0 && slots[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = key;
+                candidates[size++] = slot;
+            }
+            matchedTerms[slot]++;
+            scores[slot] += score;
+        }
+
+        void scaleByMatchedTerms(int termCount) {
+            for (int i = 0; i < size; i++) {
+                int slot = candidates[i];
+                scores[slot] *= (float) matchedTerms[slot] / termCount;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int document(int candidate) {
+            return slots[candidates[candidate]] - 1;
+        }
+
+        float score(int candidate) {
+            return scores[candidates[candidate]];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.gure.cinab.service.search;
+
+import com.gure.cinab.config.ReadYourWrites;
+import com.gure.cinab.dto.ProductSearchHitDTO;
+import com.gure.cinab.event.ProductChangedEvent;
+import com.gure.cinab.repository.ProductViewRepository;
+import com.gure.cinab.service.product.LiveProductIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Service class keeping the in-memory {@link ProductSearchIndex} in step with the database.
+ * <p>
+ * The index is built from the whole catalog once the application is ready and is then updated
+ * incrementally from the committed product writes announced by {@link ProductChangedEvent}; see
+ * {@link LiveProductIndex} for how writes committing during a rebuild are kept.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService implements IProductSearchService {
+
+    private final ProductViewRepository productViewRepository;
+
+    private final LiveProductIndex<ProductSearchIndex> index = new LiveProductIndex<>(ProductSearchIndex::new);
+
+    @Override
+    public List<ProductSearchHitDTO> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return index.current().search(query, limit);
+    }
+
+    /**
+     * Builds a fresh index from the whole catalog and swaps it in once complete, so searches keep
+     * being answered from the previous index in the meantime.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+    public void rebuildIndex() {
+        ProductSearchIndex newIndex = index.rebuild(productViewRepository::streamRowsOrderById,
+                productViewRepository::findRowsByIdInChunks);
+        log.info("Product search index built with {} products", newIndex.size());
+    }
+
+    /**
+     * Re-indexes the changed products after their transaction commits; products that no longer
+     * exist are removed from the index.
+     *
+     * @param event the committed product change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true, label = ReadYourWrites.PRIMARY)
+    public void onProductChanged(ProductChangedEvent event) {
+        index.update(event.productIds(), productViewRepository::findRowsByIdInChunks);
+    }
+}
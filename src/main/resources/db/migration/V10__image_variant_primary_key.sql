@@ -0,0 +1,15 @@
+-- Each image has at most one row per variant: ImageVariantPipeline replaces the whole collection.
+-- Keep one row of any duplicate left behind by concurrent jobs before adding the key
+delete from image_variant duplicate
+    using image_variant kept
+where duplicate.image_id = kept.image_id
+  and duplicate.variant = kept.variant
+  and duplicate.ctid < kept.ctid;
+
+delete from image_variant where variant is null;
+
+alter table image_variant alter column variant set not null;
+alter table image_variant add constraint pk_image_variant primary key (image_id, variant);
+
+-- The primary key starts with image_id, so it serves the lookups of this index
+drop index idx_image_variant_image_id;
@@ -0,0 +1,54 @@
+-- Schema as previously generated by Hibernate with ddl-auto=update.
+-- Existing databases are baselined at this version and never run this script.
+
+create sequence if not exists category_seq start with 1 increment by 50;
+create sequence if not exists product_seq start with 1 increment by 50;
+create sequence if not exists image_seq start with 1 increment by 50;
+create sequence if not exists cart_item_seq start with 1 increment by 50;
+
+create table category (
+    id   bigint not null,
+    name varchar(255),
+    primary key (id)
+);
+
+create table product (
+    id          bigint  not null,
+    name        varchar(255),
+    brand       varchar(255),
+    price       numeric(38, 2),
+    inventory   integer not null,
+    description varchar(255),
+    category_id bigint,
+    primary key (id),
+    constraint fk_product_category foreign key (category_id) references category (id)
+);
+
+create table image (
+    id           bigint not null,
+    file_name    varchar(255),
+    file_type    varchar(255),
+    image        oid,
+    download_url varchar(255),
+    product_id   bigint,
+    primary key (id),
+    constraint fk_image_product foreign key (product_id) references product (id)
+);
+
+create table cart (
+    id           bigint generated by default as identity,
+    total_amount numeric(38, 2),
+    primary key (id)
+);
+
+create table cart_item (
+    id          bigint  not null,
+    quantity    integer not null,
+    unit_price  numeric(38, 2),
+    total_price numeric(38, 2),
+    product_id  bigint,
+    cart_id     bigint,
+    primary key (id),
+    constraint fk_cart_item_product foreign key (product_id) references product (id),
+    constraint fk_cart_item_cart foreign key (cart_id) references cart (id)
+);
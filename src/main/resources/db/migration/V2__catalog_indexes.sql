@@ -0,0 +1,35 @@
+-- Indexes for the catalog queries in ProductRepository, ImageRepository and CategoryRepository.
+-- The listing queries filter on one or two columns and page by id, so id is the last key column
+-- and each page is a range scan that needs no sort.
+
+-- Duplicate category names could be created before the unique constraint existed.
+-- Point their products at the oldest category of that name and drop the others.
+update product p
+set category_id = keep.id
+from category c
+         join (select name, min(id) as id from category group by name) keep on keep.name = c.name
+where p.category_id = c.id
+  and c.id <> keep.id;
+
+delete
+from category c
+where exists (select 1 from category older where older.name = c.name and older.id < c.id);
+
+alter table category
+    add constraint uk_category_name unique (name);
+
+-- findRowsByBrand
+create index idx_product_brand_id on product (brand, id);
+-- findRowsByName
+create index idx_product_name_id on product (name, id);
+-- findRowsByBrandAndName and countByBrandAndName
+create index idx_product_brand_name_id on product (brand, name, id);
+-- findRowsByCategoryName, and the foreign key
+create index idx_product_category_id on product (category_id, id);
+-- findRowsByCategoryNameAndBrand
+create index idx_product_category_brand_id on product (category_id, brand, id);
+
+-- Foreign keys used to load or delete children
+create index idx_image_product_id on image (product_id);
+create index idx_cart_item_cart_id on cart_item (cart_id);
+create index idx_cart_item_product_id on cart_item (product_id);
@@ -0,0 +1,6 @@
+-- Categories are created one at a time by the upsert in CategoryRepository.insertIfAbsent, which
+-- takes its ID straight from the sequence, so Hibernate no longer pre-allocates blocks of 50.
+-- Move the sequence past every ID Hibernate may already have handed out first.
+select setval('category_seq', greatest((select coalesce(max(id), 0) from category), (select last_value from category_seq)));
+
+alter sequence category_seq increment by 1;
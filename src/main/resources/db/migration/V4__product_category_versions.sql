@@ -0,0 +1,8 @@
+-- Optimistic locking versions and update times, used as HTTP validators (ETag / Last-Modified).
+alter table product
+    add column version    bigint                      not null default 0,
+    add column updated_at timestamp(6) with time zone not null default current_timestamp;
+
+alter table category
+    add column version    bigint                      not null default 0,
+    add column updated_at timestamp(6) with time zone not null default current_timestamp;
@@ -0,0 +1,47 @@
+-- Denormalized read model of the catalog (ProductView), rebuilt by ProductViewUpdater in every
+-- transaction that writes products, categories or images. Catalog reads scan this table only.
+create table product_view (
+    id            bigint                      not null,
+    name          varchar(255),
+    brand         varchar(255),
+    price         numeric(38, 2),
+    inventory     integer                     not null,
+    description   varchar(255),
+    category_id   bigint,
+    category_name varchar(255),
+    image_count   integer                     not null,
+    images        jsonb,
+    version       bigint                      not null,
+    updated_at    timestamp(6) with time zone,
+    primary key (id)
+);
+
+-- The listing queries of ProductViewRepository filter on one or two columns and page by id
+create index idx_product_view_brand_id on product_view (brand, id);
+create index idx_product_view_name_id on product_view (name, id);
+create index idx_product_view_brand_name_id on product_view (brand, name, id);
+create index idx_product_view_category_name_id on product_view (category_name, id);
+create index idx_product_view_category_name_brand_id on product_view (category_name, brand, id);
+
+insert into product_view (id, name, brand, price, inventory, description, category_id, category_name,
+                          image_count, images, version, updated_at)
+select p.id,
+       p.name,
+       p.brand,
+       p.price,
+       p.inventory,
+       p.description,
+       c.id,
+       c.name,
+       coalesce(i.image_count, 0),
+       coalesce(i.images, '[]'::jsonb),
+       p.version,
+       p.updated_at
+from product p
+         left join category c on c.id = p.category_id
+         left join (select product_id,
+                           count(*) as image_count,
+                           jsonb_agg(jsonb_build_object('id', id, 'fileName', file_name, 'downloadUrl', download_url)
+                                     order by id) as images
+                    from image
+                    group by product_id) i on i.product_id = p.id;
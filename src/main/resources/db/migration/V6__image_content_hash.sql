@@ -0,0 +1,21 @@
+-- Strong entity tag of an image download: the hex SHA-256 of its content. Download URLs carry it
+-- as a version parameter, so each URL names immutable content and can be cached for good.
+alter table image add column content_hash varchar(64);
+
+update image
+set content_hash = encode(sha256(lo_get(image)), 'hex')
+where image is not null;
+
+update image
+set download_url = '/api/v1/images/image/download/' || id || '?v=' || content_hash
+where content_hash is not null;
+
+-- The read model keeps a copy of the download URLs
+update product_view v
+set images = i.images
+from (select product_id,
+             jsonb_agg(jsonb_build_object('id', id, 'fileName', file_name, 'downloadUrl', download_url)
+                       order by id) as images
+      from image
+      group by product_id) i
+where i.product_id = v.id;
@@ -0,0 +1,13 @@
+-- Image content moves from large objects to the image storage (IImageStorage); the image table
+-- keeps the metadata. content_length is set for every image whose content is in the storage.
+alter table image add column content_length bigint;
+
+-- Unlink the large object of an image when ImageBlobMigrator clears it or the image is deleted;
+-- without this trigger every replaced or deleted image left an orphaned large object behind
+create extension if not exists lo;
+
+create trigger image_unlink_content
+    before update of image or delete
+    on image
+    for each row
+execute function lo_manage(image);
@@ -0,0 +1,15 @@
+-- Reference-counted content of the image storage: identical uploads share one file, which is
+-- deleted when the last image referencing it is deleted or gets new content
+create table image_file (
+    hash            varchar(64) not null,
+    length          bigint      not null,
+    reference_count integer     not null,
+    primary key (hash)
+);
+
+-- Content already moved to the image storage; ImageBlobMigrator records the rest as it moves it
+insert into image_file (hash, length, reference_count)
+select content_hash, max(content_length), count(*)
+from image
+where content_length is not null
+group by content_hash;
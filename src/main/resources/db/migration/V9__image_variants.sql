@@ -0,0 +1,17 @@
+-- Resized variants of the images (ImageSize), generated in the background by ImageVariantPipeline.
+-- Their content is in the image storage and counted in image_file like the originals
+alter table image add column width integer;
+alter table image add column height integer;
+
+create table image_variant (
+    image_id       bigint  not null,
+    variant        varchar(255),
+    file_type      varchar(255),
+    content_hash   varchar(64),
+    content_length bigint  not null,
+    width          integer not null,
+    height         integer not null,
+    constraint fk_image_variant_image foreign key (image_id) references image (id)
+);
+
+create index idx_image_variant_image_id on image_variant (image_id);
@@ -0,0 +1,110 @@
+package com.gure.cinab.reactive;
+
+import com.gure.cinab.dto.ImageRow;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.service.product.ProductCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest
+// The application class is profile-bound, so the slice cannot find it by scanning
+@ContextConfiguration(classes = CinabReactiveApplication.class)
+@ActiveProfiles(CinabReactiveApplication.PROFILE)
+@WithMockUser
+class ReactiveCatalogHandlerTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@MockitoBean
+	private ReactiveCatalogRepository repository;
+
+	@Test
+	void listingsAreCursorPagesWithTheProductImages() {
+		when(repository.findRowsAfter(0, 3)).thenReturn(Flux.fromStream(LongStream.rangeClosed(1, 3).mapToObj(ReactiveCatalogHandlerTests::row)));
+		when(repository.findImageRowsByProductIdIn(List.of(1L, 2L)))
+				.thenReturn(Flux.just(new ImageRow(7L, "front.png", "/api/v1/images/image/download/7", 2L)));
+
+		webTestClient.get().uri("/api/v1/products/all?limit=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.data.items.length()").isEqualTo(2)
+				.jsonPath("$.data.items[0].id").isEqualTo(1)
+				.jsonPath("$.data.items[0].category.name").isEqualTo("Kitchen")
+				.jsonPath("$.data.items[0].images.length()").isEqualTo(0)
+				.jsonPath("$.data.items[1].images[0].fileName").isEqualTo("front.png")
+				.jsonPath("$.data.nextCursor").isEqualTo(ProductCursor.encode(2));
+	}
+
+	@Test
+	void theLastPageHasNoCursor() {
+		when(repository.findRowsAfter(2, 3)).thenReturn(Flux.just(row(3)));
+		when(repository.findImageRowsByProductIdIn(List.of(3L))).thenReturn(Flux.empty());
+
+		webTestClient.get().uri("/api/v1/products/all?limit=2&after={after}", ProductCursor.encode(2))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.data.items.length()").isEqualTo(1)
+				.jsonPath("$.data.nextCursor").doesNotExist();
+	}
+
+	@Test
+	void malformedCursorsAndLimitsAreBadRequests() {
+		webTestClient.get().uri("/api/v1/products/all?after=not-a-cursor").exchange().expectStatus().isBadRequest();
+		webTestClient.get().uri("/api/v1/products/all?limit={limit}", ProductCursor.MAX_LIMIT + 1).exchange().expectStatus().isBadRequest();
+		webTestClient.get().uri("/api/v1/products/by-brand").exchange().expectStatus().isBadRequest();
+
+		verify(repository, never()).findRowsAfter(anyLong(), anyInt());
+	}
+
+	@Test
+	void unknownProductsAreNotFound() {
+		when(repository.findRowById(42)).thenReturn(Mono.empty());
+
+		webTestClient.get().uri("/api/v1/products/product/42")
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("Product not found!");
+		verify(repository, never()).findImageRowsByProductIdIn(anyCollection());
+	}
+
+	@Test
+	void theCatalogStreamsAsNewlineDelimitedJson() {
+		when(repository.streamRows()).thenReturn(Flux.just(row(1), row(2)));
+		when(repository.findImageRowsByProductIdIn(List.of(1L, 2L))).thenReturn(Flux.empty());
+
+		webTestClient.get().uri("/api/v1/products/stream")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith("application/x-ndjson")
+				.expectBody(String.class)
+				.value(body -> assertThat(body.lines()).hasSize(2));
+	}
+
+	private static ProductRow row(long id) {
+		return new ProductRow(id, "Kettle " + id, "Boil", BigDecimal.TEN, 1, null, 3L, "Kitchen", 0, null);
+	}
+}
@@ -0,0 +1,82 @@
+package com.gure.cinab.reactive;
+
+import com.gure.cinab.mapper.ProductMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Non-blocking read API for the product catalog, run as its own application next to the servlet one.
+ * <p>
+ * It serves the catalog reads of {@code ProductController} and {@code CategoryController} under
+ * the same paths, on WebFlux and Netty with the R2DBC PostgreSQL driver, so a slow client holds
+ * no thread and no connection while it reads. Writes stay with the servlet application. The
+ * responses reuse the DTOs of {@code com.gure.cinab.dto}, the {@link ProductMapper} and the
+ * cursor format, so both applications answer alike.
+ * </p>
+ * <p>
+ * The sources are only compiled by the {@code reactive} Maven profile:
+ * {@code mvn -Preactive spring-boot:run -Dspring-boot.run.main-class=com.gure.cinab.reactive.CinabReactiveApplication}.
+ * The application runs with the {@value #PROFILE} Spring profile, see {@code application-reactive.properties}.
+ * Everything here is declared in this profile-bound class, so the servlet application ignores it.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Profile(CinabReactiveApplication.PROFILE)
+@SpringBootApplication(scanBasePackages = "com.gure.cinab.reactive")
+public class CinabReactiveApplication {
+
+    /**
+     * The Spring profile the reactive application runs with.
+     */
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(CinabReactiveApplication.class);
+        application.setAdditionalProfiles(PROFILE);
+        application.run(args);
+    }
+
+    /**
+     * Netty rather than Tomcat, which is on the classpath for the servlet application.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ProductMapper productMapper() {
+        return new ProductMapper();
+    }
+
+    @Bean
+    public ReactiveCatalogRepository reactiveCatalogRepository(DatabaseClient databaseClient) {
+        return new ReactiveCatalogRepository(databaseClient);
+    }
+
+    @Bean
+    public ReactiveCatalogHandler reactiveCatalogHandler(ReactiveCatalogRepository repository, ProductMapper productMapper) {
+        return new ReactiveCatalogHandler(repository, productMapper);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> catalogRoutes(ReactiveCatalogHandler handler, @Value("${api.prefix}") String apiPrefix) {
+        return route(GET(apiPrefix + "/products/all"), handler::getAllProducts)
+                .andRoute(GET(apiPrefix + "/products/stream"), handler::streamProducts)
+                .andRoute(GET(apiPrefix + "/products/product/{productId}"), handler::getProductById)
+                .andRoute(GET(apiPrefix + "/products/by-brand"), handler::getProductsByBrand)
+                .andRoute(GET(apiPrefix + "/products/products/{category}/all/products"), handler::getProductsByCategory)
+                .andRoute(GET(apiPrefix + "/categories/all"), handler::getAllCategories);
+    }
+}
@@ -0,0 +1,139 @@
+package com.gure.cinab.reactive;
+
+import com.gure.cinab.dto.CursorPageDTO;
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageRow;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.mapper.ProductMapper;
+import com.gure.cinab.response.ApiResponse;
+import com.gure.cinab.service.product.ProductCursor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Handler functions of the reactive catalog read API, see {@link CinabReactiveApplication}.
+ * <p>
+ * Each page is read with one product query and one image query, like the servlet listings. Status
+ * codes and response bodies follow {@code ProductController} and {@code CategoryController}: a
+ * malformed cursor or limit gives {@code 400}, an unknown product {@code 404}.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ReactiveCatalogHandler {
+
+    /**
+     * Products converted per image query while streaming the catalog.
+     */
+    static final int STREAM_BATCH_SIZE = 250;
+
+    private final ReactiveCatalogRepository repository;
+    private final ProductMapper productMapper;
+
+    public ReactiveCatalogHandler(ReactiveCatalogRepository repository, ProductMapper productMapper) {
+        this.repository = repository;
+        this.productMapper = productMapper;
+    }
+
+    public Mono<ServerResponse> getAllProducts(ServerRequest request) {
+        return page(request, repository::findRowsAfter, "Found products!");
+    }
+
+    public Mono<ServerResponse> getProductsByBrand(ServerRequest request) {
+        String brand = request.queryParam("brand").orElse(null);
+        if (brand == null) {
+            return badRequest("Missing brand");
+        }
+        return page(request, (afterId, limit) -> repository.findRowsByBrand(brand, afterId, limit), "Success!");
+    }
+
+    public Mono<ServerResponse> getProductsByCategory(ServerRequest request) {
+        String category = request.pathVariable("category");
+        return page(request, (afterId, limit) -> repository.findRowsByCategoryName(category, afterId, limit), "Success!");
+    }
+
+    public Mono<ServerResponse> getProductById(ServerRequest request) {
+        long productId;
+        try {
+            productId = Long.parseLong(request.pathVariable("productId"));
+        } catch (NumberFormatException e) {
+            return badRequest("Invalid product ID");
+        }
+        return repository.findRowById(productId)
+                .flatMap(row -> convert(List.of(row)))
+                .flatMap(products -> ServerResponse.ok().bodyValue(new ApiResponse("Success! ", products.get(0))))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .bodyValue(new ApiResponse("Product not found!", null))));
+    }
+
+    /**
+     * Streams the whole catalog as newline-delimited JSON. Rows are only read from the database as
+     * fast as the client consumes the response.
+     */
+    public Mono<ServerResponse> streamProducts(ServerRequest request) {
+        Flux<ProductDTO> products = repository.streamRows()
+                .buffer(STREAM_BATCH_SIZE)
+                .concatMap(this::convert)
+                .flatMapIterable(batch -> batch);
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(products, ProductDTO.class);
+    }
+
+    public Mono<ServerResponse> getAllCategories(ServerRequest request) {
+        return repository.findAllCategories()
+                .collectList()
+                .flatMap(categories -> ServerResponse.ok().bodyValue(new ApiResponse("Found categories", categories)));
+    }
+
+    /**
+     * Runs a keyset paginated query, asking for one extra row to tell whether another page exists.
+     */
+    private Mono<ServerResponse> page(ServerRequest request, BiFunction<Long, Integer, Flux<ProductRow>> query, String message) {
+        long afterId;
+        int pageSize;
+        try {
+            afterId = ProductCursor.decode(request.queryParam("after").orElse(null));
+            pageSize = ProductCursor.checkLimit(Integer.parseInt(request.queryParam("limit").orElse(ProductCursor.DEFAULT_LIMIT)));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());  // Malformed cursor or limit
+        }
+        return query.apply(afterId, pageSize + 1)
+                .collectList()
+                .flatMap(rows -> {
+                    boolean hasMore = rows.size() > pageSize;
+                    List<ProductRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+                    String nextCursor = hasMore ? ProductCursor.encode(page.get(page.size() - 1).id()) : null;
+                    return convert(page).map(items -> new CursorPageDTO<>(items, nextCursor));
+                })
+                .flatMap(page -> ServerResponse.ok().bodyValue(new ApiResponse(message, page)));
+    }
+
+    /**
+     * Converts product rows into DTOs, loading the images of all rows with one query.
+     */
+    private Mono<List<ProductDTO>> convert(List<ProductRow> rows) {
+        if (rows.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return repository.findImageRowsByProductIdIn(rows.stream().map(ProductRow::id).toList())
+                .collectMultimap(ImageRow::productId, productMapper::toDTO)
+                .map(imagesByProductId -> rows.stream()
+                        .map(row -> {
+                            List<ImageDTO> images = new ArrayList<>(imagesByProductId.getOrDefault(row.id(), List.of()));
+                            return productMapper.toDTO(row, images);
+                        })
+                        .toList());
+    }
+
+    private static Mono<ServerResponse> badRequest(String message) {
+        return ServerResponse.badRequest().bodyValue(new ApiResponse(message, null));
+    }
+}
@@ -0,0 +1,164 @@
+package com.gure.cinab.reactive;
+
+import com.gure.cinab.dto.ImageRow;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.model.Category;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+/**
+ * Catalog reads over R2DBC, returning the same {@link ProductRow} and {@link ImageRow} projections
+ * as the JPA repositories.
+ * <p>
+ * The listing queries use keyset pagination like {@code ProductRepository}, and hit the same
+ * indexes. Rows are emitted as the driver decodes them; the streaming query fetches them from the
+ * server in batches as downstream demand arrives.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ReactiveCatalogRepository {
+
+    /**
+     * Rows fetched per round trip by {@link #streamRows()}.
+     */
+    static final int STREAM_FETCH_SIZE = 250;
+
+    private static final String ROW_SELECT = "select p.id, p.name, p.brand, p.price, p.inventory, p.description, " +
+            "c.id as category_id, c.name as category_name, p.version, p.updated_at " +
+            "from product p left join category c on c.id = p.category_id ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCatalogRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Finds the next page of all products.
+     *
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of rows
+     * @return the rows, in ascending ID order
+     */
+    public Flux<ProductRow> findRowsAfter(long afterId, int limit) {
+        return databaseClient.sql(ROW_SELECT + "where p.id > :afterId order by p.id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveCatalogRepository::productRow)
+                .all();
+    }
+
+    /**
+     * Finds the next page of the products of a brand.
+     *
+     * @param brand   the brand
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of rows
+     * @return the rows, in ascending ID order
+     */
+    public Flux<ProductRow> findRowsByBrand(String brand, long afterId, int limit) {
+        return databaseClient.sql(ROW_SELECT + "where p.brand = :brand and p.id > :afterId order by p.id limit :limit")
+                .bind("brand", brand)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveCatalogRepository::productRow)
+                .all();
+    }
+
+    /**
+     * Finds the next page of the products of a category.
+     *
+     * @param category the category name
+     * @param afterId  the ID after which the page starts
+     * @param limit    the maximum number of rows
+     * @return the rows, in ascending ID order
+     */
+    public Flux<ProductRow> findRowsByCategoryName(String category, long afterId, int limit) {
+        return databaseClient.sql(ROW_SELECT + "where c.name = :category and p.id > :afterId order by p.id limit :limit")
+                .bind("category", category)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveCatalogRepository::productRow)
+                .all();
+    }
+
+    /**
+     * Finds one product.
+     *
+     * @param id the ID of the product
+     * @return the row, or an empty {@link Mono} if there is no such product
+     */
+    public Mono<ProductRow> findRowById(long id) {
+        return databaseClient.sql(ROW_SELECT + "where p.id = :id")
+                .bind("id", id)
+                .map(ReactiveCatalogRepository::productRow)
+                .one();
+    }
+
+    /**
+     * Streams every product in ID order, fetching {@value #STREAM_FETCH_SIZE} rows at a time.
+     *
+     * @return the rows, in ascending ID order
+     */
+    public Flux<ProductRow> streamRows() {
+        return databaseClient.sql(ROW_SELECT + "order by p.id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(ReactiveCatalogRepository::productRow)
+                .all();
+    }
+
+    /**
+     * Finds the image metadata of several products with one query.
+     *
+     * @param productIds the IDs of the products
+     * @return the image rows, without the binary content
+     */
+    public Flux<ImageRow> findImageRowsByProductIdIn(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql("select id, file_name, download_url, product_id from image " +
+                        "where product_id in (:productIds) order by id")
+                .bind("productIds", productIds)
+                .map(row -> new ImageRow(row.get("id", Long.class), row.get("file_name", String.class),
+                        row.get("download_url", String.class), row.get("product_id", Long.class)))
+                .all();
+    }
+
+    /**
+     * Finds all categories.
+     *
+     * @return the categories, in ID order
+     */
+    public Flux<Category> findAllCategories() {
+        return databaseClient.sql("select id, name from category order by id")
+                .map(row -> {
+                    Category category = new Category(row.get("name", String.class));
+                    category.setId(row.get("id", Long.class));
+                    return category;
+                })
+                .all();
+    }
+
+    private static ProductRow productRow(Readable row) {
+        OffsetDateTime updatedAt = row.get("updated_at", OffsetDateTime.class);
+        return new ProductRow(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("brand", String.class),
+                row.get("price", BigDecimal.class),
+                row.get("inventory", Integer.class),
+                row.get("description", String.class),
+                row.get("category_id", Long.class),
+                row.get("category_name", String.class),
+                row.get("version", Long.class),
+                updatedAt == null ? null : updatedAt.toInstant());
+    }
+}
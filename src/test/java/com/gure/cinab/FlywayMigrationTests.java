@@ -0,0 +1,83 @@
+package com.gure.cinab;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Flyway migrations on PostgreSQL and lets Hibernate validate the entities against the
+ * resulting schema, which the H2 schema of the other tests cannot catch. Skipped without Docker,
+ * except on CI (where the {@code CI} environment variable is set), which has to run it.
+ */
+@SpringBootTest(properties = {
+		"spring.flyway.enabled=true",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect"
+})
+@ActiveProfiles("test")
+@Testcontainers
+@DisabledIf("dockerUnavailableOutsideCi")
+class FlywayMigrationTests {
+
+	@Container
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+		registry.add("spring.datasource.username", POSTGRES::getUsername);
+		registry.add("spring.datasource.password", POSTGRES::getPassword);
+		registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+	}
+
+	@Autowired
+	private Flyway flyway;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	static boolean dockerUnavailableOutsideCi() {
+		return System.getenv("CI") == null && !DockerClientFactory.instance().isDockerAvailable();
+	}
+
+	@Test
+	void migratedSchemaMatchesTheEntities() {
+		// The context only starts if Hibernate validated the schema
+		assertThat(flyway.info().pending()).isEmpty();
+		assertThat(flyway.info().applied())
+				.extracting(MigrationInfo::getScript)
+				.contains("V1__baseline_schema.sql", "V10__image_variant_primary_key.sql");
+	}
+
+	@Test
+	void everyTableHasAPrimaryKey() {
+		List<String> tablesWithoutKey = jdbcTemplate.queryForList("""
+				select t.table_name
+				from information_schema.tables t
+				where t.table_schema = 'public'
+				  and t.table_type = 'BASE TABLE'
+				  and not exists (select 1
+				                  from information_schema.table_constraints c
+				                  where c.table_schema = t.table_schema
+				                    and c.table_name = t.table_name
+				                    and c.constraint_type = 'PRIMARY KEY')
+				""", String.class);
+
+		assertThat(tablesWithoutKey).isEmpty();
+	}
+}
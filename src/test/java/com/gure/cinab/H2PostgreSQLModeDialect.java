@@ -0,0 +1,21 @@
+package com.gure.cinab;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * H2 dialect for an in-memory database running in PostgreSQL compatibility mode.
+ * <p>
+ * The compatibility mode accepts the PostgreSQL-specific native queries of the repositories
+ * (such as {@code insert ... on conflict}), but no longer knows the {@code blob} column type,
+ * so BLOB columns are created with the standard {@code binary large object} name, which keeps
+ * them large objects that are read as streams, like the PostgreSQL {@code oid} columns.
+ * </p>
+ */
+public class H2PostgreSQLModeDialect extends H2Dialect {
+
+	@Override
+	protected String columnType(int sqlTypeCode) {
+		return sqlTypeCode == SqlTypes.BLOB ? "binary large object" : super.columnType(sqlTypeCode);
+	}
+}
@@ -0,0 +1,83 @@
+package com.gure.cinab.benchmark;
+
+import com.gure.cinab.service.image.FileSystemImageStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+
+/**
+ * Compares the upload throughput of the image storage with its two parts: hashing the content
+ * (SHA-256) and writing it to disk. Hashing is no bottleneck as long as it is well above the
+ * write throughput.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=ImageUploadThroughputTests -Dbenchmark=true
+ * [-Dbenchmark.imageSize=4194304] [-Dbenchmark.images=64]}.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ImageUploadThroughputTests {
+
+	private static final int IMAGE_SIZE = Integer.getInteger("benchmark.imageSize", 4 * 1024 * 1024);
+	private static final int IMAGES = Integer.getInteger("benchmark.images", 64);
+
+	@TempDir
+	private Path root;
+
+	@Test
+	void hashingAgainstWritingAndStoring() throws Exception {
+		byte[][] images = new byte[IMAGES][];
+		Random random = new Random(IMAGE_SIZE);
+		for (int i = 0; i < IMAGES; i++) {
+			images[i] = new byte[IMAGE_SIZE];
+			random.nextBytes(images[i]);
+		}
+		FileSystemImageStorage storage = new FileSystemImageStorage(root.resolve("store"));
+		Path copies = Files.createDirectories(root.resolve("copies"));
+
+		// Warm up the JIT, then measure
+		for (int round = 0; round < 2; round++) {
+			long hashNanos = time(images, image -> {
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				new DigestInputStream(new ByteArrayInputStream(image), digest).transferTo(OutputStream.nullOutputStream());
+				digest.digest();
+			});
+			long writeNanos = time(images, image -> {
+				Path copy = Files.createTempFile(copies, "copy-", ".tmp");
+				Files.write(copy, image);
+				Files.delete(copy);
+			});
+			long storeNanos = time(images, image -> storage.store(new ByteArrayInputStream(image)));
+			if (round == 1) {
+				System.out.printf("sha-256 only:            %,.0f MB/s%n", megabytesPerSecond(hashNanos));
+				System.out.printf("file write only:         %,.0f MB/s%n", megabytesPerSecond(writeNanos));
+				System.out.printf("store (hash+write+sync): %,.0f MB/s%n", megabytesPerSecond(storeNanos));
+			}
+		}
+	}
+
+	private static long time(byte[][] images, Upload upload) throws Exception {
+		long start = System.nanoTime();
+		for (byte[] image : images) {
+			upload.run(image);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static double megabytesPerSecond(long nanos) {
+		return (double) IMAGES * IMAGE_SIZE / (1024 * 1024) * 1_000_000_000.0 / nanos;
+	}
+
+	@FunctionalInterface
+	private interface Upload {
+
+		void run(byte[] image) throws Exception;
+	}
+}
@@ -0,0 +1,124 @@
+package com.gure.cinab.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.gure.cinab.dto.CursorPageDTO;
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.response.ApiResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the cost of serializing one page of the product listing as JSON, CBOR and Smile.
+ * <p>
+ * Run after {@code mvn test-compile} with the {@link #main(String[])} method, for example from the IDE.
+ * Before the JMH run it prints the payload size of each encoding, raw and gzipped. Pass
+ * {@code --sizes-only} to skip the JMH run.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductEncodingBenchmark {
+
+	@Param({"json", "cbor", "smile"})
+	private String encoding;
+
+	@Param({"50", "500"})
+	private int pageSize;
+
+	private ObjectMapper objectMapper;
+
+	private ApiResponse page;
+
+	@Setup
+	public void setUp() {
+		objectMapper = objectMapper(encoding);
+		page = page(pageSize);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+
+	private static ObjectMapper objectMapper(String encoding) {
+		JsonFactory factory = switch (encoding) {
+			case "cbor" -> new CBORFactory();
+			case "smile" -> new SmileFactory();
+			default -> new JsonFactory();
+		};
+		return Jackson2ObjectMapperBuilder.json().factory(factory).build();
+	}
+
+	private static ApiResponse page(int pageSize) {
+		Category category = new Category("Phones");
+		category.setId(1L);
+		List<ProductDTO> products = new ArrayList<>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			ProductDTO product = new ProductDTO();
+			product.setId(i);
+			product.setName("product-" + i);
+			product.setBrand("brand-" + (i % 10));
+			product.setPrice(BigDecimal.valueOf(i * 100 + 99, 2));
+			product.setInventory(i);
+			product.setDescription("description " + i);
+			product.setCategory(category);
+			List<ImageDTO> images = new ArrayList<>(2);
+			for (int j = 0; j < 2; j++) {
+				ImageDTO image = new ImageDTO();
+				image.setId(i * 2L + j);
+				image.setFileName("image-" + i + "-" + j + ".png");
+				image.setDownloadUrl("/api/v1/images/image/download/" + image.getId());
+				images.add(image);
+			}
+			product.setImages(images);
+			products.add(product);
+		}
+		return new ApiResponse("success", new CursorPageDTO<>(products, "cursor"));
+	}
+
+	private static int gzippedSize(byte[] bytes) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.size();
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		for (int pageSize : new int[] {50, 500}) {
+			for (String encoding : new String[] {"json", "cbor", "smile"}) {
+				byte[] bytes = objectMapper(encoding).writeValueAsBytes(page(pageSize));
+				System.out.printf("%-5s %4d products: %8d bytes, %7d gzipped%n", encoding, pageSize, bytes.length, gzippedSize(bytes));
+			}
+		}
+		if (List.of(args).contains("--sizes-only")) {
+			return;
+		}
+		new Runner(new OptionsBuilder()
+				.include(ProductEncodingBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,74 @@
+package com.gure.cinab.benchmark;
+
+import com.gure.cinab.dto.ProductImportReportDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.product.IProductImportService;
+import com.gure.cinab.service.product.IProductService;
+import com.gure.cinab.service.product.ProductImportFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the rows per second of the bulk import with one {@code addProduct} call per product.
+ * <p>
+ * Opt-in, as it inserts tens of thousands of rows:
+ * {@code mvn test -Dtest=ProductImportThroughputTests -Dbenchmark=true [-Dbenchmark.rows=20000]}.
+ * It runs against the in-memory test database by default; point {@code spring.datasource.*} at
+ * PostgreSQL for figures that include network round trips.
+ * </p>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductImportThroughputTests {
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private IProductImportService productImportService;
+
+	@Test
+	void bulkImportAgainstSingleAdds() throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < ROWS; i++) {
+			AddProductRequest request = new AddProductRequest();
+			request.setName("Single " + i);
+			request.setBrand("Brand " + (i % 20));
+			request.setPrice(BigDecimal.TEN);
+			request.setInventory(1);
+			request.setCategory(new Category("Category " + (i % 10)));
+			productService.addProduct(request);
+		}
+		long singleNanos = System.nanoTime() - start;
+
+		StringBuilder csv = new StringBuilder("name,brand,price,inventory,description,category\n");
+		for (int i = 0; i < ROWS; i++) {
+			csv.append("Bulk ").append(i).append(",Brand ").append(i % 20).append(",10,1,,Category ").append(i % 10).append('\n');
+		}
+		start = System.nanoTime();
+		ProductImportReportDTO report = productImportService.importProducts(
+				new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ProductImportFormat.CSV);
+		long bulkNanos = System.nanoTime() - start;
+
+		assertThat(report.getImported()).isEqualTo(ROWS);
+		System.out.printf("single adds: %,.0f rows/s%n", rowsPerSecond(singleNanos));
+		System.out.printf("bulk import: %,.0f rows/s%n", rowsPerSecond(bulkNanos));
+	}
+
+	private static double rowsPerSecond(long nanos) {
+		return ROWS * 1_000_000_000.0 / nanos;
+	}
+}
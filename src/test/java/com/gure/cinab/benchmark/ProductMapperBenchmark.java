@@ -0,0 +1,92 @@
+package com.gure.cinab.benchmark;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.mapper.ModelMapperReference;
+import com.gure.cinab.mapper.ProductMapper;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written {@link ProductMapper} with the ModelMapper conversion it replaced,
+ * converting one page of products with two images each.
+ * <p>
+ * Run after {@code mvn test-compile} with the {@link #main(String[])} method, for example from the IDE.
+ * Add {@code -prof gc} through the JMH options to compare allocation rates as well.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+	@Param({"50", "500"})
+	private int pageSize;
+
+	private final ProductMapper productMapper = new ProductMapper();
+
+	private final ModelMapperReference modelMapper = new ModelMapperReference();
+
+	private List<Product> products;
+
+	private List<Image> images;
+
+	@Setup
+	public void setUp() {
+		Category category = new Category("Phones");
+		category.setId(1L);
+		products = new ArrayList<>(pageSize);
+		images = new ArrayList<>(pageSize * 2);
+		for (int i = 0; i < pageSize; i++) {
+			Product product = new Product("product-" + i, "brand-" + (i % 10), BigDecimal.valueOf(i), i, "description " + i, category);
+			product.setId((long) i);
+			products.add(product);
+			for (int j = 0; j < 2; j++) {
+				Image image = new Image();
+				image.setId(i * 2L + j);
+				image.setFileName("image-" + i + "-" + j + ".png");
+				image.setDownloadUrl("/api/v1/images/image/download/" + image.getId());
+				image.setProduct(product);
+				images.add(image);
+			}
+		}
+	}
+
+	@Benchmark
+	public void productMapper(Blackhole blackhole) {
+		for (int i = 0; i < products.size(); i++) {
+			List<ImageDTO> imageDTOs = List.of(productMapper.toDTO(images.get(i * 2)), productMapper.toDTO(images.get(i * 2 + 1)));
+			ProductDTO productDTO = productMapper.toDTO(products.get(i), imageDTOs);
+			blackhole.consume(productDTO);
+		}
+	}
+
+	@Benchmark
+	public void modelMapper(Blackhole blackhole) {
+		for (int i = 0; i < products.size(); i++) {
+			List<ImageDTO> imageDTOs = List.of(modelMapper.toDTO(images.get(i * 2)), modelMapper.toDTO(images.get(i * 2 + 1)));
+			ProductDTO productDTO = modelMapper.toDTO(products.get(i), imageDTOs);
+			blackhole.consume(productDTO);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(ProductMapperBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,157 @@
+package com.gure.cinab.benchmark;
+
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.image.IImageService;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives concurrent product listing and image download requests through a real Tomcat, to compare
+ * the platform-thread mode with the virtual-thread mode.
+ * <p>
+ * Opt-in, and run on its own since it starts a second server:
+ * {@code mvn test -Dtest=RequestThreadingLoadTests -Dbenchmark=true} measures platform threads;
+ * {@code mvn test -Pvirtual-threads -Dtest=RequestThreadingLoadTests -Dbenchmark=true -Dbenchmark.virtual=true}
+ * measures virtual threads on Java 21, with the connection bulkhead in front of the API. For a fair
+ * comparison run the platform-thread measurement with {@code -Pvirtual-threads} as well. The load is
+ * set with {@code -Dbenchmark.concurrency=400} and {@code -Dbenchmark.requests=8000}. It prints
+ * throughput, latency percentiles and the number of requests turned away with {@code 503}.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"spring.threads.virtual.enabled=${benchmark.virtual:false}", "cinab.bulkhead.max-wait=2s"})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RequestThreadingLoadTests {
+
+	private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+
+	private static final int REQUESTS = Integer.getInteger("benchmark.requests", 8000);
+
+	@LocalServerPort
+	private int port;
+
+	@Value("${spring.threads.virtual.enabled}")
+	private boolean virtualThreads;
+
+	@Value("${spring.security.user.name}:${spring.security.user.password}")
+	private String credentials;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private IImageService imageService;
+
+	@Test
+	void listingAndDownloadUnderLoad() throws Exception {
+		Long productId = productService.addProduct(lamp("Lamp")).getId();
+		for (int i = 0; i < 20; i++) {
+			productService.addProduct(lamp("Lamp " + i));
+		}
+		Long imageId = imageService.saveImages(productId, List.of(new MockMultipartFile(
+				"files", "lamp.png", "image/png", new byte[256 * 1024]))).get(0).getId();
+
+		List<URI> uris = List.of(
+				URI.create("http://localhost:" + port + "/api/v1/products/all?limit=20"),
+				URI.create("http://localhost:" + port + "/api/v1/images/image/download/" + imageId));
+		String authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(Executors.newFixedThreadPool(8))
+				.build();
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>(REQUESTS));
+		AtomicInteger rejected = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+		long start = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<>(REQUESTS);
+		for (int i = 0; i < REQUESTS; i++) {
+			URI uri = uris.get(i % uris.size());
+			futures.add(clients.submit(() -> {
+				long sent = System.nanoTime();
+				try {
+					HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).header("Authorization", authorization).build(),
+							HttpResponse.BodyHandlers.ofByteArray());
+					if (response.statusCode() == 503) {
+						rejected.incrementAndGet();
+					} else if (response.statusCode() != 200) {
+						failed.incrementAndGet();
+					}
+				} catch (Exception e) {
+					failed.incrementAndGet();
+				}
+				latencies.add(System.nanoTime() - sent);
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		clients.shutdown();
+
+		List<Long> sorted = latencies.stream().sorted().toList();
+		System.out.printf("%s threads, %d clients: %,.0f requests/s, p50 %d ms, p99 %d ms, %d rejected (503), %d failed%n",
+				virtualThreads ? "virtual" : "platform", CONCURRENCY, REQUESTS * 1_000_000_000.0 / elapsed,
+				percentile(sorted, 0.50), percentile(sorted, 0.99), rejected.get(), failed.get());
+		assertThat(sorted).hasSize(REQUESTS);
+	}
+
+	/**
+	 * Basic authentication checks the password on every request. The BCrypt check costs the same in
+	 * both modes and would dominate a single-CPU run, so it is left out of the measurement.
+	 */
+	@TestConfiguration
+	static class PlainPasswords {
+
+		@Bean
+		@SuppressWarnings("deprecation")
+		PasswordEncoder passwordEncoder() {
+			return NoOpPasswordEncoder.getInstance();
+		}
+	}
+
+	private static AddProductRequest lamp(String name) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName(name);
+		request.setBrand("Glow");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Lighting"));
+		return request;
+	}
+
+	private static long percentile(List<Long> sorted, double percentile) {
+		return sorted.get((int) Math.min(sorted.size() - 1, Math.round(percentile * sorted.size()))) / 1_000_000;
+	}
+}
@@ -0,0 +1,152 @@
+package com.gure.cinab.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens thousands of concurrent connections that read their responses slowly, and reports the
+ * latency percentiles and the server memory and thread cost per connection.
+ * <p>
+ * It compares the servlet application with the reactive read API ({@code CinabReactiveApplication})
+ * started against the same database, for example:
+ * </p>
+ * <pre>
+ * java -cp target/test-classes:... com.gure.cinab.benchmark.SlowClientLoadBenchmark \
+ *     -Dbenchmark.url=http://localhost:8080/api/v1/products/all?limit=100   (servlet)
+ *     -Dbenchmark.url=http://localhost:8081/api/v1/products/all?limit=100   (reactive)
+ * </pre>
+ * <p>
+ * {@code -Dbenchmark.clients} (default 2000) sets the number of connections, and
+ * {@code -Dbenchmark.read-delay} (default 20 ms) the pause after each 1 KB a client reads. Memory
+ * is sampled from the actuator {@code jvm.memory.used} metric, or from the resident set size when
+ * {@code -Dbenchmark.pid} names a server process on this machine; thread stacks only show up in
+ * the latter.
+ * </p>
+ */
+public class SlowClientLoadBenchmark {
+
+	private static final String URL = System.getProperty("benchmark.url", "http://localhost:8080/api/v1/products/all?limit=100");
+
+	private static final int CLIENTS = Integer.getInteger("benchmark.clients", 2000);
+
+	private static final long READ_DELAY = Long.getLong("benchmark.read-delay", 20);
+
+	private static final String PID = System.getProperty("benchmark.pid");
+
+	private static final String CREDENTIALS = System.getProperty("benchmark.credentials", "admin:admin");
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	public static void main(String[] args) throws Exception {
+		URI uri = URI.create(URL);
+		URI origin = URI.create(uri.getScheme() + "://" + uri.getAuthority());
+		String authorization = "Basic " + Base64.getEncoder().encodeToString(CREDENTIALS.getBytes(StandardCharsets.UTF_8));
+
+		double baselineMemory = memory(origin, authorization);
+		double baselineThreads = metric(origin, authorization, "jvm.threads.live");
+
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<>(CLIENTS));
+		AtomicInteger failed = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(CLIENTS);
+		long start = System.nanoTime();
+		for (int i = 0; i < CLIENTS; i++) {
+			// Small stacks, the client side needs thousands of threads too
+			Thread client = new Thread(null, () -> {
+				long sent = System.nanoTime();
+				try {
+					readSlowly(uri, authorization);
+					latencies.add(System.nanoTime() - sent);
+				} catch (IOException | InterruptedException e) {
+					failed.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			}, "slow-client-" + i, 256 * 1024);
+			client.start();
+		}
+
+		double peakMemory = baselineMemory;
+		double peakThreads = baselineThreads;
+		while (!done.await(500, TimeUnit.MILLISECONDS)) {
+			peakMemory = Math.max(peakMemory, memory(origin, authorization));
+			peakThreads = Math.max(peakThreads, metric(origin, authorization, "jvm.threads.live"));
+		}
+		long elapsed = System.nanoTime() - start;
+
+		List<Long> sorted = latencies.stream().sorted().toList();
+		System.out.printf("%s, %d clients reading 1 KB every %d ms, %.1f s%n", URL, CLIENTS, READ_DELAY, elapsed / 1e9);
+		System.out.printf("latency p50 %d ms, p99 %d ms, %d failed%n", percentile(sorted, 0.50), percentile(sorted, 0.99), failed.get());
+		System.out.printf("server memory +%.1f MB (%.1f KB per connection), live threads %.0f -> %.0f%n",
+				(peakMemory - baselineMemory) / 1e6, (peakMemory - baselineMemory) / 1e3 / CLIENTS, baselineThreads, peakThreads);
+	}
+
+	/**
+	 * Sends one request and reads the response 1 KB at a time, pausing after each read. The small
+	 * receive buffer makes the server wait for the client instead of the kernel absorbing the body.
+	 */
+	private static void readSlowly(URI uri, String authorization) throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(2048);
+			socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()));
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET " + uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery()) + " HTTP/1.1\r\n" +
+					"Host: " + uri.getAuthority() + "\r\n" +
+					"Authorization: " + authorization + "\r\n" +
+					"Accept: application/json\r\n" +
+					"Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			InputStream in = socket.getInputStream();
+			byte[] buffer = new byte[1024];
+			while (in.read(buffer) != -1) {
+				Thread.sleep(READ_DELAY);
+			}
+		}
+	}
+
+	private static double memory(URI origin, String authorization) throws IOException {
+		if (PID == null) {
+			return metric(origin, authorization, "jvm.memory.used");
+		}
+		// VmRSS:   123456 kB
+		for (String line : Files.readAllLines(Path.of("/proc", PID, "status"))) {
+			if (line.startsWith("VmRSS:")) {
+				return Double.parseDouble(line.replaceAll("\\D", "")) * 1024;
+			}
+		}
+		throw new IllegalStateException("No VmRSS for process " + PID);
+	}
+
+	private static double metric(URI origin, String authorization, String name) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) origin.resolve("/actuator/metrics/" + name).toURL().openConnection();
+		connection.setRequestProperty("Authorization", authorization);
+		try (InputStream in = connection.getInputStream()) {
+			return OBJECT_MAPPER.readTree(in).path("measurements").path(0).path("value").asDouble();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static long percentile(List<Long> sorted, double percentile) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		return sorted.get((int) Math.min(sorted.size() - 1, Math.round(percentile * sorted.size()))) / 1_000_000;
+	}
+}
@@ -0,0 +1,97 @@
+package com.gure.cinab.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionBulkheadFilterTests {
+
+	private final ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(1, Duration.ofMillis(50), new ObjectMapper());
+
+	@Test
+	void requestsBeyondThePermitsAreRejectedAfterTheWait() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(new MockHttpServletRequest(), response, (request, servletResponse) -> {
+					entered.countDown();
+					await(release);
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return response;
+		});
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockHttpServletResponse second = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest(), second, (request, response) -> {
+			throw new AssertionError("must not be admitted");
+		});
+
+		assertThat(second.getStatus()).isEqualTo(503);
+		assertThat(second.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(second.getContentAsString()).contains("Too many concurrent requests");
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+		assertThat(filter.availablePermits()).isEqualTo(1);
+	}
+
+	@Test
+	void permitIsReturnedWhenTheRequestFails() {
+		try {
+			filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+				throw new IllegalStateException("boom");
+			});
+		} catch (Exception e) {
+			assertThat(e).hasMessage("boom");
+		}
+
+		assertThat(filter.availablePermits()).isEqualTo(1);
+	}
+
+	@Test
+	void slowDownloadsDoNotHoldPermitsWhileTheyStream() throws Exception {
+		List<MockHttpServletRequest> downloads = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			MockHttpServletRequest download = new MockHttpServletRequest();
+			download.setAsyncSupported(true);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(download, response, (servletRequest, servletResponse) -> servletRequest.startAsync());
+			assertThat(response.getStatus()).isEqualTo(200);
+			downloads.add(download);
+		}
+		assertThat(downloads).allSatisfy(download -> assertThat(download.isAsyncStarted()).isTrue());
+
+		AtomicBoolean admitted = new AtomicBoolean();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest(), response, (request, servletResponse) -> admitted.set(true));
+
+		assertThat(admitted).isTrue();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(filter.availablePermits()).isEqualTo(1);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
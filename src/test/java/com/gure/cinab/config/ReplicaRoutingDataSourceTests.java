@@ -0,0 +1,140 @@
+package com.gure.cinab.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTests {
+
+	private final EmbeddedDatabase primary = database("primary");
+	private final EmbeddedDatabase replica = database("replica");
+	private final AtomicBoolean replicaUp = new AtomicBoolean(true);
+
+	private final ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary,
+			Map.of("replica-0", switchable(replica)), Duration.ofHours(1));
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(routed());
+	private final TransactionTemplate writes = new TransactionTemplate(transactionManager());
+	private final TransactionTemplate reads = readOnly(transactionManager());
+
+	@AfterEach
+	void tearDown() {
+		ReadYourWrites.clear();
+		router.close();
+		primary.shutdown();
+		replica.shutdown();
+	}
+
+	@Test
+	void readOnlyTransactionsUseTheReplicaAndWritesThePrimary() {
+		assertThat(readServer()).isEqualTo("replica");
+		assertThat(writeServer()).isEqualTo("primary");
+	}
+
+	@Test
+	void readsFollowingAWriteUseThePrimaryWithinTheWindow() {
+		writes.executeWithoutResult(status -> jdbcTemplate.update("insert into server values ('written')"));
+
+		List<String> names = reads.execute(status -> jdbcTemplate.queryForList("select name from server", String.class));
+		assertThat(names).contains("written");
+
+		ReadYourWrites.clear();
+		assertThat(readServer()).isEqualTo("replica");
+	}
+
+	@Test
+	void readsFallBackToThePrimaryWhileTheReplicaIsDown() {
+		replicaUp.set(false);
+		assertThat(readServer()).isEqualTo("primary");
+		assertThat(router.replicaHealth()).containsEntry("replica-0", false);
+
+		replicaUp.set(true);
+		assertThat(readServer()).isEqualTo("primary");
+		router.checkReplicas();
+		assertThat(router.replicaHealth()).containsEntry("replica-0", true);
+		assertThat(readServer()).isEqualTo("replica");
+	}
+
+	@Test
+	void explicitCredentialsArePassedToTheReplica() throws SQLException {
+		try (Connection connection = router.getConnection("sa", "")) {
+			assertThat(new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+					.queryForObject("select name from server", String.class)).isEqualTo("replica");
+		}
+	}
+
+	private String readServer() {
+		return reads.execute(status -> server());
+	}
+
+	private String writeServer() {
+		return writes.execute(status -> server());
+	}
+
+	private String server() {
+		List<String> names = jdbcTemplate.queryForList("select name from server order by name", String.class);
+		return names.get(0);
+	}
+
+	private DataSource routed() {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+		dataSource.setReadOnlyDataSource(router);
+		return dataSource;
+	}
+
+	private DataSourceTransactionManager transactionManager() {
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+		transactionManager.addListener(new ReadYourWritesListener(Duration.ofSeconds(5)));
+		return transactionManager;
+	}
+
+	private static TransactionTemplate readOnly(DataSourceTransactionManager transactionManager) {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		return template;
+	}
+
+	private DataSource switchable(DataSource target) {
+		return new AbstractDataSource() {
+			@Override
+			public Connection getConnection() throws SQLException {
+				if (!replicaUp.get()) {
+					throw new SQLException("Connection refused");
+				}
+				return target.getConnection();
+			}
+
+			@Override
+			public Connection getConnection(String username, String password) throws SQLException {
+				return getConnection();
+			}
+		};
+	}
+
+	private static EmbeddedDatabase database(String name) {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+		new JdbcTemplate(database).execute("create table server (name varchar(20))");
+		new JdbcTemplate(database).update("insert into server values (?)", name);
+		return database;
+	}
+}
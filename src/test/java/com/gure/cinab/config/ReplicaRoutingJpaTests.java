@@ -0,0 +1,149 @@
+package com.gure.cinab.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cinab_routing_primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+		"cinab.datasource.replicas[0].url=" + ReplicaRoutingJpaTests.REPLICA_URL,
+		"cinab.datasource.health-check-interval=1h",
+		"spring.jpa.open-in-view=false"})
+@ActiveProfiles("test")
+@Import(ReplicaRoutingJpaTests.Reads.class)
+class ReplicaRoutingJpaTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:cinab_routing_replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private Reads reads;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DataSource primaryDataSource;
+
+	@BeforeEach
+	void setUp() {
+		marker(new JdbcTemplate(primaryDataSource), "primary");
+		marker(new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "")), "replica");
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReadYourWrites.clear();
+	}
+
+	@Test
+	void applicationTransactionsAreRouted() {
+		assertThat(transactionManager).isInstanceOf(ReplicaJpaTransactionManager.class);
+
+		assertThat(reads.readOnly()).isEqualTo("replica");
+		assertThat(reads.readWrite()).isEqualTo("primary");
+		assertThat(reads.labelledPrimary()).isEqualTo("primary");
+	}
+
+	@Test
+	void afterCommitCallbacksReadTheWriteFromThePrimary() {
+		AtomicReference<String> seen = new AtomicReference<>();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			reads.readWrite();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					seen.set(reads.readOnlyInNewTransaction());
+				}
+			});
+		});
+
+		assertThat(seen).hasValue("primary");
+		assertThat(reads.readOnly()).isEqualTo("primary");
+		ReadYourWrites.clear();
+		assertThat(reads.readOnly()).isEqualTo("replica");
+	}
+
+	@Test
+	void replicaReadsDoNotFillTheSecondLevelCache() {
+		assertThat(reads.readOnlyCacheMode()).isEqualTo(CacheMode.GET);
+		assertThat(reads.labelledPrimaryCacheMode()).isEqualTo(CacheMode.NORMAL);
+		assertThat(reads.readWriteCacheMode()).isEqualTo(CacheMode.NORMAL);
+	}
+
+	private static void marker(JdbcTemplate jdbcTemplate, String name) {
+		jdbcTemplate.execute("create table if not exists server (name varchar(20))");
+		jdbcTemplate.update("delete from server");
+		jdbcTemplate.update("insert into server values (?)", name);
+	}
+
+	static class Reads {
+
+		@PersistenceContext
+		private EntityManager entityManager;
+
+		@Transactional(readOnly = true)
+		public String readOnly() {
+			return server();
+		}
+
+		@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+		public String readOnlyInNewTransaction() {
+			return server();
+		}
+
+		@Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+		public String labelledPrimary() {
+			return server();
+		}
+
+		@Transactional
+		public String readWrite() {
+			return server();
+		}
+
+		@Transactional(readOnly = true)
+		public CacheMode readOnlyCacheMode() {
+			return cacheMode();
+		}
+
+		@Transactional(readOnly = true, label = ReadYourWrites.PRIMARY)
+		public CacheMode labelledPrimaryCacheMode() {
+			return cacheMode();
+		}
+
+		@Transactional
+		public CacheMode readWriteCacheMode() {
+			return cacheMode();
+		}
+
+		private String server() {
+			return (String) entityManager.createNativeQuery("select name from server").getSingleResult();
+		}
+
+		private CacheMode cacheMode() {
+			return entityManager.unwrap(Session.class).getCacheMode();
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package com.gure.cinab.controller.image;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.image.IImageService;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@WithMockUser
+class ImageStreamingTests {
+
+	private static final byte[] CONTENT = "not really a png".getBytes(StandardCharsets.US_ASCII);
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private IImageService imageService;
+
+	@Value("${api.prefix}")
+	private String apiPrefix;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+	}
+
+	@Test
+	void downloadStreamsTheContentWithItsLength() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length))
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"lamp.png\""))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().bytes(CONTENT));
+	}
+
+	@Test
+	void storedFilesAreLeftToTomcatSendfile() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.requestAttr(ImageController.SENDFILE_SUPPORTED, true)
+						.header(HttpHeaders.RANGE, "bytes=4-9"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isPartialContent())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 6))
+				.andExpect(request().attribute(ImageController.SENDFILE_FILENAME, endsWith(imageService.getImageDownload(imageId).contentHash())))
+				.andExpect(request().attribute(ImageController.SENDFILE_START, 4L))
+				.andExpect(request().attribute(ImageController.SENDFILE_END, 10L))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void versionedUrlIsCachedForGood() throws Exception {
+		ImageDTO image = saveImage(CONTENT);
+
+		MvcResult result = mockMvc.perform(get(image.getDownloadUrl()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")))
+				.andExpect(content().bytes(CONTENT));
+	}
+
+	@Test
+	void missingVariantSendsTheOriginalUncached() throws Exception {
+		ImageDTO image = saveImage(CONTENT);
+
+		MvcResult result = mockMvc.perform(get(image.getDownloadUrl() + "&variant=thumb"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().bytes(CONTENT));
+	}
+
+	@Test
+	void unknownVariantIsRejected() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId).param("variant", "huge"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void matchingEntityTagIsNotModified() throws Exception {
+		ImageDTO image = saveImage(CONTENT);
+		String eTag = "\"" + image.getDownloadUrl().substring(image.getDownloadUrl().indexOf("?v=") + 3) + "\"";
+
+		mockMvc.perform(get(image.getDownloadUrl()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void singleRangeIsPartialContent() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.header(HttpHeaders.RANGE, "bytes=4-9"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/" + CONTENT.length))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 6))
+				.andExpect(content().string("really"));
+	}
+
+	@Test
+	void severalRangesAreMultipart() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.header(HttpHeaders.RANGE, "bytes=0-2,-3"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String contentType = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isPartialContent())
+				.andReturn().getResponse().getContentType();
+		String boundary = MediaType.parseMediaType(contentType).getParameter("boundary");
+
+		assertThat(contentType).startsWith("multipart/byteranges");
+		assertThat(result.getResponse().getContentAsString()).isEqualTo(
+				"\r\n--" + boundary + "\r\nContent-Type: image/png\r\nContent-Range: bytes 0-2/16\r\n\r\nnot"
+						+ "\r\n--" + boundary + "\r\nContent-Type: image/png\r\nContent-Range: bytes 13-15/16\r\n\r\npng"
+						+ "\r\n--" + boundary + "--\r\n");
+	}
+
+	@Test
+	void unsatisfiableRangeIsRejected() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId).header(HttpHeaders.RANGE, "bytes=100-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT.length));
+	}
+
+	@Test
+	void unsatisfiableRangesAreLeftOutOfASatisfiableSet() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.header(HttpHeaders.RANGE, "bytes=100-,4-9"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/" + CONTENT.length))
+				.andExpect(content().string("really"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"bytes=abc", "items=0-1", "bytes=9-4", "bytes=0-5,3-8", "bytes=0-7,8-15"})
+	void malformedOrWastefulRangesReturnTheWholeImage(String range) throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.header(HttpHeaders.RANGE, range))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+				.andExpect(content().bytes(CONTENT));
+	}
+
+	@Test
+	void staleIfRangeReturnsTheWholeImage() throws Exception {
+		Long imageId = saveImage(CONTENT).getId();
+
+		MvcResult result = mockMvc.perform(get(apiPrefix + "/images/image/download/" + imageId)
+						.header(HttpHeaders.RANGE, "bytes=4-9")
+						.header(HttpHeaders.IF_RANGE, "\"an-older-version\""))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(CONTENT));
+	}
+
+	private ImageDTO saveImage(byte[] content) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Lamp");
+		request.setBrand("Lumo");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Lighting"));
+		Long productId = productService.addProduct(request).getId();
+		return imageService.saveImages(productId, List.of(new MockMultipartFile("files", "lamp.png", "image/png", content)))
+				.get(0);
+	}
+}
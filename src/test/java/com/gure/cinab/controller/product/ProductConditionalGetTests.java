@@ -0,0 +1,152 @@
+package com.gure.cinab.controller.product;
+
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFilter;
+import com.gure.cinab.service.product.IProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@WithMockUser
+class ProductConditionalGetTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private MockMvc mockMvc;
+
+	private Long productId;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Toaster");
+		request.setBrand("Crisp");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Appliances"));
+		productId = productService.addProduct(request).getId();
+	}
+
+	@Test
+	void unchangedProductIsNotSentAgain() throws Exception {
+		String eTag = productETag();
+		String lastModified = mockMvc.perform(get(productUrl()))
+				.andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+		mockMvc.perform(get(productUrl()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+		mockMvc.perform(get(productUrl()).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void productETagIsWeakBecauseItIsSharedByEveryRepresentation() throws Exception {
+		String eTag = productETag();
+		assertThat(eTag).startsWith("W/");
+
+		String cborETag = mockMvc.perform(get(productUrl()).accept("application/cbor"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(cborETag).isEqualTo(eTag);
+	}
+
+	@Test
+	void changedProductGetsANewETag() throws Exception {
+		String eTag = productETag();
+
+		BulkProductUpdateRequest update = new BulkProductUpdateRequest();
+		ProductFilter filter = new ProductFilter();
+		filter.setIds(List.of(productId));
+		update.setFilter(filter);
+		update.setPrice(BigDecimal.ONE);
+		productService.bulkUpdateProducts(update);
+
+		String newETag = mockMvc.perform(get(productUrl()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(newETag).isNotEqualTo(eTag);
+	}
+
+	@Test
+	void productListingIsValidatedWithAWeakETag() throws Exception {
+		String eTag = mockMvc.perform(get("/api/v1/products/all"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(eTag).startsWith("W/");
+
+		mockMvc.perform(get("/api/v1/products/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		productService.deleteProduct(productId);
+
+		mockMvc.perform(get("/api/v1/products/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void productListingIsRevalidatedWithoutQueries() throws Exception {
+		String eTag = mockMvc.perform(get("/api/v1/products/all"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mockMvc.perform(get("/api/v1/products/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void categoryListingIsValidatedWithAWeakETag() throws Exception {
+		String eTag = mockMvc.perform(get("/api/v1/categories/all"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/api/v1/categories/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+	}
+
+	private String productETag() throws Exception {
+		return mockMvc.perform(get(productUrl()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+
+	private String productUrl() {
+		return "/api/v1/products/product/" + productId;
+	}
+}
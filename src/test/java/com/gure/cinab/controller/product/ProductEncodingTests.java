@@ -0,0 +1,117 @@
+package com.gure.cinab.controller.product;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.gure.cinab.config.EncodingConfig;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@WithMockUser
+class ProductEncodingTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private IProductService productService;
+
+	private MockMvc mockMvc;
+
+	private Long productId;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Kettle");
+		request.setBrand("Boil");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Appliances"));
+		productId = productService.addProduct(request).getId();
+	}
+
+	@Test
+	void jsonIsTheDefaultEncoding() throws Exception {
+		mockMvc.perform(get(productUrl()))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+	}
+
+	@Test
+	void cborIsSentWhenAccepted() throws Exception {
+		byte[] body = mockMvc.perform(get(productUrl()).accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		assertThat(productName(new ObjectMapper(new CBORFactory()), body)).isEqualTo("Kettle");
+	}
+
+	@Test
+	void smileIsSentWhenAccepted() throws Exception {
+		MediaType smile = MediaType.parseMediaType(EncodingConfig.APPLICATION_SMILE_VALUE);
+		byte[] body = mockMvc.perform(get("/api/v1/products/all").accept(smile))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(smile))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode items = new ObjectMapper(new SmileFactory()).readTree(body).path("data").path("items");
+		assertThat(items.isArray()).isTrue();
+	}
+
+	@Test
+	void sparseFieldsetLimitsTheSerializedProperties() throws Exception {
+		mockMvc.perform(get("/api/v1/products/all").param("fields", "name,price"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items[0].id").exists())
+				.andExpect(jsonPath("$.data.items[0].name").exists())
+				.andExpect(jsonPath("$.data.items[0].price").exists())
+				.andExpect(jsonPath("$.data.items[0].description").doesNotExist())
+				.andExpect(jsonPath("$.data.items[0].images").doesNotExist());
+		byte[] body = mockMvc.perform(get(productUrl()).param("fields", "name").accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		JsonNode product = new ObjectMapper(new CBORFactory()).readTree(body).path("data");
+		assertThat(product.has("name")).isTrue();
+		assertThat(product.has("brand")).isFalse();
+		mockMvc.perform(get(productUrl()).param("fields", "secret"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private String productName(ObjectMapper objectMapper, byte[] body) throws Exception {
+		return objectMapper.readTree(body).path("data").path("name").asText();
+	}
+
+	private String productUrl() {
+		return "/api/v1/products/product/" + productId;
+	}
+}
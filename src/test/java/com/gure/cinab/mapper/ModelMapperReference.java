@@ -0,0 +1,33 @@
+package com.gure.cinab.mapper;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.Product;
+import org.modelmapper.ModelMapper;
+
+import java.util.List;
+
+/**
+ * The ModelMapper based conversion that {@link ProductMapper} replaced, kept as the reference
+ * implementation for equivalence tests and benchmarks.
+ */
+public class ModelMapperReference {
+
+	private final ModelMapper modelMapper = new ModelMapper();
+
+	public ModelMapperReference() {
+		modelMapper.typeMap(Product.class, ProductDTO.class)
+				.addMappings(mapper -> mapper.skip(ProductDTO::setImages));
+	}
+
+	public ProductDTO toDTO(Product product, List<ImageDTO> imageDTOs) {
+		ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
+		productDTO.setImages(imageDTOs);
+		return productDTO;
+	}
+
+	public ImageDTO toDTO(Image image) {
+		return modelMapper.map(image, ImageDTO.class);
+	}
+}
@@ -0,0 +1,87 @@
+package com.gure.cinab.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductMapperTests {
+
+	private final ProductMapper productMapper = new ProductMapper();
+
+	private final ModelMapperReference reference = new ModelMapperReference();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void productMappingMatchesModelMapper() throws Exception {
+		Product product = product(7L, "Pixel", "Google", new BigDecimal("599.99"), "Phone", category(3L, "Phones"));
+		List<ImageDTO> images = List.of(reference.toDTO(image(11L, "front.png")), reference.toDTO(image(12L, "back.png")));
+
+		assertSameOutput(productMapper.toDTO(product, images), reference.toDTO(product, images));
+	}
+
+	@Test
+	void productWithNullFieldsMatchesModelMapper() throws Exception {
+		Product product = product(8L, "Unbranded", null, null, null, null);
+
+		assertSameOutput(productMapper.toDTO(product, List.of()), reference.toDTO(product, List.of()));
+	}
+
+	@Test
+	void imageMappingMatchesModelMapper() throws Exception {
+		Image image = image(21L, "logo.svg");
+
+		ImageDTO mapped = productMapper.toDTO(image);
+		ImageDTO expected = reference.toDTO(image);
+
+		assertThat(mapped).isEqualTo(expected);
+		assertThat(objectMapper.writeValueAsString(mapped)).isEqualTo(objectMapper.writeValueAsString(expected));
+	}
+
+	@Test
+	void mappedCategoryIsACopy() {
+		Category category = category(3L, "Phones");
+		Product product = product(9L, "Galaxy", "Samsung", BigDecimal.ONE, "Phone", category);
+
+		ProductDTO mapped = productMapper.toDTO(product, List.of());
+
+		assertThat(mapped.getCategory()).isNotSameAs(category);
+		assertThat(mapped.getCategory().getId()).isEqualTo(3L);
+		assertThat(mapped.getCategory().getName()).isEqualTo("Phones");
+	}
+
+	private void assertSameOutput(ProductDTO mapped, ProductDTO expected) throws Exception {
+		assertThat(mapped).usingRecursiveComparison().isEqualTo(expected);
+		assertThat(objectMapper.writeValueAsString(mapped)).isEqualTo(objectMapper.writeValueAsString(expected));
+	}
+
+	static Product product(Long id, String name, String brand, BigDecimal price, String description, Category category) {
+		Product product = new Product(name, brand, price, 4, description, category);
+		product.setId(id);
+		return product;
+	}
+
+	static Category category(long id, String name) {
+		Category category = new Category(name);
+		category.setId(id);
+		return category;
+	}
+
+	static Image image(long id, String fileName) {
+		Image image = new Image();
+		image.setId(id);
+		image.setFileName(fileName);
+		image.setFileType("image/png");
+		image.setDownloadUrl("/api/v1/images/image/download/" + id);
+		return image;
+	}
+}
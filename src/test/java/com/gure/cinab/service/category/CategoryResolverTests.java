@@ -0,0 +1,108 @@
+package com.gure.cinab.service.category;
+
+import com.gure.cinab.model.Category;
+import com.gure.cinab.repository.CategoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CategoryResolverTests {
+
+	@Autowired
+	private CategoryResolver categoryResolver;
+
+	@Autowired
+	private ICategoryService categoryService;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void concurrentWritersResolveToASingleCategory() throws Exception {
+		int writers = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		Callable<Long> resolve = () -> {
+			start.await();
+			return transaction().execute(status -> categoryResolver.resolve("Garden").getId());
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<Long>> ids = IntStream.range(0, writers).mapToObj(i -> executor.submit(resolve)).toList();
+			start.countDown();
+
+			Long id = ids.get(0).get();
+			for (Future<Long> other : ids) {
+				assertThat(other.get()).isEqualTo(id);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(categoryRepository.findAll()).filteredOn(category -> category.getName().equals("Garden")).hasSize(1);
+	}
+
+	@Test
+	void resolvedCategoriesAreServedWithoutQueries() {
+		Long id = transaction().execute(status -> categoryResolver.resolve("Toys").getId());
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		Long again = transaction().execute(status -> categoryResolver.resolve("Toys").getId());
+
+		assertThat(again).isEqualTo(id);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void rolledBackCategoriesAreNotCached() {
+		Long rolledBack = transaction().execute(status -> {
+			Long id = categoryResolver.resolve("Books").getId();
+			status.setRollbackOnly();
+			return id;
+		});
+
+		Long id = transaction().execute(status -> categoryResolver.resolve("Books").getId());
+
+		assertThat(id).isNotEqualTo(rolledBack);
+		assertThat(categoryRepository.findById(id)).isPresent();
+	}
+
+	@Test
+	void deletedCategoriesAreCreatedAgain() {
+		Long id = transaction().execute(status -> categoryResolver.resolve("Music").getId());
+
+		categoryService.deleteCategory(id);
+		Category recreated = transaction().execute(status -> categoryRepository.findById(categoryResolver.resolve("Music").getId()).orElseThrow());
+
+		assertThat(recreated.getId()).isNotEqualTo(id);
+		assertThat(recreated.getName()).isEqualTo("Music");
+	}
+
+	private TransactionTemplate transaction() {
+		return new TransactionTemplate(transactionManager);
+	}
+}
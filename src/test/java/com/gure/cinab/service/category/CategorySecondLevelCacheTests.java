@@ -0,0 +1,64 @@
+package com.gure.cinab.service.category;
+
+import com.gure.cinab.config.HibernateCacheConfig;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.repository.CategoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CategorySecondLevelCacheTests {
+
+	@Autowired
+	private ICategoryService categoryService;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void statistics() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void categoriesAreLoadedFromTheSecondLevelCache() {
+		long id = categoryService.addCategory(new Category("Lighting")).getId();
+		categoryService.getCategoryById(id);
+		statistics.clear();
+
+		assertThat(categoryService.getCategoryById(id).getName()).isEqualTo("Lighting");
+
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getDomainDataRegionStatistics(HibernateCacheConfig.CATEGORY_REGION).getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void cachedLookupsByNameAreInvalidatedByWrites() {
+		long id = categoryService.addCategory(new Category("Audio")).getId();
+		categoryRepository.findByName("Audio");
+		statistics.clear();
+
+		assertThat(categoryRepository.findByName("Audio").getId()).isEqualTo(id);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getQueryRegionStatistics(HibernateCacheConfig.CATEGORY_QUERY_REGION).getHitCount()).isEqualTo(1);
+
+		categoryService.updateCategory(new Category("Hi-Fi"), id);
+
+		assertThat(categoryRepository.findByName("Audio")).isNull();
+		assertThat(categoryRepository.findByName("Hi-Fi").getId()).isEqualTo(id);
+	}
+}
@@ -0,0 +1,104 @@
+package com.gure.cinab.service.facet;
+
+import com.gure.cinab.dto.ProductRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTests {
+
+	private final ProductFacetIndex index = new ProductFacetIndex();
+
+	@BeforeEach
+	void setUp() {
+		index.index(row(1L, "Samsung", "Phones"));
+		index.index(row(2L, "Samsung", "Tablets"));
+		index.index(row(3L, "Apple", "Phones"));
+		index.index(row(4L, "Apple", "Laptops"));
+		index.index(row(5L, "Acme", "Phones"));
+	}
+
+	@Test
+	void filtersAreOredWithinAndAndedAcrossDimensions() {
+		ProductFacetIndex.FacetResult result = index.query(List.of("Samsung", "Apple"), List.of("Phones"), 0, 10);
+
+		assertThat(result.productIds()).containsExactly(1L, 3L);
+		assertThat(result.total()).isEqualTo(2);
+	}
+
+	@Test
+	void eachDimensionIsCountedWithoutItsOwnFilter() {
+		ProductFacetIndex.FacetResult result = index.query(List.of("Samsung"), List.of("Phones"), 0, 10);
+
+		assertThat(result.brandCounts()).isEqualTo(Map.of("Acme", 1, "Apple", 1, "Samsung", 1));
+		assertThat(result.categoryCounts()).isEqualTo(Map.of("Phones", 1, "Tablets", 1));
+	}
+
+	@Test
+	void pagesFollowTheCursor() {
+		ProductFacetIndex.FacetResult first = index.query(List.of(), List.of(), 0, 2);
+		ProductFacetIndex.FacetResult second = index.query(List.of(), List.of(), 2, 2);
+		ProductFacetIndex.FacetResult last = index.query(List.of(), List.of(), 4, 2);
+
+		assertThat(first.productIds()).containsExactly(1L, 2L);
+		assertThat(first.hasMore()).isTrue();
+		assertThat(second.productIds()).containsExactly(3L, 4L);
+		assertThat(last.productIds()).containsExactly(5L);
+		assertThat(last.hasMore()).isFalse();
+	}
+
+	@Test
+	void reindexingMovesAProductBetweenFacets() {
+		index.index(row(5L, "Samsung", "Tablets"));
+
+		ProductFacetIndex.FacetResult result = index.query(null, null, 0, 10);
+
+		assertThat(result.brandCounts()).isEqualTo(Map.of("Apple", 2, "Samsung", 3));
+		assertThat(result.categoryCounts()).isEqualTo(Map.of("Laptops", 1, "Phones", 2, "Tablets", 2));
+	}
+
+	@Test
+	void removedProductsNoLongerMatch() {
+		index.remove(4L);
+
+		ProductFacetIndex.FacetResult result = index.query(List.of("Apple"), null, 0, 10);
+
+		assertThat(result.productIds()).containsExactly(3L);
+		assertThat(result.categoryCounts()).doesNotContainKey("Laptops");
+	}
+
+	@Test
+	void unknownValuesMatchNothing() {
+		ProductFacetIndex.FacetResult result = index.query(List.of("Nokia"), null, 0, 10);
+
+		assertThat(result.productIds()).isEmpty();
+		assertThat(result.total()).isZero();
+	}
+
+	@Test
+	void idsBeyondTheIntRangeAreIndexedAndPaged() {
+		long large = Integer.MAX_VALUE + 10L;
+		index.index(row(large, "Samsung", "Phones"));
+		index.index(row(large + 1, "Samsung", "Phones"));
+
+		ProductFacetIndex.FacetResult result = index.query(List.of("Samsung"), List.of("Phones"), 1, 1);
+		ProductFacetIndex.FacetResult next = index.query(List.of("Samsung"), List.of("Phones"), large, 10);
+
+		assertThat(result.productIds()).containsExactly(large);
+		assertThat(result.hasMore()).isTrue();
+		assertThat(result.total()).isEqualTo(3);
+		assertThat(next.productIds()).containsExactly(large + 1);
+
+		index.remove(large);
+		assertThat(index.query(null, null, 5, 10).productIds()).containsExactly(large + 1);
+	}
+
+	private static ProductRow row(Long id, String brand, String category) {
+		return new ProductRow(id, "Product " + id, brand, BigDecimal.TEN, 1, "", (long) category.length(), category, 0, null);
+	}
+}
@@ -0,0 +1,98 @@
+package com.gure.cinab.service.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemImageStorageTests {
+
+	private static final byte[] CONTENT = "not really a png".getBytes(StandardCharsets.US_ASCII);
+
+	@TempDir
+	private Path root;
+
+	private FileSystemImageStorage storage;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		storage = new FileSystemImageStorage(root);
+	}
+
+	@Test
+	void contentIsStoredUnderItsHashInShardedDirectories() throws IOException {
+		IImageStorage.StoredContent stored = storage.store(new ByteArrayInputStream(CONTENT));
+
+		String hash = sha256(CONTENT);
+		assertThat(stored.hash()).isEqualTo(hash);
+		assertThat(stored.length()).isEqualTo(CONTENT.length);
+		Path file = root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+		assertThat(file).hasBinaryContent(CONTENT);
+		assertThat(storage.localFile(hash)).contains(file);
+	}
+
+	@Test
+	void identicalContentIsStoredOnce() throws IOException {
+		storage.store(new ByteArrayInputStream(CONTENT));
+		storage.store(new ByteArrayInputStream(CONTENT));
+
+		try (var files = Files.walk(root)) {
+			assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+		}
+	}
+
+	@Test
+	void byteRangesAreCopiedFromTheFile() throws IOException {
+		String hash = storage.store(new ByteArrayInputStream(CONTENT)).hash();
+
+		ImageContent content = storage.open(hash);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		content.copyTo(out, 4, 6);
+
+		assertThat(content.length()).isEqualTo(CONTENT.length);
+		assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("really");
+	}
+
+	@Test
+	void missingContentIsNotFound() {
+		String hash = sha256(CONTENT);
+
+		assertThat(storage.contains(hash)).isFalse();
+		assertThat(storage.localFile(hash)).isEmpty();
+		assertThatThrownBy(() -> storage.open(hash)).isInstanceOf(NoSuchFileException.class);
+	}
+
+	@Test
+	void onlyContentHashesNameFiles() {
+		assertThatThrownBy(() -> storage.contains("../../etc/passwd"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void rootMustBeAnAbsolutePath() {
+		assertThatThrownBy(() -> new FileSystemImageStorage(Path.of("data/images")))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("absolute");
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
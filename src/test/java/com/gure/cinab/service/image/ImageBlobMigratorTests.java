@@ -0,0 +1,124 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.dto.ImageDownload;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.repository.ImageRepository;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.rowset.serial.SerialBlob;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImageBlobMigratorTests {
+
+	@Autowired
+	private ImageBlobMigrator migrator;
+
+	@Autowired
+	private IImageService imageService;
+
+	@Autowired
+	private IImageStorage imageStorage;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void databaseContentMovesToTheImageStorage() throws IOException {
+		byte[] content = "stored the old way".getBytes(StandardCharsets.US_ASCII);
+		Long id = saveBlobImage(content, sha256(content));
+		ImageDownload before = imageService.getImageDownload(id);
+
+		assertThat(migrator.migrateAll()).isGreaterThanOrEqualTo(1);
+
+		Image image = imageRepository.findById(id).orElseThrow();
+		assertThat(image.getImage()).isNull();
+		assertThat(image.getContentLength()).isEqualTo(content.length);
+		assertThat(imageStorage.contains(sha256(content))).isTrue();
+		assertThat(imageService.getImageDownload(id)).isEqualTo(before);
+		assertThat(read(id, before.contentHash())).isEqualTo(content);
+	}
+
+	@Test
+	void databaseContentIsServedUntilItMoves() throws IOException {
+		byte[] content = "not moved yet".getBytes(StandardCharsets.US_ASCII);
+		Long id = saveBlobImage(content, null);
+
+		ImageDownload download = imageService.getImageDownload(id);
+
+		assertThat(download.length()).isEqualTo(content.length);
+		assertThat(read(id, null)).isEqualTo(content);
+		assertThatThrownBy(() -> read(id, sha256(content))).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void contentNotMatchingItsHashStaysInTheDatabase() {
+		Long id = saveBlobImage("tampered".getBytes(StandardCharsets.US_ASCII), sha256(new byte[]{1}));
+
+		migrator.migrateAll();
+
+		assertThat(imageRepository.findById(id).orElseThrow().getContentLength()).isNull();
+	}
+
+	private byte[] read(Long id, String contentHash) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		imageService.readImageContent(id, contentHash, content -> content.copyTo(out, 0, content.length()));
+		return out.toByteArray();
+	}
+
+	private Long saveBlobImage(byte[] content, String contentHash) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Vase");
+		request.setBrand("Potterly");
+		request.setPrice(BigDecimal.ONE);
+		request.setInventory(1);
+		request.setCategory(new Category("Pottery"));
+		Long productId = productService.addProduct(request).getId();
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			Image image = new Image();
+			image.setFileName("vase.png");
+			image.setFileType("image/png");
+			image.setContentHash(contentHash);
+			image.setProduct(productService.getProductById(productId));
+			try {
+				image.setImage(new SerialBlob(content));
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+			return imageRepository.save(image).getId();
+		});
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
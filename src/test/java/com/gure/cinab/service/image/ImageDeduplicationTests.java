@@ -0,0 +1,169 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageStorageReportDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.ImageFile;
+import com.gure.cinab.repository.ImageFileRepository;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.ProductFilter;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImageDeduplicationTests {
+
+	@Autowired
+	private IImageService imageService;
+
+	@Autowired
+	private IImageStorage imageStorage;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private ImageFileRepository imageFileRepository;
+
+	@Autowired
+	private ImageContentReferences imageContentReferences;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void identicalUploadsShareOneFileUntilTheLastImageGoes() {
+		byte[] logo = randomBytes(5000, 1);
+		Long first = upload(addProduct("Logo tee"), logo);
+		Long second = upload(addProduct("Logo cap"), logo);
+		String hash = imageService.getImageDownload(first).contentHash();
+
+		assertThat(imageService.getImageDownload(second).contentHash()).isEqualTo(hash);
+		assertThat(referenceCount(hash)).isEqualTo(2);
+
+		imageService.deleteImageById(first);
+		assertThat(referenceCount(hash)).isEqualTo(1);
+		assertThat(imageStorage.contains(hash)).isTrue();
+
+		imageService.deleteImageById(second);
+		assertThat(imageFileRepository.findById(hash)).isEmpty();
+		assertThat(imageStorage.contains(hash)).isFalse();
+	}
+
+	@Test
+	void replacedContentIsReleased() {
+		Long id = upload(addProduct("Packshot"), randomBytes(3000, 2));
+		String oldHash = imageService.getImageDownload(id).contentHash();
+
+		imageService.updateImage(new MockMultipartFile("file", "packshot.png", "image/png", randomBytes(3000, 3)), id);
+
+		String newHash = imageService.getImageDownload(id).contentHash();
+		assertThat(imageStorage.contains(oldHash)).isFalse();
+		assertThat(imageStorage.contains(newHash)).isTrue();
+		assertThat(referenceCount(newHash)).isEqualTo(1);
+	}
+
+	@Test
+	void deletedProductsReleaseTheirImages() {
+		byte[] packshot = randomBytes(4000, 4);
+		Long kept = addProduct("Kept");
+		upload(kept, packshot);
+		Long single = addProduct("Deleted alone");
+		upload(single, packshot);
+		List<Long> bulk = List.of(addProduct("Deleted in bulk 1"), addProduct("Deleted in bulk 2"));
+		bulk.forEach(productId -> upload(productId, packshot));
+		String hash = imageService.getImageDownload(upload(addProduct("Probe"), packshot)).contentHash();
+		assertThat(referenceCount(hash)).isEqualTo(5);
+
+		productService.deleteProduct(single);
+		ProductFilter filter = new ProductFilter();
+		filter.setIds(bulk);
+		productService.bulkDeleteProducts(filter);
+
+		assertThat(referenceCount(hash)).isEqualTo(2);
+		assertThat(imageStorage.contains(hash)).isTrue();
+	}
+
+	@Test
+	void storageReportCountsTheSavedBytes() {
+		ImageStorageReportDTO before = imageService.getStorageReport();
+		byte[] banner = randomBytes(10_000, 5);
+		for (int i = 0; i < 3; i++) {
+			upload(addProduct("Banner " + i), banner);
+		}
+
+		ImageStorageReportDTO after = imageService.getStorageReport();
+
+		assertThat(after.getFiles() - before.getFiles()).isEqualTo(1);
+		assertThat(after.getImages() - before.getImages()).isEqualTo(3);
+		assertThat(after.getStoredBytes() - before.getStoredBytes()).isEqualTo(10_000);
+		assertThat(after.getSavedBytes() - before.getSavedBytes()).isEqualTo(20_000);
+	}
+
+	@Test
+	void rolledBackContentIsDeletedUnlessReferenced() {
+		byte[] shared = randomBytes(2000, 6);
+		String sharedHash = imageService.getImageDownload(upload(addProduct("Sticker"), shared)).contentHash();
+
+		String orphanHash = storeAndRollBack(randomBytes(2000, 7));
+		storeAndRollBack(shared);
+
+		assertThat(imageStorage.contains(orphanHash)).isFalse();
+		assertThat(imageFileRepository.findById(orphanHash)).isEmpty();
+		assertThat(imageStorage.contains(sharedHash)).isTrue();
+		assertThat(referenceCount(sharedHash)).isEqualTo(1);
+	}
+
+	private String storeAndRollBack(byte[] content) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			status.setRollbackOnly();
+			try {
+				return imageContentReferences.store(() -> new ByteArrayInputStream(content)).hash();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private int referenceCount(String hash) {
+		return imageFileRepository.findById(hash).map(ImageFile::getReferenceCount).orElse(0);
+	}
+
+	private Long addProduct(String name) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName(name);
+		request.setBrand("Brandly");
+		request.setPrice(BigDecimal.ONE);
+		request.setInventory(1);
+		request.setCategory(new Category("Merch"));
+		return productService.addProduct(request).getId();
+	}
+
+	private Long upload(Long productId, byte[] content) {
+		List<ImageDTO> images = imageService.saveImages(productId,
+				List.of(new MockMultipartFile("files", "image.png", "image/png", content)));
+		return images.get(0).getId();
+	}
+
+	private static byte[] randomBytes(int size, long seed) {
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,136 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.dto.ImageDTO;
+import com.gure.cinab.dto.ImageDownload;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.product.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImageDownloadTests {
+
+	private static final int SMALL = 64 * 1024;
+	private static final int LARGE = 4 * 1024 * 1024;
+
+	@Autowired
+	private IImageService imageService;
+
+	@Autowired
+	private IProductService productService;
+
+	@Test
+	void downloadsStreamTheStoredContent() throws IOException {
+		byte[] content = randomBytes(100_000);
+		Long id = saveImage(content);
+
+		ImageDownload download = imageService.getImageDownload(id);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		imageService.readImageContent(id, download.contentHash(), imageContent -> imageContent.copyTo(out, 0, imageContent.length()));
+
+		assertThat(download.length()).isEqualTo(content.length);
+		assertThat(download.fileType()).isEqualTo("image/png");
+		assertThat(download.contentHash()).isEqualTo(HexFormat.of().formatHex(sha256(content)));
+		assertThat(out.toByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	void byteRangesAreReadFromTheMiddleOfTheContent() throws IOException {
+		byte[] content = randomBytes(50_000);
+		Long id = saveImage(content);
+
+		ImageDownload download = imageService.getImageDownload(id);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		imageService.readImageContent(id, download.contentHash(), imageContent -> {
+			imageContent.copyTo(out, 20_000, 10_000);
+			imageContent.copyTo(out, 49_999, 1);
+		});
+
+		byte[] expected = new byte[10_001];
+		System.arraycopy(content, 20_000, expected, 0, 10_000);
+		expected[10_000] = content[49_999];
+		assertThat(out.toByteArray()).isEqualTo(expected);
+	}
+
+	@Test
+	void allocationPerDownloadDoesNotGrowWithTheImageSize() throws IOException {
+		Long small = saveImage(randomBytes(SMALL));
+		Long large = saveImage(randomBytes(LARGE));
+		// Warm up, so class loading and first-call caches are not measured
+		allocatedByDownload(small);
+		allocatedByDownload(large);
+
+		long smallAllocation = allocatedByDownload(small);
+		long largeAllocation = allocatedByDownload(large);
+
+		// Copying the content into a byte array would allocate at least the difference in size
+		assertThat(largeAllocation - smallAllocation).isLessThan((LARGE - SMALL) / 8);
+	}
+
+	@Test
+	void replacedContentIsNotSent() {
+		Long id = saveImage(randomBytes(1000));
+		String announced = imageService.getImageDownload(id).contentHash();
+
+		imageService.updateImage(new MockMultipartFile("file", "poster.png", "image/png", randomBytes(1001)), id);
+
+		assertThat(imageService.getImageDownload(id).contentHash()).isNotEqualTo(announced);
+		assertThatThrownBy(() -> imageService.readImageContent(id, announced, imageContent -> { }))
+				.isInstanceOf(IOException.class);
+	}
+
+	private long allocatedByDownload(Long id) throws IOException {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long before = threads.getCurrentThreadAllocatedBytes();
+		ImageDownload download = imageService.getImageDownload(id);
+		imageService.readImageContent(id, download.contentHash(),
+				imageContent -> imageContent.copyTo(OutputStream.nullOutputStream(), 0, imageContent.length()));
+		return threads.getCurrentThreadAllocatedBytes() - before;
+	}
+
+	private Long saveImage(byte[] content) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Poster");
+		request.setBrand("Printly");
+		request.setPrice(BigDecimal.ONE);
+		request.setInventory(1);
+		request.setCategory(new Category("Prints"));
+		Long productId = productService.addProduct(request).getId();
+		List<ImageDTO> images = imageService.saveImages(productId,
+				List.of(new MockMultipartFile("files", "poster.png", "image/png", content)));
+		return images.get(0).getId();
+	}
+
+	private static byte[] sha256(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,392 @@
+package com.gure.cinab.service.image;
+
+import com.gure.cinab.dto.ImageDownload;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.ImageSize;
+import com.gure.cinab.repository.ImageFileRepository;
+import com.gure.cinab.repository.ImageRepository;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.product.IProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ImageVariantPipelineTests {
+
+	@Autowired
+	private IImageService imageService;
+
+	@Autowired
+	private IImageStorage imageStorage;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private ImageVariantPipeline pipeline;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ImageContentReferences imageContentReferences;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ImageFileRepository imageFileRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Test
+	void variantsSmallerThanTheImageAreGenerated() throws Exception {
+		double completedBefore = meterRegistry.counter("cinab.image.variants.jobs", "outcome", "completed").count();
+		Long id = upload("banner.png", "image/png", picture(800, 400, "png"));
+
+		ImageDownload thumb = awaitVariant(id, ImageSize.THUMB);
+
+		assertThat(thumb.fileType()).isEqualTo("image/png");
+		assertThat(thumb.fileName()).isEqualTo("banner-thumb.png");
+		assertThat(dimensions(thumb)).containsExactly(200, 100);
+		assertThat(dimensions(imageService.getImageDownload(id, ImageSize.MEDIUM))).containsExactly(600, 300);
+		Image image = imageRepository.findById(id).orElseThrow();
+		assertThat(image.getWidth()).isEqualTo(800);
+		assertThat(image.getHeight()).isEqualTo(400);
+		// Larger than the original, so the original is sent
+		ImageDownload large = imageService.getImageDownload(id, ImageSize.LARGE);
+		assertThat(large.variant()).isNull();
+		assertThat(large.contentHash()).isEqualTo(large.version());
+		assertThat(meterRegistry.counter("cinab.image.variants.jobs", "outcome", "completed").count())
+				.isGreaterThan(completedBefore);
+		assertThat(meterRegistry.timer("cinab.image.variants.latency").count()).isPositive();
+	}
+
+	@Test
+	void jpegImagesGetJpegVariants() throws Exception {
+		Long id = upload("photo.jpg", "image/jpeg", picture(1600, 1200, "jpeg"));
+
+		ImageDownload large = awaitVariant(id, ImageSize.LARGE);
+
+		assertThat(large.fileType()).isEqualTo("image/jpeg");
+		assertThat(large.fileName()).isEqualTo("photo-large.jpg");
+		assertThat(dimensions(large)).containsExactly(1200, 900);
+	}
+
+	@Test
+	void replacedImagesReleaseTheirVariants() throws Exception {
+		Long id = upload("poster.png", "image/png", picture(700, 700, "png"));
+		String oldThumb = awaitVariant(id, ImageSize.THUMB).contentHash();
+
+		imageService.updateImage(new MockMultipartFile("file", "poster.png", "image/png", picture(100, 100, "png")), id);
+
+		assertThat(imageStorage.contains(oldThumb)).isFalse();
+		assertThat(imageService.getImageDownload(id, ImageSize.THUMB).variant()).isNull();
+	}
+
+	@Test
+	void undecodableContentKeepsOnlyTheOriginal() throws IOException {
+		Long id = upload("broken.png", "image/png", "not an image".getBytes());
+		String hash = imageService.getImageDownload(id).contentHash();
+
+		assertThat(pipeline.generate(id, hash)).isEqualTo(ImageVariantPipeline.Outcome.UNSUPPORTED);
+		assertThat(imageService.getImageDownload(id, ImageSize.THUMB).variant()).isNull();
+	}
+
+	@Test
+	void jobsTheQueueHasNoRoomForAreDeferred() throws Exception {
+		Long busy = storedImage("busy.png", picture(300, 300, "png"));
+		Long image = storedImage("overflow.png", picture(400, 200, "png"));
+		String busyHash = imageRepository.findById(busy).orElseThrow().getContentHash();
+		CountDownLatch release = new CountDownLatch(1);
+		SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+		ImageVariantPipeline overflowing = pipeline(new ForwardingStorage(imageStorage) {
+			@Override
+			public ImageContent open(String hash) throws IOException {
+				if (hash.equals(busyHash)) {
+					awaitUninterruptibly(release);
+				}
+				return super.open(hash);
+			}
+		}, metrics, 0, 3);
+		try {
+			// The only worker waits, so the next job has no queue slot; the committing thread must not run it
+			overflowing.schedule(busy, busyHash);
+			new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+					overflowing.schedule(image, imageRepository.findById(image).orElseThrow().getContentHash()));
+
+			assertThat(metrics.counter("cinab.image.variants.jobs", "outcome", "deferred").count()).isPositive();
+			assertThat(metrics.counter("cinab.image.variants.jobs", "outcome", "completed").count()).isZero();
+			assertThat(imageService.getImageDownload(image, ImageSize.THUMB).variant()).isNull();
+
+			release.countDown();
+			assertThat(dimensions(awaitVariant(image, ImageSize.THUMB))).containsExactly(200, 100);
+			assertThat(imageRepository.findById(image).orElseThrow().getWidth()).isEqualTo(400);
+			assertThat(metrics.counter("cinab.image.variants.jobs", "outcome", "retried").count()).isZero();
+		} finally {
+			release.countDown();
+			overflowing.destroy();
+		}
+	}
+
+	@Test
+	void variantsOfReplacedContentAreNeverRecorded() throws Exception {
+		Long image = storedImage("swapped.png", picture(300, 300, "png"));
+		String oldHash = imageRepository.findById(image).orElseThrow().getContentHash();
+		// Undecodable, so no job for the new content replaces the variants either
+		byte[] replacement = "not an image".getBytes();
+		List<String> variantHashes = new CopyOnWriteArrayList<>();
+		AtomicReference<Thread> replacing = new AtomicReference<>();
+		AtomicReference<Throwable> replaceFailure = new AtomicReference<>();
+		ImageContentReferences references = new ImageContentReferences(new ForwardingStorage(imageStorage) {
+			@Override
+			public StoredContent store(InputStream content) throws IOException {
+				StoredContent stored = super.store(content);
+				variantHashes.add(stored.hash());
+				if (replacing.get() == null) {
+					// The image gets new content while its variants are being recorded
+					Thread thread = new Thread(() -> {
+						try {
+							imageService.updateImage(new MockMultipartFile("file", "swapped.png", "image/png", replacement), image);
+						} catch (Throwable e) {
+							replaceFailure.set(e);
+						}
+					});
+					replacing.set(thread);
+					thread.start();
+					awaitUninterruptibly(thread, Duration.ofMillis(300));
+				}
+				return stored;
+			}
+		}, imageFileRepository, imageRepository, eventPublisher);
+		ImageVariantPipeline racing = new ImageVariantPipeline(imageStorage, references, imageRepository,
+				transactionManager, new SimpleMeterRegistry(), 1, 10, 1, Duration.ofMillis(10));
+		try {
+			racing.generate(image, oldHash);
+			awaitUninterruptibly(replacing.get(), Duration.ofSeconds(30));
+
+			assertThat(replaceFailure.get()).isNull();
+			assertThat(imageRepository.findById(image).orElseThrow().getContentHash()).isNotEqualTo(oldHash);
+			assertThat(variantHashes).isNotEmpty().noneMatch(imageStorage::contains);
+			assertThat(imageService.getImageDownload(image, ImageSize.THUMB).variant()).isNull();
+			assertThat(imageRepository.findById(image).orElseThrow().getWidth()).isNull();
+		} finally {
+			racing.destroy();
+		}
+	}
+
+	@Test
+	void failedJobsAreRetried() throws Exception {
+		Long image = storedImage("flaky.png", picture(300, 300, "png"));
+		AtomicInteger opened = new AtomicInteger();
+		SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+		ImageVariantPipeline flaky = pipeline(new ForwardingStorage(imageStorage) {
+			@Override
+			public ImageContent open(String hash) throws IOException {
+				if (opened.incrementAndGet() < 3) {
+					throw new IOException("Storage unavailable");
+				}
+				return super.open(hash);
+			}
+		}, metrics, 10, 3);
+		try {
+			flaky.schedule(image, imageRepository.findById(image).orElseThrow().getContentHash());
+
+			awaitOutcome(metrics, "completed");
+			assertThat(metrics.counter("cinab.image.variants.jobs", "outcome", "retried").count()).isEqualTo(2);
+			assertThat(dimensions(imageService.getImageDownload(image, ImageSize.THUMB))).containsExactly(200, 200);
+		} finally {
+			flaky.destroy();
+		}
+	}
+
+	@Test
+	void jobsGiveUpAfterTheLastAttempt() throws Exception {
+		Long image = storedImage("lost.png", picture(300, 300, "png"));
+		SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+		ImageVariantPipeline failing = pipeline(new ForwardingStorage(imageStorage) {
+			@Override
+			public ImageContent open(String hash) throws IOException {
+				throw new IOException("Storage unavailable");
+			}
+		}, metrics, 10, 2);
+		try {
+			failing.schedule(image, imageRepository.findById(image).orElseThrow().getContentHash());
+
+			awaitOutcome(metrics, "failed");
+			assertThat(metrics.counter("cinab.image.variants.jobs", "outcome", "retried").count()).isEqualTo(1);
+			assertThat(imageService.getImageDownload(image, ImageSize.THUMB).variant()).isNull();
+		} finally {
+			failing.destroy();
+		}
+	}
+
+	/**
+	 * A pipeline with one worker, so tests control when it is busy.
+	 */
+	private ImageVariantPipeline pipeline(IImageStorage storage, MeterRegistry metrics, int queueCapacity, int maxAttempts) {
+		return new ImageVariantPipeline(storage, imageContentReferences, imageRepository, transactionManager, metrics,
+				1, queueCapacity, maxAttempts, Duration.ofMillis(10));
+	}
+
+	/**
+	 * Stores an image without scheduling its variants, so only the pipeline under test generates them.
+	 */
+	private Long storedImage(String fileName, byte[] content) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Print " + fileName);
+		request.setBrand("Artsy");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Art"));
+		Long productId = productService.addProduct(request).getId();
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			try {
+				IImageStorage.StoredContent stored = imageContentReferences.store(() -> new ByteArrayInputStream(content));
+				Image image = new Image();
+				image.setFileName(fileName);
+				image.setFileType("image/png");
+				image.setContentHash(stored.hash());
+				image.setContentLength(stored.length());
+				image.setProduct(productService.getProductById(productId));
+				return imageRepository.save(image).getId();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private static void awaitUninterruptibly(Thread thread, Duration timeout) {
+		try {
+			thread.join(timeout.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class ForwardingStorage implements IImageStorage {
+
+		private final IImageStorage delegate;
+
+		ForwardingStorage(IImageStorage delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public StoredContent store(InputStream content) throws IOException {
+			return delegate.store(content);
+		}
+
+		@Override
+		public boolean contains(String hash) {
+			return delegate.contains(hash);
+		}
+
+		@Override
+		public ImageContent open(String hash) throws IOException {
+			return delegate.open(hash);
+		}
+
+		@Override
+		public Optional<Path> localFile(String hash) {
+			return delegate.localFile(hash);
+		}
+
+		@Override
+		public void delete(String hash) throws IOException {
+			delegate.delete(hash);
+		}
+	}
+
+	private static void awaitOutcome(MeterRegistry metrics, String outcome) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		while (metrics.counter("cinab.image.variants.jobs", "outcome", outcome).count() == 0) {
+			assertThat(System.nanoTime()).as("%s job", outcome).isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+
+	private ImageDownload awaitVariant(Long id, ImageSize size) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		ImageDownload download;
+		while ((download = imageService.getImageDownload(id, size)).variant() != size) {
+			assertThat(System.nanoTime()).as("variant %s of image %d", size, id).isLessThan(deadline);
+			Thread.sleep(20);
+		}
+		return download;
+	}
+
+	private List<Integer> dimensions(ImageDownload download) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		imageService.readImageContent(download.id(), download.contentHash(), content -> content.copyTo(out, 0, content.length()));
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+		return List.of(image.getWidth(), image.getHeight());
+	}
+
+	private Long upload(String fileName, String fileType, byte[] content) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Canvas " + fileName);
+		request.setBrand("Artsy");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category("Art"));
+		Long productId = productService.addProduct(request).getId();
+		return imageService.saveImages(productId, List.of(new MockMultipartFile("files", fileName, fileType, content)))
+				.get(0).getId();
+	}
+
+	private static byte[] picture(int width, int height, String format) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.ORANGE);
+		graphics.fillRect(0, 0, width, height);
+		graphics.setColor(Color.BLUE);
+		graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+		graphics.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,151 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductRow;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveProductIndexTests {
+
+	// The committed state of the catalog
+	private final Map<Long, ProductRow> database = new ConcurrentSkipListMap<>();
+
+	private final LiveProductIndex<NameIndex> index = new LiveProductIndex<>(NameIndex::new);
+
+	@Test
+	void updatesAreAppliedToTheCurrentIndex() {
+		database.put(1L, row(1L, "Desk"));
+		index.rebuild(this::catalog, this::rows);
+
+		database.put(1L, row(1L, "Standing desk"));
+		database.put(2L, row(2L, "Chair"));
+		index.update(List.of(1L, 2L), this::rows);
+
+		assertThat(index.current().names).containsExactlyInAnyOrderEntriesOf(Map.of(1L, "Standing desk", 2L, "Chair"));
+	}
+
+	@Test
+	void changesCommittedDuringARebuildAreKept() {
+		database.put(1L, row(1L, "Desk"));
+		database.put(2L, row(2L, "Chair"));
+		database.put(3L, row(3L, "Lamp"));
+
+		index.rebuild(() -> {
+			// The rebuild reads the catalog as it was when its query started
+			Stream<ProductRow> snapshot = List.copyOf(database.values()).stream();
+			database.put(1L, row(1L, "Standing desk"));
+			database.remove(2L);
+			database.put(4L, row(4L, "Shelf"));
+			index.update(List.of(1L, 2L, 4L), this::rows);
+			return snapshot;
+		}, this::rows);
+
+		assertThat(index.current().names)
+				.containsExactlyInAnyOrderEntriesOf(Map.of(1L, "Standing desk", 3L, "Lamp", 4L, "Shelf"));
+	}
+
+	@Test
+	void changesAfterARebuildAreNotReplayedByTheNextOne() {
+		database.put(1L, row(1L, "Desk"));
+		index.rebuild(this::catalog, this::rows);
+		index.update(List.of(1L), this::rows);
+
+		List<Collection<Long>> reads = new ArrayList<>();
+		index.rebuild(this::catalog, ids -> {
+			reads.add(ids);
+			return rows(ids);
+		});
+
+		assertThat(reads).isEmpty();
+	}
+
+	@Test
+	void rowsAreReadWithoutBlockingOtherUpdates() throws Exception {
+		database.put(1L, row(1L, "Desk"));
+		database.put(2L, row(2L, "Chair"));
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> index.update(List.of(1L), ids -> {
+			reading.countDown();
+			await(release);
+			return rows(ids);
+		}));
+		assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture.runAsync(() -> index.update(List.of(2L), this::rows)).get(5, TimeUnit.SECONDS);
+		assertThat(index.current().names).containsOnlyKeys(2L);
+
+		release.countDown();
+		slow.get(5, TimeUnit.SECONDS);
+		assertThat(index.current().names).containsOnlyKeys(1L, 2L);
+	}
+
+	@Test
+	void rowsReadEarlierNeverReplaceRowsReadLater() throws Exception {
+		database.put(1L, row(1L, "Desk"));
+		CountDownLatch read = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> older = CompletableFuture.runAsync(() -> index.update(List.of(1L), ids -> {
+			List<ProductRow> rows = rows(ids);
+			read.countDown();
+			await(release);
+			return rows;
+		}));
+		assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+
+		database.put(1L, row(1L, "Standing desk"));
+		index.update(List.of(1L), this::rows);
+		release.countDown();
+		older.get(5, TimeUnit.SECONDS);
+
+		assertThat(index.current().names).containsEntry(1L, "Standing desk");
+	}
+
+	private Stream<ProductRow> catalog() {
+		return List.copyOf(database.values()).stream();
+	}
+
+	private List<ProductRow> rows(Collection<Long> ids) {
+		return ids.stream().map(database::get).filter(Objects::nonNull).toList();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ProductRow row(Long id, String name) {
+		return new ProductRow(id, name, "Oakline", BigDecimal.ONE, 1, null, null, null, 0, null);
+	}
+
+	private static final class NameIndex implements ProductIndex {
+
+		private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+		@Override
+		public void index(ProductRow row) {
+			names.put(row.id(), row.name());
+		}
+
+		@Override
+		public void remove(Long productId) {
+			names.remove(productId);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Product;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.request.ProductUpdateRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductCacheTests {
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Long productId;
+
+	@BeforeEach
+	void addProduct() {
+		AddProductRequest request = new AddProductRequest();
+		request.setName("Kettle");
+		request.setBrand("Acme");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(3);
+		request.setCategory(new Category("Kitchen"));
+		productId = productService.addProduct(request).getId();
+	}
+
+	@Test
+	void repeatedReadsAreServedFromTheCache() {
+		ProductDTO first = productService.getProductDTOById(productId);
+
+		assertThat(productService.getProductDTOById(productId)).isSameAs(first);
+	}
+
+	@Test
+	void committedUpdateEvictsTheCachedProduct() {
+		ProductDTO cached = productService.getProductDTOById(productId);
+
+		productService.updateProduct(updateRequest("Kettle 2"), productId);
+
+		ProductDTO reloaded = productService.getProductDTOById(productId);
+		assertThat(reloaded).isNotSameAs(cached);
+		assertThat(reloaded.getName()).isEqualTo("Kettle 2");
+	}
+
+	@Test
+	void rolledBackUpdateKeepsTheCachedProduct() {
+		ProductDTO cached = productService.getProductDTOById(productId);
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			productService.updateProduct(updateRequest("Never committed"), productId);
+			status.setRollbackOnly();
+		});
+
+		assertThat(productService.getProductDTOById(productId)).isSameAs(cached);
+		assertThat(cached.getName()).isEqualTo("Kettle");
+	}
+
+	private ProductUpdateRequest updateRequest(String name) {
+		Product product = productService.getProductById(productId);
+		ProductUpdateRequest request = new ProductUpdateRequest();
+		request.setName(name);
+		request.setBrand(product.getBrand());
+		request.setPrice(product.getPrice());
+		request.setInventory(product.getInventory());
+		request.setCategory(new Category("Kitchen"));
+		return request;
+	}
+}
@@ -0,0 +1,107 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.dto.ProductImportErrorDTO;
+import com.gure.cinab.dto.ProductImportReportDTO;
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.repository.ProductViewRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductImportServiceTests {
+
+	@Autowired
+	private IProductImportService productImportService;
+
+	@Autowired
+	private ProductViewRepository productViewRepository;
+
+	@Test
+	void csvImportSpansSeveralBatches() throws IOException {
+		StringBuilder csv = new StringBuilder("name,brand,price,inventory,description,category\n");
+		for (int i = 0; i < 1203; i++) {
+			csv.append("Lamp ").append(i).append(",Lumo,19.99,4,\"Warm, dimmable\",Lighting\n");
+		}
+
+		ProductImportReportDTO report = importFile(csv.toString(), ProductImportFormat.CSV);
+
+		assertThat(report.getImported()).isEqualTo(1203);
+		assertThat(report.getFailed()).isZero();
+		List<ProductRow> rows = productsOf("Lumo");
+		assertThat(rows).hasSize(1203);
+		assertThat(rows).extracting(ProductRow::categoryId).containsOnly(rows.get(0).categoryId());
+		assertThat(rows.get(0).description()).isEqualTo("Warm, dimmable");
+		assertThat(rows.get(0).price()).isEqualByComparingTo(new BigDecimal("19.99"));
+	}
+
+	@Test
+	void invalidRowsAreReportedAndSkipped() throws IOException {
+		String ndjson = """
+				{"name":"Drill","brand":"Toolz","price":"89.00","inventory":2,"category":{"name":"Tools"}}
+				{"name":"Saw","brand":"Toolz",
+				{"name":"Hammer","brand":"Toolz","inventory":5,"category":"Tools"}
+
+				{"name":"Wrench","brand":"Toolz","price":12.5,"inventory":-1,"category":"Tools"}
+				{"name":"Pliers","brand":"Toolz","price":7,"category":"Tools"}
+				""";
+
+		ProductImportReportDTO report = importFile(ndjson, ProductImportFormat.NDJSON);
+
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getFailed()).isEqualTo(3);
+		assertThat(report.getErrors()).extracting(ProductImportErrorDTO::getRow).containsExactly(2L, 3L, 4L);
+		assertThat(productsOf("Toolz")).extracting(ProductRow::name).containsExactly("Drill", "Pliers");
+	}
+
+	@Test
+	void databaseRejectionsOnlyFailTheirRow() throws IOException {
+		String csv = "name,brand,price,inventory,description,category\n"
+				+ "Mug,Cupz,4.50,10,,Kitchen\n"
+				+ "Plate,Cupz,6.00,10," + "x".repeat(300) + ",Kitchen\n"
+				+ "Bowl,Cupz,5.00,10,,Kitchen\n";
+
+		ProductImportReportDTO report = importFile(csv, ProductImportFormat.CSV);
+
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getErrors()).extracting(ProductImportErrorDTO::getRow).containsExactly(2L);
+		assertThat(productsOf("Cupz")).extracting(ProductRow::name).containsExactly("Mug", "Bowl");
+	}
+
+	@Test
+	void malformedCsvRowsAreReportedAndSkipped() throws IOException {
+		String csv = "name,brand,price,inventory,description,category\n"
+				+ "Kettle,Boilr,30.00,3,,Appliances\n"
+				+ "Toaster,Boilr,25.00,3,Two slots,Appliances,extra\n"
+				+ "Blender,Boilr,45.00,3,,Appliances\n";
+
+		ProductImportReportDTO report = importFile(csv, ProductImportFormat.CSV);
+
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getErrors()).singleElement().satisfies(error -> {
+			assertThat(error.getRow()).isEqualTo(2);
+			assertThat(error.getMessage()).startsWith("Malformed CSV");
+		});
+		assertThat(productsOf("Boilr")).extracting(ProductRow::name).containsExactly("Kettle", "Blender");
+	}
+
+	private ProductImportReportDTO importFile(String contents, ProductImportFormat format) throws IOException {
+		return productImportService.importProducts(
+				new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), format);
+	}
+
+	private List<ProductRow> productsOf(String brand) {
+		return productViewRepository.findRowsByBrand(brand, 0L, Limit.unlimited());
+	}
+}
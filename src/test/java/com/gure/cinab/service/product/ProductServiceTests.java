@@ -0,0 +1,343 @@
+package com.gure.cinab.service.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gure.cinab.dto.CursorPageDTO;
+import com.gure.cinab.dto.ProductDTO;
+import com.gure.cinab.mapper.ProductMapper;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.Image;
+import com.gure.cinab.model.Product;
+import com.gure.cinab.repository.ProductRepository;
+import com.gure.cinab.request.BulkProductUpdateRequest;
+import com.gure.cinab.request.ProductFields;
+import com.gure.cinab.request.ProductFilter;
+import com.gure.cinab.service.category.CategoryResolver;
+import com.gure.cinab.service.image.FileSystemImageStorage;
+import com.gure.cinab.service.image.ImageContentReferences;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@ActiveProfiles("test")
+@Import({ProductService.class, ProductViewUpdater.class, ProductMapper.class, CategoryResolver.class,
+		ImageContentReferences.class, FileSystemImageStorage.class})
+class ProductServiceTests {
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductViewUpdater productViewUpdater;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void convertedProductsUseFixedNumberOfStatements() {
+		Category category = new Category("Phones");
+		entityManager.persist(category);
+
+		persistProducts(category, 3);
+		long smallListStatements = countStatementsForConvertingAllProducts(3);
+
+		persistProducts(category, 40);
+		long largeListStatements = countStatementsForConvertingAllProducts(43);
+
+		assertThat(largeListStatements).isEqualTo(smallListStatements);
+	}
+
+	@Test
+	void convertedProductsKeepTheirOwnImages() {
+		Category category = new Category("Laptops");
+		entityManager.persist(category);
+		persistProducts(category, 2);
+		entityManager.flush();
+		entityManager.clear();
+
+		List<ProductDTO> converted = productService.getConvertedProducts(productRepository.findAll());
+
+		assertThat(converted).hasSize(2).allSatisfy(productDTO -> {
+			assertThat(productDTO.getImages()).hasSize(2);
+			assertThat(productDTO.getImages())
+					.allSatisfy(image -> assertThat(image.getFileName()).startsWith(productDTO.getName()));
+		});
+	}
+
+	@Test
+	void pagesWalkTheWholeCatalogOnceInIdOrder() {
+		Category category = new Category("Tablets");
+		entityManager.persist(category);
+		persistProducts(category, 7);
+		entityManager.flush();
+		entityManager.clear();
+
+		List<Long> seenIds = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPageDTO<ProductDTO> page = productService.getAllProducts(cursor, 3, ProductFields.ALL);
+			assertThat(page.getItems()).hasSizeLessThanOrEqualTo(3);
+			page.getItems().forEach(productDTO -> seenIds.add(productDTO.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seenIds).hasSize(7).isSorted().doesNotHaveDuplicates();
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThatThrownBy(() -> productService.getAllProducts("not-a-cursor", 10, ProductFields.ALL))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void sparseFieldsetSkipsTheImageQuery() {
+		Category category = new Category("Watches");
+		entityManager.persist(category);
+		persistProducts(category, 3);
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		CursorPageDTO<ProductDTO> page = productService.getProductsByCategory("Watches", null, 10, ProductFields.parse("name,price"));
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(page.getItems()).hasSize(3).allSatisfy(productDTO -> {
+			assertThat(productDTO.getName()).startsWith("product-");
+			assertThat(productDTO.getPrice()).isEqualByComparingTo("10");
+			assertThat(productDTO.getDescription()).isNull();
+			assertThat(productDTO.getCategory()).isNull();
+			assertThat(productDTO.getImages()).isNull();
+		});
+	}
+
+	@Test
+	void listingsWithImagesAreOneStatement() {
+		Category category = new Category("Speakers");
+		entityManager.persist(category);
+		persistProducts(category, 3);
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		CursorPageDTO<ProductDTO> page = productService.getProductsByCategory("Speakers", null, 10, ProductFields.ALL);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(page.getItems()).hasSize(3).allSatisfy(productDTO -> {
+			assertThat(productDTO.getCategory().getName()).isEqualTo("Speakers");
+			assertThat(productDTO.getImages()).hasSize(2);
+		});
+	}
+
+	@Test
+	void readsAreProjectedWithoutLoadingEntities() {
+		Category category = new Category("Headphones");
+		entityManager.persist(category);
+		persistProducts(category, 3);
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		List<ProductDTO> products = new ArrayList<>();
+		products.addAll(productService.getProductsByCategory("Headphones", null, 10, ProductFields.ALL).getItems());
+		products.addAll(productService.getProductsByBrand("Acme", null, 10, ProductFields.ALL).getItems());
+		products.addAll(productService.getAllProducts(null, 10, ProductFields.ALL).getItems());
+		products.add(productService.getProductDTOById(products.get(0).getId()));
+		products.addAll(productService.getProductsByIds(List.of(products.get(0).getId())));
+
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getEntityFetchCount()).isZero();
+		assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+		assertThat(products).isNotEmpty().allSatisfy(productDTO -> {
+			assertThat(productDTO.getCategory().getName()).isEqualTo("Headphones");
+			assertThat(productDTO.getImages()).hasSize(2);
+		});
+	}
+
+	@Test
+	void sparseFieldsetWithImagesLoadsThem() {
+		Category category = new Category("Drones");
+		entityManager.persist(category);
+		persistProducts(category, 2);
+		entityManager.flush();
+		entityManager.clear();
+
+		CursorPageDTO<ProductDTO> page = productService.getProductsByCategory("Drones", null, 10, ProductFields.parse("category,images"));
+
+		assertThat(page.getItems()).hasSize(2).allSatisfy(productDTO -> {
+			assertThat(productDTO.getName()).isNull();
+			assertThat(productDTO.getCategory().getName()).isEqualTo("Drones");
+			assertThat(productDTO.getImages()).hasSize(2);
+		});
+	}
+
+	@Test
+	void unknownFieldIsRejected() {
+		assertThatThrownBy(() -> ProductFields.parse("name,secret"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("secret");
+	}
+
+	@Test
+	void fieldNamesDoNotDependOnTheDefaultLocale() {
+		Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+		try {
+			assertThat(ProductFields.parse("id,inventory,price").includes(ProductFields.Field.INVENTORY)).isTrue();
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	@Test
+	void exportWritesOneJsonLinePerProduct() throws IOException {
+		Category category = new Category("Cameras");
+		entityManager.persist(category);
+		persistProducts(category, 4);
+		entityManager.flush();
+		entityManager.clear();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		productService.exportCatalog(out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lines).hasSize(4);
+		for (String line : lines) {
+			ProductDTO productDTO = objectMapper.readValue(line, ProductDTO.class);
+			assertThat(productDTO.getImages()).hasSize(2);
+		}
+	}
+
+	@Test
+	void bulkUpdateChangesOnlyTheMatchingProducts() {
+		Category phones = new Category("Phones");
+		Category laptops = new Category("Laptops");
+		entityManager.persist(phones);
+		entityManager.persist(laptops);
+		persistProducts(phones, 3);
+		persistProducts(laptops, 2);
+		entityManager.flush();
+		entityManager.clear();
+
+		BulkProductUpdateRequest request = new BulkProductUpdateRequest();
+		request.setFilter(filter(null, "Acme", "Phones"));
+		request.setPriceChangePercent(new BigDecimal("-10"));
+		request.setInventoryChange(2);
+		int updated = productService.bulkUpdateProducts(request);
+		entityManager.clear();
+
+		assertThat(updated).isEqualTo(3);
+		assertThat(productRepository.findAll()).allSatisfy(product -> {
+			boolean phone = product.getCategory().getName().equals("Phones");
+			assertThat(product.getPrice()).isEqualByComparingTo(phone ? "9" : "10");
+			assertThat(product.getInventory()).isEqualTo(phone ? 7 : 5);
+		});
+	}
+
+	@Test
+	void bulkDeleteRemovesTheProductsAndTheirImages() {
+		Category category = new Category("Cameras");
+		entityManager.persist(category);
+		persistProducts(category, 4);
+		entityManager.flush();
+		entityManager.clear();
+		List<Long> ids = productRepository.findAll().stream().map(Product::getId).toList();
+
+		int deleted = productService.bulkDeleteProducts(filter(ids.subList(0, 3), null, null));
+		entityManager.clear();
+
+		assertThat(deleted).isEqualTo(3);
+		assertThat(productRepository.findAll()).extracting(Product::getId).containsExactly(ids.get(3));
+		assertThat(entityManager.createQuery("select count(i) from Image i", Long.class).getSingleResult()).isEqualTo(2);
+	}
+
+	@Test
+	void bulkOperationsNeedAFilter() {
+		BulkProductUpdateRequest request = new BulkProductUpdateRequest();
+		request.setFilter(new ProductFilter());
+		request.setPrice(BigDecimal.ONE);
+
+		assertThatThrownBy(() -> productService.bulkUpdateProducts(request))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> productService.bulkDeleteProducts(new ProductFilter()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static ProductFilter filter(List<Long> ids, String brand, String category) {
+		ProductFilter filter = new ProductFilter();
+		filter.setIds(ids);
+		filter.setBrand(brand);
+		filter.setCategory(category);
+		return filter;
+	}
+
+	private long countStatementsForConvertingAllProducts(int expectedProducts) {
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		List<ProductDTO> converted = productService.getConvertedProducts(productRepository.findAll());
+
+		assertThat(converted).hasSize(expectedProducts);
+		return statistics.getPrepareStatementCount();
+	}
+
+	private void persistProducts(Category detachedCategory, int count) {
+		Category category = entityManager.find(Category.class, detachedCategory.getId());
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Product product = new Product("product-" + System.nanoTime(), "Acme",
+					BigDecimal.TEN, 5, "description", category);
+			entityManager.persist(product);
+			ids.add(product.getId());
+			for (int j = 0; j < 2; j++) {
+				Image image = new Image();
+				image.setFileName(product.getName() + "-" + j + ".png");
+				image.setFileType("image/png");
+				image.setDownloadUrl("/api/v1/images/image/download/");
+				image.setProduct(product);
+				entityManager.persist(image);
+			}
+		}
+		// The test transaction never commits, so the read model is rebuilt here
+		productViewUpdater.refresh(ids);
+	}
+}
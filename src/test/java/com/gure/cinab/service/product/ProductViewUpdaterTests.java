@@ -0,0 +1,106 @@
+package com.gure.cinab.service.product;
+
+import com.gure.cinab.event.ProductChangedEvent;
+import com.gure.cinab.model.Category;
+import com.gure.cinab.model.ProductView;
+import com.gure.cinab.repository.ProductRepository;
+import com.gure.cinab.repository.ProductViewRepository;
+import com.gure.cinab.request.AddProductRequest;
+import com.gure.cinab.service.category.ICategoryService;
+import com.gure.cinab.service.image.IImageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductViewUpdaterTests {
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private IImageService imageService;
+
+	@Autowired
+	private ICategoryService categoryService;
+
+	@Autowired
+	private ProductViewRepository productViewRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void viewFollowsProductImageAndCategoryWrites() {
+		Long id = productService.addProduct(request("Desk", "Office")).getId();
+		assertThat(view(id).getName()).isEqualTo("Desk");
+		assertThat(view(id).getImageCount()).isZero();
+
+		imageService.saveImages(id, List.of(new MockMultipartFile("files", "desk.png", "image/png", new byte[]{1, 2})));
+		ProductView withImage = view(id);
+		assertThat(withImage.getImageCount()).isEqualTo(1);
+		assertThat(withImage.getImages()).singleElement()
+				.satisfies(image -> assertThat(image.getDownloadUrl()).contains("/" + image.getId() + "?v="));
+
+		categoryService.updateCategory(new Category("Workspace"), withImage.getCategoryId());
+		ProductView renamed = view(id);
+		assertThat(renamed.getCategoryName()).isEqualTo("Workspace");
+		assertThat(renamed.getVersion()).isGreaterThan(withImage.getVersion());
+
+		productService.deleteProduct(id);
+		assertThat(productViewRepository.findById(id)).isEmpty();
+	}
+
+	@Test
+	void rolledBackWritesLeaveTheViewUnchanged() {
+		Long id = new TransactionTemplate(transactionManager).execute(status -> {
+			Long productId = productService.addProduct(request("Chair", "Office")).getId();
+			status.setRollbackOnly();
+			return productId;
+		});
+
+		assertThat(productViewRepository.findById(id)).isEmpty();
+	}
+
+	@Test
+	void eventsPublishedOutsideATransactionAreApplied() {
+		Long id = productService.addProduct(request("Lamp", "Office")).getId();
+		productRepository.deleteById(id);  // Bypassing the service, so no event is published
+		assertThat(productViewRepository.findById(id)).isPresent();
+
+		eventPublisher.publishEvent(ProductChangedEvent.of(id));
+
+		assertThat(productViewRepository.findById(id)).isEmpty();
+	}
+
+	private ProductView view(Long id) {
+		return productViewRepository.findById(id).orElseThrow();
+	}
+
+	private static AddProductRequest request(String name, String category) {
+		AddProductRequest request = new AddProductRequest();
+		request.setName(name);
+		request.setBrand("Oakline");
+		request.setPrice(BigDecimal.TEN);
+		request.setInventory(1);
+		request.setCategory(new Category(category));
+		return request;
+	}
+}
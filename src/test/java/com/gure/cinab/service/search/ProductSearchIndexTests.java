@@ -0,0 +1,97 @@
+package com.gure.cinab.service.search;
+
+import com.gure.cinab.dto.ProductRow;
+import com.gure.cinab.dto.ProductSearchHitDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTests {
+
+	private final ProductSearchIndex index = new ProductSearchIndex();
+
+	@Test
+	void matchesAreCaseAndAccentInsensitive() {
+		index.index(row(1L, "Crème Brûlée Torch", "Kitchenaid", "Caramelises sugar"));
+
+		assertThat(ids(index.search("CREME brulee", 10))).containsExactly(1L);
+	}
+
+	@Test
+	void nameMatchesOutrankDescriptionMatches() {
+		index.index(row(1L, "Phone case", "Acme", "Fits every galaxy phone"));
+		index.index(row(2L, "Galaxy S24", "Samsung", "Android phone"));
+
+		assertThat(ids(index.search("galaxy", 10))).containsExactly(2L, 1L);
+	}
+
+	@Test
+	void productsMatchingMoreTermsRankFirst() {
+		index.index(row(1L, "Galaxy S24", "Samsung", "Phone"));
+		index.index(row(2L, "Galaxy Tab", "Samsung", "Tablet"));
+		index.index(row(3L, "Tab organiser", "Acme", "Desk"));
+
+		assertThat(ids(index.search("galaxy tab", 10))).first().isEqualTo(2L);
+	}
+
+	@Test
+	void reindexingReplacesThePreviousVersion() {
+		index.index(row(1L, "Kettle", "Acme", "Boils water"));
+		index.index(row(1L, "Toaster", "Acme", "Browns bread"));
+
+		assertThat(index.search("kettle", 10)).isEmpty();
+		assertThat(ids(index.search("toaster", 10))).containsExactly(1L);
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void removedProductsAreNotFound() {
+		index.index(row(1L, "Kettle", "Acme", "Boils water"));
+		index.remove(1L);
+
+		assertThat(index.search("kettle", 10)).isEmpty();
+		assertThat(index.size()).isZero();
+	}
+
+	@Test
+	void manyUpdatesStillLeaveOneLiveDocumentPerProduct() {
+		for (int i = 0; i < 5000; i++) {
+			index.index(row((long) (i % 10), "Lamp " + i, "Acme", "Light"));
+		}
+
+		assertThat(index.size()).isEqualTo(10);
+		assertThat(index.search("lamp", 100)).hasSize(10);
+		assertThat(ids(index.search("4999", 10))).containsExactly(9L);
+	}
+
+	@Test
+	void scoresOfManyCandidatesAreKeptApart() {
+		for (long id = 1; id <= 3000; id++) {
+			index.index(row(id, "Lamp " + id, "Acme", id % 1000 == 0 ? "Desk" : "Floor"));
+		}
+
+		assertThat(index.search("lamp", 5000)).hasSize(3000);
+		assertThat(ids(index.search("desk lamp", 3))).containsExactly(1000L, 2000L, 3000L);
+		assertThat(ids(index.search("lamp 1234", 1))).containsExactly(1234L);
+	}
+
+	@Test
+	void limitCapsTheNumberOfHits() {
+		for (long id = 1; id <= 30; id++) {
+			index.index(row(id, "Cable " + id, "Acme", "USB"));
+		}
+
+		assertThat(index.search("cable", 5)).hasSize(5);
+	}
+
+	private static ProductRow row(Long id, String name, String brand, String description) {
+		return new ProductRow(id, name, brand, BigDecimal.ONE, 1, description, null, null, 0, null);
+	}
+
+	private static List<Long> ids(List<ProductSearchHitDTO> hits) {
+		return hits.stream().map(ProductSearchHitDTO::getId).toList();
+	}
+}